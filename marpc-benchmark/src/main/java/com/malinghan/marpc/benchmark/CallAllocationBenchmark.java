@@ -0,0 +1,142 @@
+package com.malinghan.marpc.benchmark;
+
+import com.malinghan.marpc.annotation.MarpcProvider;
+import com.malinghan.marpc.circuitbreaker.CircuitBreaker;
+import com.malinghan.marpc.circuitbreaker.CircuitBreakerConfig;
+import com.malinghan.marpc.consumer.MarpcInvocationHandler;
+import com.malinghan.marpc.demo.User;
+import com.malinghan.marpc.demo.UserService;
+import com.malinghan.marpc.provider.ProviderBootstrap;
+import com.malinghan.marpc.provider.ProviderExecutor;
+import com.malinghan.marpc.provider.ProviderExecutorConfig;
+import com.malinghan.marpc.registry.RegistryCenter;
+import com.malinghan.marpc.retry.RetryPolicy;
+import com.malinghan.marpc.transport.netty.NettyConfig;
+import com.malinghan.marpc.transport.netty.NettyRpcClient;
+import com.malinghan.marpc.transport.netty.NettyRpcServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次 RPC 调用的分配量：同一 JVM 内起 Netty 服务端与客户端，经动态代理发起同步调用，
+ * 用 gc profiler 的 {@code gc.alloc.rate.norm}（字节/次）衡量客户端与服务端合计的每次调用分配。
+ *
+ * <pre>
+ * mvn -pl marpc-benchmark -am package -DskipTests
+ * java -jar marpc-benchmark/target/benchmarks.jar CallAllocationBenchmark -prof gc
+ * # 对比关闭帧对象池
+ * java -jar marpc-benchmark/target/benchmarks.jar CallAllocationBenchmark -prof gc -jvmArgsAppend -Dmarpc.frame.recyclerCapacity=0
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallAllocationBenchmark {
+
+    private static final int PORT = 19090;
+
+    @Param({"json", "jsonb"})
+    private String serializer;
+
+    private GenericApplicationContext context;
+    private ProviderExecutor executor;
+    private NettyRpcServer server;
+    private NettyRpcClient client;
+    private UserService userService;
+
+    @MarpcProvider
+    public static class UserServiceImpl implements UserService {
+        private final User user = new User(42, "malinghan");
+
+        @Override
+        public User getUser(int id) {
+            return user;
+        }
+
+        @Override
+        public List<User> listUsers() {
+            return List.of(user);
+        }
+
+        @Override
+        public boolean exists(int id) {
+            return true;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new GenericApplicationContext();
+        context.registerBean(UserServiceImpl.class);
+        context.refresh();
+        String instance = "127.0.0.1:" + PORT;
+        ProviderBootstrap provider = new ProviderBootstrap(context, new LocalRegistry(), instance);
+        provider.afterPropertiesSet();
+
+        NettyConfig config = new NettyConfig();
+        config.setPort(PORT);
+        config.setSerializer(serializer);
+        // 业务在 I/O 线程执行，排除线程切换的分配
+        executor = new ProviderExecutor(ProviderExecutorConfig.direct());
+        server = new NettyRpcServer(provider, executor, config);
+        server.afterPropertiesSet();
+
+        client = new NettyRpcClient(3000, config);
+        MarpcInvocationHandler handler = new MarpcInvocationHandler(UserService.class, () -> instance, List.of(),
+                RetryPolicy.noRetry(), new CircuitBreaker(CircuitBreakerConfig.disabled()), client);
+        userService = (UserService) Proxy.newProxyInstance(UserService.class.getClassLoader(),
+                new Class[]{UserService.class}, handler);
+        // 完成握手，之后的调用使用 v2 帧与方法 id
+        for (int i = 0; i < 100; i++) {
+            userService.getUser(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.destroy();
+        executor.destroy();
+        context.close();
+    }
+
+    @Benchmark
+    public User getUser() {
+        return userService.getUser(42);
+    }
+
+    /** 单机基准不需要注册中心 */
+    private static final class LocalRegistry implements RegistryCenter {
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void register(String service, String instance) {
+        }
+
+        @Override
+        public void unregister(String service, String instance) {
+        }
+
+        @Override
+        public List<String> fetchAll(String service) {
+            return List.of();
+        }
+
+        @Override
+        public void subscribe(String service, ChangeListener listener) {
+        }
+    }
+}
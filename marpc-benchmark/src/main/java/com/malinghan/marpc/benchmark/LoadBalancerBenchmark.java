@@ -0,0 +1,81 @@
+package com.malinghan.marpc.benchmark;
+
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.loadbalance.InstanceStats;
+import com.malinghan.marpc.loadbalance.LeastActiveLoadBalancer;
+import com.malinghan.marpc.loadbalance.LoadBalancer;
+import com.malinghan.marpc.loadbalance.PeakEwmaLoadBalancer;
+import com.malinghan.marpc.loadbalance.RoundRobinLoadBalancer;
+import com.malinghan.marpc.loadbalance.ServiceStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 负载均衡对比：模拟一组延迟倾斜的 Provider（其中一个实例处于长 GC，延迟高一个数量级），
+ * 多线程并发调用，每次调用按选中实例的延迟 park，统计调用耗时分布（p50 / p99 / p99.9）。
+ *
+ * <pre>
+ * mvn -pl marpc-benchmark -am package -DskipTests
+ * java -jar marpc-benchmark/target/benchmarks.jar LoadBalancerBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Threads(32)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBalancerBenchmark {
+
+    private static final String SERVICE = "com.malinghan.marpc.demo.OrderService";
+    private static final int INSTANCES = 10;
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Param({"roundrobin", "leastactive", "peakewma"})
+    private String balancer;
+
+    private LoadBalancer loadBalancer;
+    private ServiceStats stats;
+    private List<String> instances;
+    private RpcRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loadBalancer = switch (balancer) {
+            case "roundrobin" -> new RoundRobinLoadBalancer();
+            case "leastactive" -> new LeastActiveLoadBalancer();
+            case "peakewma" -> new PeakEwmaLoadBalancer();
+            default -> throw new IllegalArgumentException(balancer);
+        };
+        stats = new ServiceStats(SERVICE);
+        instances = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add("10.0.0." + i + ":8080");
+        }
+        request = new RpcRequest();
+        request.setService(SERVICE);
+        request.setMethod("findById");
+        request.setMethodSign("findById@1_long");
+    }
+
+    @Benchmark
+    public String call() {
+        String instance = loadBalancer.choose(request, instances, stats);
+        InstanceStats instanceStats = stats.get(instance);
+        long start = System.nanoTime();
+        instanceStats.onStart();
+        // 第一个实例处于长 GC；其余实例延迟在 1ms 上下浮动
+        long latency = instance.equals(instances.get(0)) ? SLOW_NANOS
+                : FAST_NANOS / 2 + ThreadLocalRandom.current().nextLong(FAST_NANOS);
+        LockSupport.parkNanos(latency);
+        instanceStats.onComplete(System.nanoTime() - start, true);
+        return instance;
+    }
+}
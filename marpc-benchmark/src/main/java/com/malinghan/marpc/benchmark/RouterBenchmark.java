@@ -0,0 +1,52 @@
+package com.malinghan.marpc.benchmark;
+
+import com.malinghan.marpc.router.GrayRouter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次调用的路由开销：数百个实例、其中少量灰度实例，多线程并发路由。
+ * 路由表在实例变更时预先划分，调用路径只有查表与一次随机数，耗时与分配量不随实例数增长。
+ *
+ * <pre>
+ * mvn -pl marpc-benchmark -am package -DskipTests
+ * java -jar marpc-benchmark/target/benchmarks.jar RouterBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouterBenchmark {
+
+    private static final String SERVICE = "com.malinghan.marpc.demo.UserService";
+
+    @Param({"10", "500"})
+    private int instanceCount;
+
+    private GrayRouter router;
+    private List<String> instances;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instances = new ArrayList<>();
+        for (int i = 0; i < instanceCount; i++) {
+            instances.add("10.0." + (i / 256) + "." + (i % 256) + ":8080");
+        }
+        router = new GrayRouter(10);
+        router.markGray(instances.get(0)).markGray(instances.get(1));
+        router.onChange(SERVICE, instances, Map.of());
+    }
+
+    @Benchmark
+    public List<String> route() {
+        return router.route(SERVICE, instances);
+    }
+}
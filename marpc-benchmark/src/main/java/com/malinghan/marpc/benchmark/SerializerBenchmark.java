@@ -0,0 +1,86 @@
+package com.malinghan.marpc.benchmark;
+
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.demo.Order;
+import com.malinghan.marpc.demo.User;
+import com.malinghan.marpc.serialization.Serializer;
+import com.malinghan.marpc.serialization.Serializers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化方式对比：json / jsonb 对 User、Order 形状的请求与响应的编解码吞吐，
+ * 每种组合的线上字节数在 Setup 时打印。
+ *
+ * <pre>
+ * mvn -pl marpc-benchmark -am package -DskipTests
+ * java -jar marpc-benchmark/target/benchmarks.jar SerializerBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({"json", "jsonb"})
+    public String serializer;
+
+    /** userRequest: getUser(User) 形状的请求；orderResponse: 单个 Order；orderListResponse: 50 个 Order 的列表 */
+    @Param({"userRequest", "orderResponse", "orderListResponse"})
+    public String payload;
+
+    private Serializer codec;
+    private Object value;
+    private Class<?> type;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = Serializers.byName(serializer);
+        switch (payload) {
+            case "userRequest" -> {
+                RpcRequest request = new RpcRequest();
+                request.setService("com.malinghan.marpc.demo.UserService");
+                request.setMethod("findById");
+                request.setMethodSign("findById@1_com.malinghan.marpc.demo.User");
+                request.setArgs(new Object[]{new User(42, "malinghan")});
+                request.setContext(Map.of("traceId", "7f3c2a9e-0b1d-4c55-9a1e-2f4e6d8c0b11"));
+                value = request;
+                type = RpcRequest.class;
+            }
+            case "orderResponse" -> {
+                value = RpcResponse.ok(new Order(1001, "mechanical keyboard", 499.0, 42));
+                type = RpcResponse.class;
+            }
+            case "orderListResponse" -> {
+                List<Order> orders = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    orders.add(new Order(1000 + i, "item-" + i, 10.5 * i, 42));
+                }
+                value = RpcResponse.ok(orders);
+                type = RpcResponse.class;
+            }
+            default -> throw new IllegalArgumentException(payload);
+        }
+        bytes = codec.serialize(value);
+        System.out.printf("%n[SerializerBenchmark] %s / %s: %d bytes%n", serializer, payload, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return codec.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return codec.deserialize(bytes, 0, bytes.length, type);
+    }
+}
@@ -0,0 +1,25 @@
+package com.malinghan.marpc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 服务接口方法级调用策略，覆盖全局的 marpc.retry 配置。
+ * 在 Consumer 端为每个方法构建调用描述符时读取一次。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface MarpcMethod {
+
+    /** 超时时间（毫秒），0 表示使用全局配置 */
+    int timeout() default 0;
+
+    /** 最大重试次数（不含首次调用），-1 表示使用全局配置 */
+    int retries() default -1;
+
+    /** 一致性哈希负载均衡的路由键取第几个参数，-1 表示未指定（默认取第一个参数） */
+    int hashArg() default -1;
+
+    /** 一致性哈希负载均衡的路由键取 RpcContext 中的哪个键，优先于 {@link #hashArg()}；上下文中没有该键时按参数取 */
+    String hashContextKey() default "";
+}
@@ -3,113 +3,210 @@ package com.malinghan.marpc.circuitbreaker;
 import com.malinghan.marpc.exception.MarpcFrameworkException;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.malinghan.marpc.exception.MarpcException.ErrorCode.CIRCUIT_BREAKER_OPEN;
 
 /**
- * 熔断器实现：滑动时间窗口 + 状态机（Closed → Open → Half-Open → Closed）。
+ * 熔断器实现：按秒分桶的滑动时间窗口 + 状态机（Closed → Open → Half-Open → Closed）。
+ *
+ * <p>窗口内调用数达到 minimumCalls 后，失败率或慢调用比例超过阈值即熔断。熔断 halfOpenInitialDelay 后进入半开，
+ * 只放行 halfOpenProbes 个探测请求：全部成功则恢复，任一失败或 halfOpenTimeout 内未完成则重新熔断 halfOpenDelay。
+ * 实例由 {@link CircuitBreakerRegistry} 按服务、方法分别创建。
  */
 @Slf4j
 public class CircuitBreaker {
 
+    /** CLOSED 状态只有一个实例，按引用 CAS */
+    private static final Phase CLOSED = new Phase(CircuitBreakerState.CLOSED, 0, 0);
+
+    private final String name;
     private final CircuitBreakerConfig config;
-    private final AtomicReference<CircuitBreakerState> state = new AtomicReference<>(CircuitBreakerState.CLOSED);
-    private final AtomicInteger failureCount = new AtomicInteger(0);
-    private final AtomicLong lastFailureTime = new AtomicLong(0);
-    private final AtomicLong openTime = new AtomicLong(0);
+    private final long slowCallNanos;
+    private final SlidingWindow window;
+    /** 当前状态及其截止时间、探测名额，整体替换，避免多个字段分别更新时的竞态 */
+    private final AtomicReference<Phase> phase = new AtomicReference<>(CLOSED);
 
     public CircuitBreaker(CircuitBreakerConfig config) {
+        this("global", config);
+    }
+
+    public CircuitBreaker(String name, CircuitBreakerConfig config) {
+        this.name = name;
         this.config = config;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDuration());
+        this.window = new SlidingWindow(config.getWindowSize(), 1000);
     }
 
     /**
-     * 调用前检查：如果熔断器打开，抛出异常快速失败。
+     * 调用前检查：熔断器打开或半开探测名额已满时抛出异常快速失败。
+     * 放行的调用必须以 {@link #onSuccess}、{@link #onFailure} 或 {@link #release} 之一结束。
      */
     public void preCall() {
         if (!config.isEnabled()) return;
 
-        CircuitBreakerState currentState = state.get();
+        while (true) {
+            Phase current = phase.get();
+            if (current == CLOSED) return;
+            long now = System.currentTimeMillis();
 
-        if (currentState == CircuitBreakerState.OPEN) {
-            long elapsed = System.currentTimeMillis() - openTime.get();
-            if (elapsed >= config.getHalfOpenInitialDelay()) {
-                // 进入半开状态
-                if (state.compareAndSet(CircuitBreakerState.OPEN, CircuitBreakerState.HALF_OPEN)) {
-                    log.info("[CircuitBreaker] 进入 HALF_OPEN 状态，允许探测请求");
+            if (current.state == CircuitBreakerState.OPEN) {
+                long remaining = current.until - now;
+                if (remaining > 0) {
+                    throw new MarpcFrameworkException(CIRCUIT_BREAKER_OPEN,
+                            "熔断器已打开，快速失败（" + name + "，剩余 " + remaining + "ms）");
                 }
-            } else {
-                throw new MarpcFrameworkException(CIRCUIT_BREAKER_OPEN,
-                        "熔断器已打开，快速失败（剩余 " + (config.getHalfOpenInitialDelay() - elapsed) + "ms）");
+                // 只有切换成功的线程发放探测名额，它自己占用其中一个
+                Phase halfOpen = new Phase(CircuitBreakerState.HALF_OPEN,
+                        now + config.getHalfOpenTimeout(), config.getHalfOpenProbes() - 1);
+                if (phase.compareAndSet(current, halfOpen)) {
+                    log.info("[CircuitBreaker] {} 进入 HALF_OPEN 状态，允许 {} 个探测请求", name, config.getHalfOpenProbes());
+                    return;
+                }
+                continue;
             }
+
+            // 半开：有名额才放行
+            if (current.acquire()) return;
+            if (now - current.until >= 0) {
+                // 探测迟迟没有结果，按探测失败处理
+                if (phase.compareAndSet(current, open(now + config.getHalfOpenDelay()))) {
+                    log.warn("[CircuitBreaker] {} 半开探测超时，重新进入 OPEN 状态 {}ms", name, config.getHalfOpenDelay());
+                }
+                continue;
+            }
+            throw new MarpcFrameworkException(CIRCUIT_BREAKER_OPEN,
+                    "熔断器半开，探测请求已满，快速失败（" + name + "）");
         }
     }
 
     /**
-     * 调用成功：重置失败计数，Half-Open → Closed。
+     * 放行后未发出请求即中止（如没有可用实例），归还半开探测名额，不计入窗口。
      */
+    public void release() {
+        if (!config.isEnabled()) return;
+        Phase current = phase.get();
+        if (current.state == CircuitBreakerState.HALF_OPEN) {
+            current.release(config.getHalfOpenProbes());
+        }
+    }
+
+    /** 调用成功（耗时未知，不参与慢调用统计） */
     public void onSuccess() {
+        onSuccess(0);
+    }
+
+    /**
+     * 调用成功：CLOSED 下计入窗口，HALF_OPEN 下探测全部成功后恢复 CLOSED。
+     */
+    public void onSuccess(long durationNanos) {
         if (!config.isEnabled()) return;
 
-        CircuitBreakerState currentState = state.get();
-        if (currentState == CircuitBreakerState.HALF_OPEN) {
-            if (state.compareAndSet(CircuitBreakerState.HALF_OPEN, CircuitBreakerState.CLOSED)) {
-                failureCount.set(0);
-                log.info("[CircuitBreaker] 探测成功，恢复 CLOSED 状态");
+        Phase current = phase.get();
+        if (current.state == CircuitBreakerState.HALF_OPEN) {
+            if (current.successes.incrementAndGet() >= config.getHalfOpenProbes()
+                    && phase.compareAndSet(current, CLOSED)) {
+                window.reset();
+                log.info("[CircuitBreaker] {} 探测成功，恢复 CLOSED 状态", name);
             }
-        } else if (currentState == CircuitBreakerState.CLOSED) {
-            // 成功调用重置失败计数
-            failureCount.set(0);
+        } else if (current == CLOSED) {
+            boolean slow = durationNanos >= slowCallNanos;
+            long now = System.currentTimeMillis();
+            window.record(now, false, slow);
+            // 只有慢调用可能让比例上升，普通成功无需判断
+            if (slow) evaluate(now);
         }
     }
 
+    /** 调用失败（耗时未知） */
+    public void onFailure() {
+        onFailure(0);
+    }
+
     /**
-     * 调用失败：累计失败次数，达到阈值时 Closed → Open，Half-Open → Open。
+     * 调用失败：CLOSED 下计入窗口并判断是否熔断，HALF_OPEN 下重新熔断。
      */
-    public void onFailure() {
+    public void onFailure(long durationNanos) {
         if (!config.isEnabled()) return;
 
         long now = System.currentTimeMillis();
-        long lastFail = lastFailureTime.get();
-
-        // 滑动窗口：超过窗口时间则重置计数
-        if (now - lastFail > config.getWindowSize() * 1000L) {
-            failureCount.set(0);
+        Phase current = phase.get();
+        if (current.state == CircuitBreakerState.HALF_OPEN) {
+            if (phase.compareAndSet(current, open(now + config.getHalfOpenDelay()))) {
+                log.warn("[CircuitBreaker] {} 探测失败，重新进入 OPEN 状态 {}ms", name, config.getHalfOpenDelay());
+            }
+        } else if (current == CLOSED) {
+            window.record(now, true, durationNanos >= slowCallNanos);
+            evaluate(now);
         }
+    }
 
-        lastFailureTime.set(now);
-        int failures = failureCount.incrementAndGet();
-
-        CircuitBreakerState currentState = state.get();
-
-        if (currentState == CircuitBreakerState.CLOSED && failures >= config.getFaultLimit()) {
-            if (state.compareAndSet(CircuitBreakerState.CLOSED, CircuitBreakerState.OPEN)) {
-                openTime.set(now);
-                log.warn("[CircuitBreaker] 失败次数达到 {}，进入 OPEN 状态", failures);
-            }
-        } else if (currentState == CircuitBreakerState.HALF_OPEN) {
-            if (state.compareAndSet(CircuitBreakerState.HALF_OPEN, CircuitBreakerState.OPEN)) {
-                openTime.set(now);
-                log.warn("[CircuitBreaker] 探测失败，重新进入 OPEN 状态");
-            }
+    private void evaluate(long now) {
+        SlidingWindow.Counts counts = window.counts(now);
+        if (counts.calls() < config.getMinimumCalls()) return;
+        boolean failureTrip = counts.failures() * 100 >= counts.calls() * config.getFailureRateThreshold();
+        boolean slowTrip = counts.slow() * 100 >= counts.calls() * config.getSlowCallRateThreshold();
+        if (!failureTrip && !slowTrip) return;
+        if (phase.compareAndSet(CLOSED, open(now + config.getHalfOpenInitialDelay()))) {
+            log.warn("[CircuitBreaker] {} 窗口内 {} 次调用，失败 {}，慢调用 {}，进入 OPEN 状态",
+                    name, counts.calls(), counts.failures(), counts.slow());
         }
     }
 
+    public String getName() {
+        return name;
+    }
+
     public CircuitBreakerState getState() {
-        return state.get();
+        return phase.get().state;
     }
 
+    /** 当前窗口内的失败次数 */
     public int getFailureCount() {
-        return failureCount.get();
+        return (int) window.counts(System.currentTimeMillis()).failures();
     }
 
     /** 重置熔断器（用于测试） */
     public void reset() {
-        state.set(CircuitBreakerState.CLOSED);
-        failureCount.set(0);
-        lastFailureTime.set(0);
-        openTime.set(0);
+        phase.set(CLOSED);
+        window.reset();
+    }
+
+    private static Phase open(long until) {
+        return new Phase(CircuitBreakerState.OPEN, until, 0);
+    }
+
+    /**
+     * 一段状态：OPEN 时 until 为打开截止时间，HALF_OPEN 时为探测截止时间。
+     * 探测名额与成功数随状态对象一起创建，新一轮半开不会复用上一轮的计数。
+     */
+    private static final class Phase {
+        final CircuitBreakerState state;
+        final long until;
+        final AtomicInteger permits;
+        final AtomicInteger successes = new AtomicInteger();
+
+        Phase(CircuitBreakerState state, long until, int permits) {
+            this.state = state;
+            this.until = until;
+            this.permits = new AtomicInteger(permits);
+        }
+
+        boolean acquire() {
+            while (true) {
+                int n = permits.get();
+                if (n <= 0) return false;
+                if (permits.compareAndSet(n, n - 1)) return true;
+            }
+        }
+
+        void release(int max) {
+            while (true) {
+                int n = permits.get();
+                if (n >= max || permits.compareAndSet(n, n + 1)) return;
+            }
+        }
     }
 }
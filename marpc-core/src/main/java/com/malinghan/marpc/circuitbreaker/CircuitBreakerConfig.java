@@ -11,8 +11,23 @@ public class CircuitBreakerConfig {
     /** 是否启用熔断器，默认 false */
     private boolean enabled = false;
 
-    /** 触发熔断的失败次数阈值，默认 5 */
-    private int faultLimit = 5;
+    /** 熔断粒度：method（服务 + 方法）、service、global，默认 method */
+    private String scope = "method";
+
+    /** 滑动窗口大小（秒），按秒分桶，默认 10 秒 */
+    private int windowSize = 10;
+
+    /** 窗口内调用数达到该值才判断是否熔断，避免低流量下偶发失败触发熔断，默认 20 */
+    private int minimumCalls = 20;
+
+    /** 窗口内失败率（百分比）达到该值时熔断，默认 50 */
+    private int failureRateThreshold = 50;
+
+    /** 调用耗时达到该值（毫秒）视为慢调用，默认 1000ms */
+    private long slowCallDuration = 1000;
+
+    /** 窗口内慢调用比例（百分比）达到该值时熔断，默认 100 */
+    private int slowCallRateThreshold = 100;
 
     /** 熔断后首次进入半开状态的延迟（毫秒），默认 10000ms */
     private long halfOpenInitialDelay = 10000;
@@ -20,17 +35,22 @@ public class CircuitBreakerConfig {
     /** 半开状态下探测失败后再次进入半开的延迟（毫秒），默认 5000ms */
     private long halfOpenDelay = 5000;
 
-    /** 滑动窗口大小（秒），默认 10 秒 */
-    private int windowSize = 10;
+    /** 半开状态允许的探测请求数，全部成功后恢复 CLOSED，默认 3 */
+    private int halfOpenProbes = 3;
+
+    /** 半开状态的最长持续时间（毫秒），超时仍未完成探测则重新熔断，默认 30000ms */
+    private long halfOpenTimeout = 30000;
 
     public static CircuitBreakerConfig disabled() {
         return new CircuitBreakerConfig();
     }
 
-    public static CircuitBreakerConfig of(int faultLimit, long halfOpenInitialDelay, long halfOpenDelay) {
+    public static CircuitBreakerConfig of(int minimumCalls, int failureRateThreshold,
+                                          long halfOpenInitialDelay, long halfOpenDelay) {
         CircuitBreakerConfig config = new CircuitBreakerConfig();
         config.setEnabled(true);
-        config.setFaultLimit(faultLimit);
+        config.setMinimumCalls(minimumCalls);
+        config.setFailureRateThreshold(failureRateThreshold);
         config.setHalfOpenInitialDelay(halfOpenInitialDelay);
         config.setHalfOpenDelay(halfOpenDelay);
         return config;
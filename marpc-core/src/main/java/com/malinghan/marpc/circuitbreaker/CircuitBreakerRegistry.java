@@ -0,0 +1,70 @@
+package com.malinghan.marpc.circuitbreaker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 熔断器注册表：按配置的粒度（方法 / 服务 / 全局）为每个调用目标提供独立的熔断器，
+ * 一个方法或服务的故障不会让其他服务的调用一起快速失败。
+ *
+ * <p>查找为两级 Map（服务 -> 方法签名），不拼接字符串；未启用时所有调用共用一个不做任何事的熔断器。
+ */
+@Slf4j
+public class CircuitBreakerRegistry {
+
+    private final CircuitBreakerConfig config;
+    private final String scope;
+    /** 全局粒度或未启用时使用的熔断器 */
+    private final CircuitBreaker shared;
+    /** 服务名 -> 方法签名（服务粒度时为空串）-> 熔断器 */
+    private final Map<String, Map<String, CircuitBreaker>> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(CircuitBreakerConfig config) {
+        this(config, new CircuitBreaker(config));
+    }
+
+    private CircuitBreakerRegistry(CircuitBreakerConfig config, CircuitBreaker shared) {
+        this.config = config;
+        this.scope = config.getScope() == null ? "method" : config.getScope().toLowerCase();
+        this.shared = shared;
+    }
+
+    /** 所有调用共用同一个熔断器 */
+    public static CircuitBreakerRegistry shared(CircuitBreaker breaker) {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setScope("global");
+        return new CircuitBreakerRegistry(config, breaker);
+    }
+
+    public CircuitBreaker get(String service, String methodSign) {
+        if ("global".equals(scope) || !config.isEnabled()) return shared;
+        String method = "service".equals(scope) ? "" : methodSign;
+        Map<String, CircuitBreaker> methods = breakers.get(service);
+        if (methods == null) {
+            methods = breakers.computeIfAbsent(service, k -> new ConcurrentHashMap<>());
+        }
+        CircuitBreaker breaker = methods.get(method);
+        if (breaker == null) {
+            breaker = methods.computeIfAbsent(method, m -> {
+                String name = m.isEmpty() ? service : service + "#" + m;
+                log.info("[CircuitBreakerRegistry] 创建熔断器: {}", name);
+                return new CircuitBreaker(name, config);
+            });
+        }
+        return breaker;
+    }
+
+    /** 已创建的全部熔断器，用于监控与排查 */
+    public List<CircuitBreaker> getAll() {
+        List<CircuitBreaker> all = new ArrayList<>();
+        if ("global".equals(scope) || !config.isEnabled()) {
+            all.add(shared);
+        }
+        breakers.values().forEach(methods -> all.addAll(methods.values()));
+        return all;
+    }
+}
@@ -0,0 +1,77 @@
+package com.malinghan.marpc.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按时间分桶的环形滑动窗口：每个桶覆盖一段固定时长，记录调用、失败、慢调用数。
+ *
+ * <p>记录为一次分段计数器自增；桶过期时以 CAS 换入新桶，无锁。过期瞬间并发写入旧桶的少量计数可能丢失，
+ * 对熔断判断的影响可以忽略。
+ */
+final class SlidingWindow {
+
+    private final int size;
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    SlidingWindow(int size, long bucketMillis) {
+        this.size = Math.max(size, 1);
+        this.bucketMillis = bucketMillis;
+        this.buckets = new AtomicReferenceArray<>(this.size);
+    }
+
+    void record(long nowMillis, boolean failure, boolean slow) {
+        Bucket bucket = bucket(nowMillis / bucketMillis);
+        bucket.calls.increment();
+        if (failure) bucket.failures.increment();
+        if (slow) bucket.slow.increment();
+    }
+
+    /** 窗口内（当前桶及之前 size - 1 个桶）的累计 */
+    Counts counts(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        long calls = 0, failures = 0, slow = 0;
+        for (int i = 0; i < size; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch > epoch - size && bucket.epoch <= epoch) {
+                calls += bucket.calls.sum();
+                failures += bucket.failures.sum();
+                slow += bucket.slow.sum();
+            }
+        }
+        return new Counts(calls, failures, slow);
+    }
+
+    void reset() {
+        for (int i = 0; i < size; i++) {
+            buckets.set(i, null);
+        }
+    }
+
+    private Bucket bucket(long epoch) {
+        int idx = (int) Math.floorMod(epoch, (long) size);
+        Bucket bucket = buckets.get(idx);
+        while (bucket == null || bucket.epoch < epoch) {
+            Bucket fresh = new Bucket(epoch);
+            if (buckets.compareAndSet(idx, bucket, fresh)) return fresh;
+            bucket = buckets.get(idx);
+        }
+        // 时钟回拨时沿用较新的桶
+        return bucket;
+    }
+
+    record Counts(long calls, long failures, long slow) {
+    }
+
+    private static final class Bucket {
+        final long epoch;
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder slow = new LongAdder();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -1,24 +1,34 @@
 package com.malinghan.marpc.config;
 
-import com.malinghan.marpc.circuitbreaker.CircuitBreaker;
 import com.malinghan.marpc.circuitbreaker.CircuitBreakerConfig;
+import com.malinghan.marpc.circuitbreaker.CircuitBreakerRegistry;
 import com.malinghan.marpc.consumer.ConsumerBootstrap;
 import com.malinghan.marpc.filter.CacheFilter;
 import com.malinghan.marpc.filter.Filter;
 import com.malinghan.marpc.filter.MockFilter;
+import com.malinghan.marpc.loadbalance.ConsistentHashLoadBalancer;
+import com.malinghan.marpc.loadbalance.LeastActiveLoadBalancer;
 import com.malinghan.marpc.loadbalance.LoadBalancer;
+import com.malinghan.marpc.loadbalance.PeakEwmaLoadBalancer;
 import com.malinghan.marpc.loadbalance.RandomLoadBalancer;
 import com.malinghan.marpc.loadbalance.RoundRobinLoadBalancer;
+import com.malinghan.marpc.loadbalance.WeightedRoundRobinLoadBalancer;
+import com.malinghan.marpc.outlier.OutlierDetector;
+import com.malinghan.marpc.outlier.OutlierDetectorConfig;
 import com.malinghan.marpc.provider.ProviderBootstrap;
+import com.malinghan.marpc.provider.ProviderExecutor;
+import com.malinghan.marpc.provider.ProviderExecutorConfig;
 import com.malinghan.marpc.registry.RegistryCenter;
 import com.malinghan.marpc.registry.ZkRegistryCenter;
 import com.malinghan.marpc.registry.MaregistryCenter;
 import com.malinghan.marpc.retry.RetryPolicy;
 import com.malinghan.marpc.router.GrayRouter;
+import com.malinghan.marpc.router.LocalityRouter;
 import com.malinghan.marpc.router.Router;
 import com.malinghan.marpc.transport.MarpcTransport;
 import com.malinghan.marpc.transport.OkHttpTransport;
 import com.malinghan.marpc.transport.RpcTransport;
+import com.malinghan.marpc.transport.netty.NettyConfig;
 import com.malinghan.marpc.transport.netty.NettyRpcClient;
 import com.malinghan.marpc.transport.netty.NettyRpcServer;
 import lombok.extern.slf4j.Slf4j;
@@ -28,8 +38,13 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Configuration
@@ -56,6 +71,13 @@ public class MarpcConfig {
     @Value("${marpc.loadbalancer:roundrobin}")
     private String lbStrategy;
 
+    /** 本实例的权重与预热时长（毫秒），随注册下发给 Consumer，供 weighted 负载均衡使用 */
+    @Value("${marpc.provider.weight:100}")
+    private int providerWeight;
+
+    @Value("${marpc.provider.warmupMillis:60000}")
+    private long providerWarmupMillis;
+
     @Value("${marpc.filter.cache.enabled:false}")
     private boolean cacheEnabled;
 
@@ -74,8 +96,27 @@ public class MarpcConfig {
     @Value("${marpc.circuitbreaker.enabled:false}")
     private boolean circuitBreakerEnabled;
 
-    @Value("${marpc.circuitbreaker.faultLimit:5}")
-    private int faultLimit;
+    /** 熔断粒度 - 可选: method | service | global */
+    @Value("${marpc.circuitbreaker.scope:method}")
+    private String circuitBreakerScope;
+
+    @Value("${marpc.circuitbreaker.minimumCalls:20}")
+    private int minimumCalls;
+
+    @Value("${marpc.circuitbreaker.failureRateThreshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${marpc.circuitbreaker.slowCallDuration:1000}")
+    private long slowCallDuration;
+
+    @Value("${marpc.circuitbreaker.slowCallRateThreshold:100}")
+    private int slowCallRateThreshold;
+
+    @Value("${marpc.circuitbreaker.halfOpenProbes:3}")
+    private int halfOpenProbes;
+
+    @Value("${marpc.circuitbreaker.halfOpenTimeout:30000}")
+    private long halfOpenTimeout;
 
     @Value("${marpc.circuitbreaker.halfOpenInitialDelay:10000}")
     private long halfOpenInitialDelay;
@@ -92,6 +133,47 @@ public class MarpcConfig {
     @Value("${marpc.router.gray.ratio:0}")
     private int grayRatio;
 
+    /** 本进程所在可用区：Provider 随注册下发，Consumer 用于就近路由 */
+    @Value("${marpc.zone:}")
+    private String zone;
+
+    @Value("${marpc.router.locality.enabled:false}")
+    private boolean localityRouterEnabled;
+
+    /** 本机地址，为空时取 InetAddress.getLocalHost() */
+    @Value("${marpc.router.locality.host:}")
+    private String localityHost;
+
+    @Value("${marpc.router.locality.failoverThreshold:0.7}")
+    private double localityFailoverThreshold;
+
+    @Value("${marpc.outlier.enabled:false}")
+    private boolean outlierEnabled;
+
+    @Value("${marpc.outlier.interval:5000}")
+    private long outlierInterval;
+
+    @Value("${marpc.outlier.consecutiveFailures:5}")
+    private int outlierConsecutiveFailures;
+
+    @Value("${marpc.outlier.failureRatePercent:50}")
+    private int outlierFailureRatePercent;
+
+    @Value("${marpc.outlier.minRequests:20}")
+    private int outlierMinRequests;
+
+    @Value("${marpc.outlier.latencyFactor:3.0}")
+    private double outlierLatencyFactor;
+
+    @Value("${marpc.outlier.baseEjectionTime:30000}")
+    private long outlierBaseEjectionTime;
+
+    @Value("${marpc.outlier.maxEjectionTime:300000}")
+    private long outlierMaxEjectionTime;
+
+    @Value("${marpc.outlier.maxEjectionPercent:30}")
+    private int outlierMaxEjectionPercent;
+
     @Value("${marpc.transport:okhttp}")
     private String transportType;
 
@@ -101,6 +183,83 @@ public class MarpcConfig {
     @Value("${marpc.netty.server.enabled:false}")
     private boolean nettyServerEnabled;
 
+    @Value("${marpc.netty.client.connections:1}")
+    private int nettyConnections;
+
+    @Value("${marpc.netty.client.select:roundrobin}")
+    private String nettyConnectionSelect;
+
+    @Value("${marpc.netty.flush.windowMicros:0}")
+    private long flushWindowMicros;
+
+    @Value("${marpc.netty.flush.maxBytes:65536}")
+    private int flushMaxBytes;
+
+    @Value("${marpc.netty.flush.maxFrames:64}")
+    private int flushMaxFrames;
+
+    @Value("${marpc.netty.native:true}")
+    private boolean nettyNative;
+
+    @Value("${marpc.netty.ioThreads:0}")
+    private int nettyIoThreads;
+
+    @Value("${marpc.netty.server.reusePort:false}")
+    private boolean nettyReusePort;
+
+    @Value("${marpc.netty.server.acceptors:1}")
+    private int nettyAcceptors;
+
+    @Value("${marpc.netty.tcpNoDelay:true}")
+    private boolean tcpNoDelay;
+
+    @Value("${marpc.netty.tcpQuickAck:false}")
+    private boolean tcpQuickAck;
+
+    @Value("${marpc.netty.sendBufferSize:0}")
+    private int sendBufferSize;
+
+    @Value("${marpc.netty.receiveBufferSize:0}")
+    private int receiveBufferSize;
+
+    @Value("${marpc.netty.compression:none}")
+    private String nettyCompression;
+
+    @Value("${marpc.netty.compressThreshold:2048}")
+    private int nettyCompressThreshold;
+
+    @Value("${marpc.netty.maxDecompressedSize:16777216}")
+    private int nettyMaxDecompressedSize;
+
+    @Value("${marpc.netty.serialization.default:json}")
+    private String nettySerializer;
+
+    /** 按服务覆盖序列化方式，格式：服务接口全限定名=序列化名称，逗号分隔 */
+    @Value("${marpc.netty.serialization.services:}")
+    private List<String> nettyServiceSerializers;
+
+    @Value("${marpc.provider.executor.mode:pool}")
+    private String executorMode;
+
+    /** 0 表示使用默认值（CPU 核数 * 2） */
+    @Value("${marpc.provider.executor.coreThreads:0}")
+    private int executorCoreThreads;
+
+    @Value("${marpc.provider.executor.maxThreads:200}")
+    private int executorMaxThreads;
+
+    @Value("${marpc.provider.executor.queueCapacity:1000}")
+    private int executorQueueCapacity;
+
+    @Value("${marpc.provider.executor.isolatedServices:}")
+    private Set<String> isolatedServices;
+
+    @Value("${marpc.provider.executor.isolatedThreads:16}")
+    private int isolatedThreads;
+
+    @Value("${marpc.provider.executor.isolatedQueueCapacity:200}")
+    private int isolatedQueueCapacity;
+
     @Bean
     public RegistryCenter registryCenter() {
         RegistryCenter rc;
@@ -118,6 +277,10 @@ public class MarpcConfig {
     @Bean
     public LoadBalancer loadBalancer() {
         if ("random".equalsIgnoreCase(lbStrategy)) return new RandomLoadBalancer();
+        if ("leastactive".equalsIgnoreCase(lbStrategy)) return new LeastActiveLoadBalancer();
+        if ("peakewma".equalsIgnoreCase(lbStrategy)) return new PeakEwmaLoadBalancer();
+        if ("weighted".equalsIgnoreCase(lbStrategy)) return new WeightedRoundRobinLoadBalancer();
+        if ("consistenthash".equalsIgnoreCase(lbStrategy)) return new ConsistentHashLoadBalancer();
         return new RoundRobinLoadBalancer();
     }
 
@@ -151,8 +314,26 @@ public class MarpcConfig {
     }
 
     @Bean
-    public List<Router> routerChain(GrayRouter grayRouter) {
+    public LocalityRouter localityRouter() {
+        String host = localityHost;
+        if (host.isBlank()) {
+            try {
+                host = InetAddress.getLocalHost().getHostAddress();
+            } catch (UnknownHostException e) {
+                log.warn("[MarpcConfig] 获取本机地址失败，就近路由只识别 localhost", e);
+                host = "127.0.0.1";
+            }
+        }
+        return new LocalityRouter(host, zone, localityFailoverThreshold);
+    }
+
+    @Bean
+    public List<Router> routerChain(GrayRouter grayRouter, LocalityRouter localityRouter) {
         List<Router> chain = new ArrayList<>();
+        if (localityRouterEnabled) {
+            chain.add(localityRouter);
+            log.info("[MarpcConfig] LocalityRouter 已启用，可用区: {}", zone);
+        }
         if (grayRouterEnabled) {
             chain.add(grayRouter);
             log.info("[MarpcConfig] GrayRouter 已启用，灰度比例: {}%", grayRatio);
@@ -170,36 +351,114 @@ public class MarpcConfig {
     }
 
     @Bean
-    public CircuitBreaker circuitBreaker() {
+    public CircuitBreakerRegistry circuitBreakerRegistry() {
         CircuitBreakerConfig config = new CircuitBreakerConfig();
         config.setEnabled(circuitBreakerEnabled);
-        config.setFaultLimit(faultLimit);
+        config.setScope(circuitBreakerScope);
+        config.setWindowSize(windowSize);
+        config.setMinimumCalls(minimumCalls);
+        config.setFailureRateThreshold(failureRateThreshold);
+        config.setSlowCallDuration(slowCallDuration);
+        config.setSlowCallRateThreshold(slowCallRateThreshold);
         config.setHalfOpenInitialDelay(halfOpenInitialDelay);
         config.setHalfOpenDelay(halfOpenDelay);
-        config.setWindowSize(windowSize);
-        return new CircuitBreaker(config);
+        config.setHalfOpenProbes(halfOpenProbes);
+        config.setHalfOpenTimeout(halfOpenTimeout);
+        return new CircuitBreakerRegistry(config);
+    }
+
+    @Bean
+    public OutlierDetector outlierDetector(LocalityRouter localityRouter) {
+        OutlierDetectorConfig config = new OutlierDetectorConfig();
+        config.setEnabled(outlierEnabled);
+        config.setInterval(outlierInterval);
+        config.setConsecutiveFailures(outlierConsecutiveFailures);
+        config.setFailureRatePercent(outlierFailureRatePercent);
+        config.setMinRequests(outlierMinRequests);
+        config.setLatencyFactor(outlierLatencyFactor);
+        config.setBaseEjectionTime(outlierBaseEjectionTime);
+        config.setMaxEjectionTime(outlierMaxEjectionTime);
+        config.setMaxEjectionPercent(outlierMaxEjectionPercent);
+        OutlierDetector detector = new OutlierDetector(config);
+        // 摘除的实例同时视为就近路由中该服务的不健康实例，本地健康占比不足时降级
+        detector.addListener((service, instance, ejected) -> localityRouter.setHealthy(service, instance, !ejected));
+        if (outlierEnabled) {
+            log.info("[MarpcConfig] 离群检测已启用: {}", config);
+        }
+        return detector;
     }
 
     @Bean
     public ProviderBootstrap providerBootstrap(ApplicationContext context,
                                                RegistryCenter registryCenter) {
-        return new ProviderBootstrap(context, registryCenter, providerInstance);
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(RegistryCenter.META_WEIGHT, String.valueOf(providerWeight));
+        metadata.put(RegistryCenter.META_WARMUP, String.valueOf(providerWarmupMillis));
+        if (!zone.isBlank()) {
+            metadata.put(RegistryCenter.META_ZONE, zone);
+        }
+        return new ProviderBootstrap(context, registryCenter, providerInstance, metadata);
     }
 
     @Bean
     public RpcTransport rpcTransport() {
         if ("netty".equalsIgnoreCase(transportType)) {
             log.info("[MarpcConfig] 使用 Netty 传输");
-            return new NettyRpcClient(timeout, nettyPort);
+            return new NettyRpcClient(timeout, nettyConfig());
         }
         log.info("[MarpcConfig] 使用 OkHttp 传输");
         return new OkHttpTransport(timeout);
     }
 
+    private NettyConfig nettyConfig() {
+        NettyConfig config = new NettyConfig();
+        config.setPort(nettyPort);
+        config.setConnectionsPerInstance(nettyConnections);
+        config.setConnectionSelect(nettyConnectionSelect);
+        config.setFlushWindowMicros(flushWindowMicros);
+        config.setFlushMaxBytes(flushMaxBytes);
+        config.setFlushMaxFrames(flushMaxFrames);
+        config.setNativeTransport(nettyNative);
+        config.setIoThreads(nettyIoThreads);
+        config.setReusePort(nettyReusePort);
+        config.setAcceptorThreads(nettyAcceptors);
+        config.setTcpNoDelay(tcpNoDelay);
+        config.setTcpQuickAck(tcpQuickAck);
+        config.setSendBufferSize(sendBufferSize);
+        config.setReceiveBufferSize(receiveBufferSize);
+        config.setCompression(nettyCompression);
+        config.setCompressThreshold(nettyCompressThreshold);
+        config.setMaxDecompressedSize(nettyMaxDecompressedSize);
+        config.setSerializer(nettySerializer);
+        for (String entry : nettyServiceSerializers) {
+            int eq = entry.indexOf('=');
+            if (eq > 0) {
+                config.getServiceSerializers().put(entry.substring(0, eq).trim(), entry.substring(eq + 1).trim());
+            }
+        }
+        return config;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "marpc.netty.server.enabled", havingValue = "true")
+    public ProviderExecutor providerExecutor() {
+        ProviderExecutorConfig config = new ProviderExecutorConfig();
+        config.setMode(executorMode);
+        if (executorCoreThreads > 0) {
+            config.setCoreThreads(executorCoreThreads);
+        }
+        config.setMaxThreads(executorMaxThreads);
+        config.setQueueCapacity(executorQueueCapacity);
+        config.setIsolatedServices(isolatedServices);
+        config.setIsolatedThreads(isolatedThreads);
+        config.setIsolatedQueueCapacity(isolatedQueueCapacity);
+        return new ProviderExecutor(config);
+    }
+
     @Bean
     @ConditionalOnProperty(name = "marpc.netty.server.enabled", havingValue = "true")
-    public NettyRpcServer nettyRpcServer(ProviderBootstrap providerBootstrap) {
-        return new NettyRpcServer(providerBootstrap, nettyPort);
+    public NettyRpcServer nettyRpcServer(ProviderBootstrap providerBootstrap, ProviderExecutor providerExecutor) {
+        return new NettyRpcServer(providerBootstrap, providerExecutor, nettyConfig());
     }
 
     @Bean
@@ -208,12 +467,13 @@ public class MarpcConfig {
                                                LoadBalancer loadBalancer,
                                                List<Filter> filterChain,
                                                RetryPolicy retryPolicy,
-                                               CircuitBreaker circuitBreaker,
+                                               CircuitBreakerRegistry circuitBreakerRegistry,
                                                List<Router> routerChain,
                                                RpcTransport rpcTransport,
+                                               OutlierDetector outlierDetector,
                                                ProviderBootstrap providerBootstrap) {
         return new ConsumerBootstrap(context, registryCenter, loadBalancer, filterChain,
-                retryPolicy, circuitBreaker, routerChain, rpcTransport);
+                retryPolicy, circuitBreakerRegistry, routerChain, rpcTransport, outlierDetector);
     }
 
     @Bean
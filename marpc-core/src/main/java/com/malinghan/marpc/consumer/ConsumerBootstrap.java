@@ -2,9 +2,13 @@ package com.malinghan.marpc.consumer;
 
 import com.malinghan.marpc.annotation.MarpcConsumer;
 import com.malinghan.marpc.circuitbreaker.CircuitBreaker;
+import com.malinghan.marpc.circuitbreaker.CircuitBreakerRegistry;
 import com.malinghan.marpc.exception.MarpcFrameworkException;
 import com.malinghan.marpc.filter.Filter;
 import com.malinghan.marpc.loadbalance.LoadBalancer;
+import com.malinghan.marpc.loadbalance.ServiceStats;
+import com.malinghan.marpc.outlier.OutlierDetector;
+import com.malinghan.marpc.outlier.OutlierDetectorConfig;
 import com.malinghan.marpc.registry.RegistryCenter;
 import com.malinghan.marpc.retry.RetryPolicy;
 import com.malinghan.marpc.router.Router;
@@ -25,27 +29,42 @@ import static com.malinghan.marpc.exception.MarpcException.ErrorCode.*;
 @Slf4j
 public class ConsumerBootstrap implements InitializingBean {
 
+    /** 编译期生成的 Stub 类名后缀，与接口同包，见 marpc-processor */
+    public static final String STUB_SUFFIX = "_MarpcStub";
+
     private final ApplicationContext context;
     private final RegistryCenter registryCenter;
     private final LoadBalancer loadBalancer;
     private final List<Filter> filters;
     private final RetryPolicy retryPolicy;
-    private final CircuitBreaker circuitBreaker;
+    private final CircuitBreakerRegistry circuitBreakers;
     private final List<Router> routers;
     private final RpcTransport transport;
+    private final OutlierDetector outlierDetector;
     private final Map<String, List<String>> serviceInstances = new ConcurrentHashMap<>();
+    /** 各服务的实例运行时统计，调用链路更新，负载均衡读取 */
+    private final Map<String, ServiceStats> serviceStats = new ConcurrentHashMap<>();
 
     public ConsumerBootstrap(ApplicationContext context, RegistryCenter registryCenter,
                              LoadBalancer loadBalancer, List<Filter> filters,
                              RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
                              List<Router> routers, RpcTransport transport) {
+        this(context, registryCenter, loadBalancer, filters, retryPolicy, CircuitBreakerRegistry.shared(circuitBreaker),
+                routers, transport, new OutlierDetector(OutlierDetectorConfig.disabled()));
+    }
+
+    public ConsumerBootstrap(ApplicationContext context, RegistryCenter registryCenter,
+                             LoadBalancer loadBalancer, List<Filter> filters,
+                             RetryPolicy retryPolicy, CircuitBreakerRegistry circuitBreakers,
+                             List<Router> routers, RpcTransport transport, OutlierDetector outlierDetector) {
         this.context = context;
         this.registryCenter = registryCenter;
         this.loadBalancer = loadBalancer;
         this.filters = filters;
         this.retryPolicy = retryPolicy;
-        this.circuitBreaker = circuitBreaker;
+        this.circuitBreakers = circuitBreakers;
         this.transport = transport;
+        this.outlierDetector = outlierDetector;
         // 按 order 排序
         this.routers = routers.stream()
                 .sorted((a, b) -> Integer.compare(a.order(), b.order()))
@@ -73,12 +92,13 @@ public class ConsumerBootstrap implements InitializingBean {
             String service = iface.getCanonicalName();
 
             List<String> instances = registryCenter.fetchAll(service);
-            serviceInstances.put(service, instances);
+            // 启动时已在线的实例不预热
+            refresh(service, instances, false);
             log.info("[ConsumerBootstrap] 发现实例: {} -> {}", service, instances);
 
             registryCenter.subscribe(service, newInstances -> {
                 log.info("[ConsumerBootstrap] 实例变更: {} -> {}", service, newInstances);
-                serviceInstances.put(service, newInstances);
+                refresh(service, newInstances, true);
             });
 
             field.setAccessible(true);
@@ -92,28 +112,70 @@ public class ConsumerBootstrap implements InitializingBean {
         }
     }
 
+    /**
+     * 按新的实例列表与元数据刷新统计（权重、预热）与路由器的预计算结果，最后才发布实例列表，
+     * 保证调用方拿到新列表时新实例已处于预热状态、路由结果已就绪。
+     */
+    private void refresh(String service, List<String> instances, boolean warmup) {
+        Map<String, Map<String, String>> metadata = registryCenter.fetchMetadata(service);
+        ServiceStats stats = serviceStats.computeIfAbsent(service, ServiceStats::new);
+        stats.update(instances, metadata, warmup);
+        for (Router router : routers) {
+            router.onChange(service, instances, metadata);
+        }
+        outlierDetector.onChange(service, instances, stats);
+        loadBalancer.onChange(service, instances);
+        serviceInstances.put(service, instances);
+        // 新列表发布后再释放下线实例的连接，之后的调用不会再选中它们
+        transport.onChange(service, instances);
+    }
+
+    /**
+     * 优先使用 marpc-processor 生成的 Stub（类名为接口名加 {@link #STUB_SUFFIX}），不存在时退回 JDK 动态代理。
+     */
     @SuppressWarnings("unchecked")
     private <T> T createProxy(Class<T> iface) {
+        MarpcInvocationHandler handler = createHandler(iface);
+        String stubName = stubClassName(iface);
+        try {
+            Class<?> stub = Class.forName(stubName, true, iface.getClassLoader());
+            T instance = (T) stub.getConstructor(MarpcInvocationHandler.class).newInstance(handler);
+            log.info("[ConsumerBootstrap] 使用生成的 Stub: {}", stubName);
+            return instance;
+        } catch (ClassNotFoundException e) {
+            // 未启用注解处理器，使用动态代理
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            log.warn("[ConsumerBootstrap] Stub 不可用，使用动态代理: {}", stubName, e);
+        }
+        return (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class[]{iface}, handler);
+    }
+
+    static String stubClassName(Class<?> iface) {
+        String pkg = iface.getPackageName();
+        String simple = pkg.isEmpty() ? iface.getName() : iface.getName().substring(pkg.length() + 1);
+        return (pkg.isEmpty() ? "" : pkg + ".") + simple.replace('$', '_') + STUB_SUFFIX;
+    }
+
+    private MarpcInvocationHandler createHandler(Class<?> iface) {
         String service = iface.getCanonicalName();
-        return (T) Proxy.newProxyInstance(
-                iface.getClassLoader(),
-                new Class[]{iface},
-                new MarpcInvocationHandler(iface, () -> {
-                    List<String> instances = serviceInstances.get(service);
-                    if (instances == null || instances.isEmpty()) {
-                        throw new MarpcFrameworkException(NO_AVAILABLE_INSTANCE,
-                                "no available instance for: " + service);
-                    }
-                    // 路由筛选
-                    for (Router router : routers) {
-                        instances = router.route(instances);
-                        if (instances.isEmpty()) {
-                            throw new MarpcFrameworkException(NO_AVAILABLE_INSTANCE,
-                                    "no available instance after routing for: " + service);
-                        }
-                    }
-                    return loadBalancer.choose(instances);
-                }, filters, retryPolicy, circuitBreaker, transport)
-        );
+        ServiceStats stats = serviceStats.computeIfAbsent(service, ServiceStats::new);
+        return new MarpcInvocationHandler(iface, request -> {
+            List<String> instances = serviceInstances.get(service);
+            if (instances == null || instances.isEmpty()) {
+                throw new MarpcFrameworkException(NO_AVAILABLE_INSTANCE,
+                        "no available instance for: " + service);
+            }
+            // 路由筛选
+            for (Router router : routers) {
+                instances = router.route(service, instances);
+                if (instances.isEmpty()) {
+                    throw new MarpcFrameworkException(NO_AVAILABLE_INSTANCE,
+                            "no available instance after routing for: " + service);
+                }
+            }
+            // 摘除离群实例，全部被摘除时不过滤
+            instances = outlierDetector.route(service, instances);
+            return loadBalancer.choose(request, instances, stats);
+        }, stats, filters, retryPolicy, circuitBreakers, transport);
     }
 }
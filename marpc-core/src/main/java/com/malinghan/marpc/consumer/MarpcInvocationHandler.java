@@ -1,190 +1,342 @@
 package com.malinghan.marpc.consumer;
 
-import com.alibaba.fastjson2.JSON;
 import com.malinghan.marpc.circuitbreaker.CircuitBreaker;
+import com.malinghan.marpc.circuitbreaker.CircuitBreakerRegistry;
 import com.malinghan.marpc.context.RpcContext;
 import com.malinghan.marpc.core.RpcRequest;
 import com.malinghan.marpc.core.RpcResponse;
 import com.malinghan.marpc.exception.MarpcBizException;
 import com.malinghan.marpc.exception.MarpcNetworkException;
 import com.malinghan.marpc.filter.Filter;
+import com.malinghan.marpc.loadbalance.InstanceStats;
+import com.malinghan.marpc.loadbalance.ServiceStats;
 import com.malinghan.marpc.retry.RetryPolicy;
+import com.malinghan.marpc.serialization.Types;
 import com.malinghan.marpc.transport.RpcTransport;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import static com.malinghan.marpc.exception.MarpcException.ErrorCode.*;
 
 @Slf4j
 public class MarpcInvocationHandler implements InvocationHandler {
 
-    private static final Set<String> SYSTEM_PACKAGES = Set.of("java.", "javax.", "org.springframework.");
+    private static final String[] SYSTEM_PACKAGES = {"java.", "javax.", "org.springframework."};
 
     private final Class<?> service;
-    private final Supplier<String> instanceSupplier;
-    private final List<Filter> filters;
+    /** 按本次调用选择实例：路由 + 负载均衡 */
+    private final Function<RpcRequest, String> instanceSelector;
+    /** 各实例在途数等运行时统计，每次发送前后更新，供负载均衡读取 */
+    private final ServiceStats stats;
+    /** 按 order 升序，preFilter 顺序执行 */
+    private final Filter[] filters;
+    /** filters 的逆序，postFilter 使用，构造时排好，调用时不再复制 */
+    private final Filter[] reversedFilters;
+    /** 动态代理路径按 Method 缓存描述符，签名与返回类型只解析一次 */
+    private final Map<Method, MethodDescriptor> descriptors = new ConcurrentHashMap<>();
     private final RetryPolicy retryPolicy;
-    private final CircuitBreaker circuitBreaker;
+    /** 按服务、方法取熔断器 */
+    private final CircuitBreakerRegistry circuitBreakers;
     private final RpcTransport transport;
 
     public MarpcInvocationHandler(Class<?> service, Supplier<String> instanceSupplier,
                                    List<Filter> filters, RetryPolicy retryPolicy,
                                    CircuitBreaker circuitBreaker, RpcTransport transport) {
+        this(service, request -> instanceSupplier.get(), new ServiceStats(service.getCanonicalName()),
+                filters, retryPolicy, circuitBreaker, transport);
+    }
+
+    public MarpcInvocationHandler(Class<?> service, Function<RpcRequest, String> instanceSelector, ServiceStats stats,
+                                   List<Filter> filters, RetryPolicy retryPolicy,
+                                   CircuitBreaker circuitBreaker, RpcTransport transport) {
+        this(service, instanceSelector, stats, filters, retryPolicy, CircuitBreakerRegistry.shared(circuitBreaker),
+                transport);
+    }
+
+    public MarpcInvocationHandler(Class<?> service, Function<RpcRequest, String> instanceSelector, ServiceStats stats,
+                                   List<Filter> filters, RetryPolicy retryPolicy,
+                                   CircuitBreakerRegistry circuitBreakers, RpcTransport transport) {
         this.service = service;
-        this.instanceSupplier = instanceSupplier;
+        this.instanceSelector = instanceSelector;
+        this.stats = stats;
         this.retryPolicy = retryPolicy;
-        this.circuitBreaker = circuitBreaker;
+        this.circuitBreakers = circuitBreakers;
         this.transport = transport;
         this.filters = filters.stream()
                 .sorted((a, b) -> Integer.compare(a.order(), b.order()))
-                .collect(Collectors.toList());
+                .toArray(Filter[]::new);
+        this.reversedFilters = new Filter[this.filters.length];
+        for (int i = 0; i < this.filters.length; i++) {
+            reversedFilters[i] = this.filters[this.filters.length - 1 - i];
+        }
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        if (isSystemMethod(method)) {
-            return method.invoke(this, args);
+        MethodDescriptor descriptor = descriptors.get(method);
+        if (descriptor == null) {
+            // toString / hashCode 等系统方法不缓存，在本地执行
+            if (isSystemMethod(method)) {
+                return method.invoke(this, args);
+            }
+            descriptor = descriptors.computeIfAbsent(method, m -> MethodDescriptor.of(service, m));
         }
+        return invoke(descriptor, args);
+    }
 
+    /**
+     * 发起一次远程调用。动态代理与编译期生成的 Stub 共用此入口，Stub 直接传入预先构建的描述符。
+     */
+    public Object invoke(MethodDescriptor descriptor, Object[] args) {
         RpcRequest request = new RpcRequest();
-        request.setService(service.getCanonicalName());
-        request.setMethod(method.getName());
-        request.setMethodSign(buildMethodSign(method));
+        request.setService(descriptor.getService());
+        request.setMethod(descriptor.getMethodName());
+        request.setMethodSign(descriptor.getMethodSign());
         request.setArgs(args);
 
-        // 填充隐式上下文参数
-        Map<String, String> ctx = RpcContext.getAll();
-        if (!ctx.isEmpty()) {
+        // 填充隐式上下文参数，未设置时不复制
+        Map<String, String> ctx = RpcContext.snapshot();
+        if (ctx != null) {
             request.setContext(ctx);
         }
+        request.setHashKey(descriptor.hashKey(args, ctx));
 
         try {
+            if (descriptor.isAsync()) {
+                return invokeAsync(descriptor, request);
+            }
+
             // preFilter：任意 Filter 返回非 null 则短路
             for (Filter filter : filters) {
                 RpcResponse shortCircuit = filter.preFilter(request);
                 if (shortCircuit != null) {
-                    return convertResponse(method, shortCircuit);
+                    return convertResponse(descriptor, shortCircuit);
                 }
             }
 
             // 熔断器检查
-            circuitBreaker.preCall();
+            CircuitBreaker breaker = circuitBreakers.get(descriptor.getService(), descriptor.getMethodSign());
+            breaker.preCall();
 
             // 发起远程调用（带重试）
-            RpcResponse response = invokeWithRetry(request);
+            RpcResponse response = invokeWithRetry(request, descriptor, breaker);
 
             // postFilter：逆序执行
-            List<Filter> reversed = new ArrayList<>(filters);
-            Collections.reverse(reversed);
-            for (Filter filter : reversed) {
-                filter.postFilter(request, response);
-            }
+            postFilter(request, response);
 
             if (!response.isStatus()) {
                 throw new MarpcBizException(SERVICE_NOT_FOUND, response.getErrorMessage());
             }
 
-            return convertResponse(method, response);
+            return convertResponse(descriptor, response);
         } finally {
             RpcContext.clear();
         }
     }
 
-    private RpcResponse invokeWithRetry(RpcRequest request) {
-        Set<String> triedInstances = new HashSet<>();
+    /**
+     * 异步调用：返回值为 {@link CompletableFuture} 的方法走此路径。
+     * preFilter 与熔断检查在调用线程同步执行，重试、postFilter、结果转换作为 Future 阶段串联，
+     * 全程不阻塞任何线程。
+     */
+    private CompletableFuture<Object> invokeAsync(MethodDescriptor descriptor, RpcRequest request) {
+        CircuitBreaker breaker;
+        try {
+            for (Filter filter : filters) {
+                RpcResponse shortCircuit = filter.preFilter(request);
+                if (shortCircuit != null) {
+                    return CompletableFuture.completedFuture(convertResponse(descriptor, shortCircuit));
+                }
+            }
+            breaker = circuitBreakers.get(descriptor.getService(), descriptor.getMethodSign());
+            breaker.preCall();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return invokeWithRetryAsync(request, descriptor, breaker, System.nanoTime(), new HashSet<>(), 1, null)
+                .thenApply(response -> {
+                    postFilter(request, response);
+                    return convertResponse(descriptor, response);
+                });
+    }
+
+    private void postFilter(RpcRequest request, RpcResponse response) {
+        for (Filter filter : reversedFilters) {
+            filter.postFilter(request, response);
+        }
+    }
+
+    /**
+     * 带重试的调用。熔断器每次 preCall 只记录一个结果：重试结束后的最终结果，耗时从首次尝试开始计算；
+     * 实例统计仍按每次尝试记录。首次尝试前即失败（没有可用实例）时不记录结果，归还放行名额。
+     */
+    private RpcResponse invokeWithRetry(RpcRequest request, MethodDescriptor descriptor, CircuitBreaker breaker) {
+        int retries = descriptor.retries(retryPolicy.getMaxRetries());
+        int maxAttempts = 1 + retries;
+        // 不重试时无需记录已尝试的节点
+        Set<String> triedInstances = maxAttempts > 1 ? new HashSet<>() : null;
         int attempts = 0;
-        int maxAttempts = 1 + retryPolicy.getMaxRetries();
         Throwable lastError = null;
+        long callStart = System.nanoTime();
 
         while (attempts < maxAttempts) {
             attempts++;
-            String instance = selectInstance(triedInstances);
-            triedInstances.add(instance);
+            String instance;
+            try {
+                instance = selectInstance(request, triedInstances);
+            } catch (RuntimeException e) {
+                if (attempts == 1) {
+                    breaker.release();
+                } else {
+                    breaker.onFailure(System.nanoTime() - callStart);
+                }
+                throw e;
+            }
+            if (triedInstances != null) triedInstances.add(instance);
 
+            InstanceStats instanceStats = stats.get(instance);
+            long start = System.nanoTime();
+            instanceStats.onStart();
             try {
-                RpcResponse response = transport.send(instance, request);
-                if (response.isStatus()) {
-                    circuitBreaker.onSuccess();
-                    if (attempts > 1) {
-                        log.info("[Retry] 第 {} 次调用成功: {}", attempts, instance);
-                    }
-                    return response;
+                RpcResponse response = transport.send(instance, request, descriptor.getValueType(), descriptor.getTimeout());
+                long end = System.nanoTime();
+                instanceStats.onComplete(end - start, true);
+                // 业务异常说明 Provider 可达，同样计为熔断器的成功调用
+                breaker.onSuccess(end - callStart);
+                if (response.isStatus() && attempts > 1) {
+                    log.info("[Retry] 第 {} 次调用成功: {}", attempts, instance);
                 }
                 return response;
             } catch (MarpcNetworkException e) {
+                instanceStats.onComplete(System.nanoTime() - start, false);
                 lastError = e;
-                circuitBreaker.onFailure();
-                if (attempts < maxAttempts) {
-                    log.warn("[Retry] 第 {} 次调用失败: {}, 原因: {}", attempts, instance, e.getMessage());
-                } else {
-                    log.error("[Retry] 重试 {} 次后仍失败", retryPolicy.getMaxRetries());
-                }
+                onAttemptFailure(attempts, maxAttempts, instance, e);
+            } catch (RuntimeException e) {
+                long end = System.nanoTime();
+                instanceStats.onComplete(end - start, false);
+                breaker.onFailure(end - callStart);
+                throw e;
             }
         }
 
+        breaker.onFailure(System.nanoTime() - callStart);
         throw new MarpcNetworkException(NETWORK_ERROR,
-                "调用失败，已重试 " + retryPolicy.getMaxRetries() + " 次", lastError);
+                "调用失败，已重试 " + retries + " 次", lastError);
     }
 
-    private String selectInstance(Set<String> triedInstances) {
-        if (!retryPolicy.isSwitchInstanceOnRetry() || triedInstances.isEmpty()) {
-            return instanceSupplier.get();
+    /**
+     * {@link #invokeWithRetry} 的异步版本：每次失败后在上一次 Future 完成的线程上发起下一次尝试，
+     * 熔断器同样只记录最终结果。callStart 为首次尝试的开始时间。
+     */
+    private CompletableFuture<RpcResponse> invokeWithRetryAsync(RpcRequest request, MethodDescriptor descriptor,
+                                                                CircuitBreaker breaker, long callStart,
+                                                                Set<String> triedInstances,
+                                                                int attempt, Throwable lastError) {
+        int retries = descriptor.retries(retryPolicy.getMaxRetries());
+        int maxAttempts = 1 + retries;
+        if (attempt > maxAttempts) {
+            breaker.onFailure(System.nanoTime() - callStart);
+            return CompletableFuture.failedFuture(new MarpcNetworkException(NETWORK_ERROR,
+                    "调用失败，已重试 " + retries + " 次", lastError));
+        }
+
+        String instance;
+        try {
+            instance = selectInstance(request, triedInstances);
+        } catch (Exception e) {
+            if (attempt == 1) {
+                breaker.release();
+            } else {
+                breaker.onFailure(System.nanoTime() - callStart);
+            }
+            return CompletableFuture.failedFuture(e);
         }
+        triedInstances.add(instance);
+
+        InstanceStats instanceStats = stats.get(instance);
+        long start = System.nanoTime();
+        instanceStats.onStart();
+        CompletableFuture<RpcResponse> future;
+        try {
+            future = transport.sendAsync(instance, request, descriptor.getValueType(), descriptor.getTimeout());
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future
+                .handle((response, error) -> {
+                    long end = System.nanoTime();
+                    instanceStats.onComplete(end - start, error == null);
+                    if (error == null) {
+                        breaker.onSuccess(end - callStart);
+                        if (response.isStatus() && attempt > 1) {
+                            log.info("[Retry] 第 {} 次调用成功: {}", attempt, instance);
+                        }
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (!(cause instanceof MarpcNetworkException)) {
+                        breaker.onFailure(end - callStart);
+                        return CompletableFuture.<RpcResponse>failedFuture(cause);
+                    }
+                    onAttemptFailure(attempt, maxAttempts, instance, cause);
+                    return invokeWithRetryAsync(request, descriptor, breaker, callStart, triedInstances,
+                            attempt + 1, cause);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private void onAttemptFailure(int attempt, int maxAttempts, String instance, Throwable e) {
+        if (attempt < maxAttempts) {
+            log.warn("[Retry] 第 {} 次调用失败: {}, 原因: {}", attempt, instance, e.getMessage());
+        } else {
+            log.error("[Retry] 重试 {} 次后仍失败", maxAttempts - 1);
+        }
+    }
+
+    private String selectInstance(RpcRequest request, Set<String> triedInstances) {
+        if (!retryPolicy.isSwitchInstanceOnRetry() || triedInstances == null || triedInstances.isEmpty()) {
+            return instanceSelector.apply(request);
+        }
+        // 负载均衡可直接避开已尝试的实例（如一致性哈希沿环选下一个实例），下面的重选只对不支持的实现兜底
+        request.setTriedInstances(triedInstances);
         for (int i = 0; i < 10; i++) {
-            String instance = instanceSupplier.get();
+            String instance = instanceSelector.apply(request);
             if (!triedInstances.contains(instance)) {
                 return instance;
             }
         }
-        return instanceSupplier.get();
+        return instanceSelector.apply(request);
     }
 
-    private Object convertResponse(Method method, RpcResponse response) {
+    /**
+     * 按方法的泛型返回类型转换 data。传输层已按类型解析的 data 原样返回，不会二次转换。
+     */
+    private Object convertResponse(MethodDescriptor descriptor, RpcResponse response) {
         if (!response.isStatus()) {
             throw new MarpcBizException(SERVICE_NOT_FOUND, response.getErrorMessage());
         }
-        Class<?> returnType = method.getReturnType();
-        if (returnType == void.class) return null;
-        if (isPrimitive(returnType)) return castPrimitive(returnType, response.getData());
-        return JSON.to(returnType, response.getData());
-    }
-
-    private String buildMethodSign(Method method) {
-        Class<?>[] params = method.getParameterTypes();
-        if (params.length == 0) return method.getName() + "@0";
-        String types = Arrays.stream(params).map(Class::getCanonicalName)
-                .collect(Collectors.joining("_"));
-        return method.getName() + "@" + params.length + "_" + types;
+        if (descriptor.isVoidReturn()) return null;
+        return Types.coerce(response.getData(), descriptor.getValueType());
     }
 
     private boolean isSystemMethod(Method method) {
         String pkg = method.getDeclaringClass().getName();
-        return SYSTEM_PACKAGES.stream().anyMatch(pkg::startsWith);
-    }
-
-    private boolean isPrimitive(Class<?> type) {
-        return type.isPrimitive()
-                || type == Integer.class || type == Long.class || type == Double.class
-                || type == Float.class || type == Boolean.class || type == Short.class
-                || type == Byte.class || type == Character.class;
-    }
-
-    private Object castPrimitive(Class<?> type, Object data) {
-        if (data == null) return null;
-        String s = data.toString();
-        if (type == int.class || type == Integer.class) return Integer.parseInt(s);
-        if (type == long.class || type == Long.class) return Long.parseLong(s);
-        if (type == double.class || type == Double.class) return Double.parseDouble(s);
-        if (type == float.class || type == Float.class) return Float.parseFloat(s);
-        if (type == boolean.class || type == Boolean.class) return Boolean.parseBoolean(s);
-        if (type == short.class || type == Short.class) return Short.parseShort(s);
-        if (type == byte.class || type == Byte.class) return Byte.parseByte(s);
-        if (type == char.class || type == Character.class) return s.charAt(0);
-        return data;
+        for (String prefix : SYSTEM_PACKAGES) {
+            if (pkg.startsWith(prefix)) return true;
+        }
+        return false;
     }
 }
@@ -0,0 +1,107 @@
+package com.malinghan.marpc.consumer;
+
+import com.malinghan.marpc.annotation.MarpcMethod;
+import com.malinghan.marpc.exception.MarpcFrameworkException;
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static com.malinghan.marpc.exception.MarpcException.ErrorCode.CONSUMER_INJECT_FAILED;
+
+/**
+ * 一个远程方法的不可变调用元数据：服务名、方法签名、返回值类型与方法级调用策略。
+ * 编译期生成的 Stub 在类初始化时为每个方法创建一次，动态代理按 {@link Method} 缓存，
+ * 每次调用不再重新计算签名或解析注解。
+ */
+@Getter
+public final class MethodDescriptor {
+    private final String service;
+    private final String methodName;
+    /** 方法签名：methodName@paramCount_type1_type2，与 Provider 端一致 */
+    private final String methodSign;
+    /** 返回值为 {@link CompletableFuture} 时走异步调用 */
+    private final boolean async;
+    /** 响应 data 的目标类型：同步方法为泛型返回类型，异步方法为 CompletableFuture&lt;T&gt; 中的 T */
+    private final Type valueType;
+    /** 返回值为 void / Void，响应 data 直接丢弃 */
+    private final boolean voidReturn;
+    /** 方法级超时（毫秒），0 表示使用全局配置，见 {@link MarpcMethod} */
+    private final int timeout;
+    /** 方法级最大重试次数，-1 表示使用全局配置 */
+    private final int retries;
+    /** 一致性哈希路由键的参数下标，-1 表示不取参数 */
+    private final int hashArg;
+    /** 一致性哈希路由键的上下文键，null 表示不取上下文 */
+    private final String hashContextKey;
+
+    private MethodDescriptor(Class<?> service, Method method) {
+        this.service = service.getCanonicalName();
+        this.methodName = method.getName();
+        this.methodSign = buildMethodSign(method);
+        this.async = method.getReturnType() == CompletableFuture.class;
+        this.valueType = async ? asyncValueType(method) : method.getGenericReturnType();
+        this.voidReturn = valueType == void.class || valueType == Void.class;
+        MarpcMethod policy = method.getAnnotation(MarpcMethod.class);
+        this.timeout = policy != null ? Math.max(policy.timeout(), 0) : 0;
+        this.retries = policy != null ? policy.retries() : -1;
+        this.hashContextKey = policy != null && !policy.hashContextKey().isEmpty() ? policy.hashContextKey() : null;
+        int paramCount = method.getParameterCount();
+        int arg = policy != null && policy.hashArg() >= 0 ? policy.hashArg() : 0;
+        if (arg >= paramCount && policy != null && policy.hashArg() >= 0) {
+            throw new MarpcFrameworkException(CONSUMER_INJECT_FAILED,
+                    "hashArg out of range: " + this.service + "#" + methodSign);
+        }
+        this.hashArg = arg < paramCount ? arg : -1;
+    }
+
+    /** 本方法的最大重试次数，未单独配置时取全局值 */
+    public int retries(int defaultRetries) {
+        return retries >= 0 ? retries : defaultRetries;
+    }
+
+    /** 一致性哈希路由键：上下文键优先，其次为指定参数（默认第一个参数），都没有时为 null */
+    public Object hashKey(Object[] args, Map<String, String> context) {
+        if (hashContextKey != null) {
+            String value = context == null ? null : context.get(hashContextKey);
+            if (value != null) return value;
+        }
+        return hashArg >= 0 && args != null ? args[hashArg] : null;
+    }
+
+    public static MethodDescriptor of(Class<?> service, Method method) {
+        return new MethodDescriptor(service, method);
+    }
+
+    /** 供生成的 Stub 使用：按方法名与参数类型（擦除后）查找接口方法 */
+    public static MethodDescriptor of(Class<?> service, String methodName, Class<?>... parameterTypes) {
+        try {
+            return new MethodDescriptor(service, service.getMethod(methodName, parameterTypes));
+        } catch (NoSuchMethodException e) {
+            throw new MarpcFrameworkException(CONSUMER_INJECT_FAILED,
+                    "stub method not found: " + service.getCanonicalName() + "#" + methodName, e);
+        }
+    }
+
+    static String buildMethodSign(Method method) {
+        Class<?>[] params = method.getParameterTypes();
+        if (params.length == 0) return method.getName() + "@0";
+        String types = Arrays.stream(params).map(Class::getCanonicalName)
+                .collect(Collectors.joining("_"));
+        return method.getName() + "@" + params.length + "_" + types;
+    }
+
+    /** 取 CompletableFuture&lt;T&gt; 中的 T（保留泛型），未声明泛型时按 Object 处理 */
+    private static Type asyncValueType(Method method) {
+        if (method.getGenericReturnType() instanceof ParameterizedType pt) {
+            Type arg = pt.getActualTypeArguments()[0];
+            if (arg instanceof Class<?> || arg instanceof ParameterizedType) return arg;
+        }
+        return Object.class;
+    }
+}
@@ -3,24 +3,37 @@ package com.malinghan.marpc.context;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * 隐式传参上下文。Map 在首次 set 时才创建，未设置任何参数的调用不产生分配。
+ */
 public class RpcContext {
-    private static final ThreadLocal<Map<String, String>> CONTEXT =
-            ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, String>> CONTEXT = new ThreadLocal<>();
 
     public static void set(String key, String value) {
-        CONTEXT.get().put(key, value);
+        current().put(key, value);
     }
 
     public static String get(String key) {
-        return CONTEXT.get().get(key);
+        Map<String, String> map = CONTEXT.get();
+        return map == null ? null : map.get(key);
     }
 
     public static Map<String, String> getAll() {
-        return new HashMap<>(CONTEXT.get());
+        Map<String, String> map = CONTEXT.get();
+        return map == null ? new HashMap<>() : new HashMap<>(map);
+    }
+
+    /**
+     * 发起调用时取上下文副本：未设置任何参数时返回 null，不复制空 Map。
+     */
+    public static Map<String, String> snapshot() {
+        Map<String, String> map = CONTEXT.get();
+        return map == null || map.isEmpty() ? null : new HashMap<>(map);
     }
 
     public static void setAll(Map<String, String> params) {
-        CONTEXT.get().putAll(params);
+        if (params == null || params.isEmpty()) return;
+        current().putAll(params);
     }
 
     public static void clear() {
@@ -34,4 +47,13 @@ public class RpcContext {
     public static String getGrayId() {
         return get("grayId");
     }
+
+    private static Map<String, String> current() {
+        Map<String, String> map = CONTEXT.get();
+        if (map == null) {
+            map = new HashMap<>();
+            CONTEXT.set(map);
+        }
+        return map;
+    }
 }
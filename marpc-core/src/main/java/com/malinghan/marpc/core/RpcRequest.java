@@ -1,9 +1,10 @@
 package com.malinghan.marpc.core;
 
+import com.alibaba.fastjson2.annotation.JSONField;
 import lombok.Data;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 @Data
 public class RpcRequest {
@@ -12,5 +13,12 @@ public class RpcRequest {
     /** 方法签名：methodName@paramCount_type1_type2 */
     private String methodSign;
     private Object[] args;
-    private Map<String, String> context = new HashMap<>();
+    /** 隐式传参，未设置时为 null，不为空上下文分配 Map */
+    private Map<String, String> context;
+    /** 一致性哈希路由键，仅在 Consumer 端用于选择实例，不参与序列化 */
+    @JSONField(serialize = false, deserialize = false)
+    private transient Object hashKey;
+    /** 重试时本次调用已尝试过的实例，仅在 Consumer 端供负载均衡避开，不参与序列化 */
+    @JSONField(serialize = false, deserialize = false)
+    private transient Set<String> triedInstances;
 }
@@ -30,6 +30,7 @@ public class MarpcException extends RuntimeException {
         PROVIDER_REGISTER_FAILED,
         CONSUMER_INJECT_FAILED,
         NO_AVAILABLE_INSTANCE,
+        PROVIDER_BUSY,
         // 网络异常
         NETWORK_ERROR,
         RESPONSE_PARSE_ERROR,
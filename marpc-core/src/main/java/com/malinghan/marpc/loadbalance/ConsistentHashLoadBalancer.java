@@ -0,0 +1,173 @@
+package com.malinghan.marpc.loadbalance;
+
+import com.malinghan.marpc.core.RpcRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一致性哈希：同一路由键（见 {@link com.malinghan.marpc.annotation.MarpcMethod#hashArg()}）始终落到同一实例，
+ * 提高 Provider 本地缓存命中率。每个实例在环上放置 {@link #VIRTUAL_NODES} 个虚拟节点，实例增减时只有约 1/N 的键迁移。
+ *
+ * <p>哈希环是不可变快照（有序 long[] 与对应的实例数组），查找为无锁二分。环只在注册中心变更回调
+ * （{@link #onChange}）中按完整实例列表增量重建：保留仍在线实例的虚拟节点，只为新增实例计算哈希，再做一次有序归并。
+ * 调用路径上不重建环，路由器筛掉的实例在查找时沿环顺时针跳过，其余键的归属不受筛选影响。
+ *
+ * <p>重试时（开启 switchInstanceOnRetry）从键的位置沿环顺时针跳过已尝试的实例，选下一个不同的实例，
+ * 同一个键的重试顺序同样是确定的；全部实例都已尝试过时回到原实例。
+ */
+@Slf4j
+public class ConsistentHashLoadBalancer implements LoadBalancer {
+
+    static final int VIRTUAL_NODES = 160;
+
+    /** 服务名 -> 哈希环 */
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    @Override
+    public String choose(RpcRequest request, List<String> instances, ServiceStats stats) {
+        if (instances == null || instances.isEmpty()) {
+            throw new IllegalArgumentException("instances is empty");
+        }
+        if (instances.size() == 1) return instances.get(0);
+
+        Ring ring = rings.get(request.getService());
+        if (ring == null) {
+            // 未收到过实例变更（未经 ConsumerBootstrap 直接使用）时按首次传入的列表建环
+            ring = rings.computeIfAbsent(request.getService(), service -> Ring.rebuild(null, instances));
+        }
+        Object key = request.getHashKey();
+        long hash = hash(key == null ? request.getMethodSign() : String.valueOf(key));
+        // 路由未筛选时候选列表即建环列表，无需逐个判断
+        String owner = ring.locate(hash, ring.matches(instances) ? null : instances, request.getTriedInstances());
+        return owner != null ? owner : instances.get(Math.floorMod(hash, instances.size()));
+    }
+
+    @Override
+    public void onChange(String service, List<String> instances) {
+        rings.compute(service, (s, old) -> Ring.rebuild(old, instances));
+        log.debug("[ConsistentHashLoadBalancer] 重建哈希环: {} -> {}", service, instances);
+    }
+
+    /** 64 位 FNV-1a，再经 MurmurHash3 的 fmix64 打散，保证相近的键（如连续的用户 id）在环上均匀分布 */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    static final class Ring {
+        /** 构建时传入的列表对象，用于快速判断未变更 */
+        private final List<String> source;
+        private final List<String> instances;
+        private final long[] points;
+        private final String[] owners;
+
+        private Ring(List<String> source, List<String> instances, long[] points, String[] owners) {
+            this.source = source;
+            this.instances = instances;
+            this.points = points;
+            this.owners = owners;
+        }
+
+        /** 注册中心未变更时传入的是同一个列表对象，先比较引用 */
+        boolean matches(List<String> current) {
+            return source == current || instances.equals(current);
+        }
+
+        /** 顺时针找到第一个不小于 hash 的虚拟节点，越过末尾时回到环首 */
+        String locate(long hash) {
+            return locate(hash, null, null);
+        }
+
+        /**
+         * 同 {@link #locate(long)}，但只选 allowed 中（为 null 时不限）且不在 excluded 中的实例；
+         * allowed 中的实例全部在 excluded 中时返回其中最先遇到的，环上没有 allowed 中的实例时返回 null。
+         */
+        String locate(long hash, List<String> allowed, Set<String> excluded) {
+            if (points.length == 0) return null;
+            int idx = Arrays.binarySearch(points, hash);
+            if (idx < 0) {
+                idx = -idx - 1;
+                if (idx == points.length) idx = 0;
+            }
+            String first = null;
+            for (int i = 0; i < points.length; i++) {
+                String owner = owners[(idx + i) % points.length];
+                if (allowed != null && !allowed.contains(owner)) continue;
+                if (excluded == null || excluded.isEmpty() || !excluded.contains(owner)) return owner;
+                if (first == null) first = owner;
+            }
+            return first;
+        }
+
+        static Ring rebuild(Ring old, List<String> instances) {
+            List<String> snapshot = List.copyOf(instances);
+            Set<String> live = new HashSet<>(snapshot);
+            Set<String> kept = new HashSet<>();
+
+            // 旧环中仍在线的虚拟节点，保持有序
+            int keptCount = 0;
+            long[] keptPoints = new long[old == null ? 0 : old.points.length];
+            String[] keptOwners = new String[keptPoints.length];
+            if (old != null) {
+                for (int i = 0; i < old.points.length; i++) {
+                    if (live.contains(old.owners[i])) {
+                        keptPoints[keptCount] = old.points[i];
+                        keptOwners[keptCount++] = old.owners[i];
+                        kept.add(old.owners[i]);
+                    }
+                }
+            }
+
+            // 新增实例的虚拟节点
+            List<String> added = new ArrayList<>();
+            for (String instance : live) {
+                if (!kept.contains(instance)) added.add(instance);
+            }
+            int addedCount = added.size() * VIRTUAL_NODES;
+            long[] addedPoints = new long[addedCount];
+            String[] addedOwners = new String[addedCount];
+            Integer[] order = new Integer[addedCount];
+            for (int a = 0, k = 0; a < added.size(); a++) {
+                String instance = added.get(a);
+                for (int v = 0; v < VIRTUAL_NODES; v++, k++) {
+                    addedPoints[k] = hash(instance + "#" + v);
+                    addedOwners[k] = instance;
+                    order[k] = k;
+                }
+            }
+            Arrays.sort(order, (x, y) -> Long.compare(addedPoints[x], addedPoints[y]));
+
+            // 有序归并
+            long[] points = new long[keptCount + addedCount];
+            String[] owners = new String[points.length];
+            int i = 0, j = 0, k = 0;
+            while (i < keptCount || j < addedCount) {
+                if (j == addedCount || (i < keptCount && keptPoints[i] <= addedPoints[order[j]])) {
+                    points[k] = keptPoints[i];
+                    owners[k++] = keptOwners[i++];
+                } else {
+                    points[k] = addedPoints[order[j]];
+                    owners[k++] = addedOwners[order[j++]];
+                }
+            }
+            return new Ring(instances, snapshot, points, owners);
+        }
+    }
+}
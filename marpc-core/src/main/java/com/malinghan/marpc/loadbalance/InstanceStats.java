@@ -0,0 +1,153 @@
+package com.malinghan.marpc.loadbalance;
+
+import com.malinghan.marpc.registry.RegistryCenter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个实例的运行时统计，由调用链路在每次发送前后更新，供负载均衡读取。
+ *
+ * <p>在途数使用分段计数（{@link LongAdder}），高并发下各调用线程更新不同的 cell，互不争用同一缓存行。
+ *
+ * <p>延迟使用 Peak EWMA：样本高于当前均值时直接取样本（对变慢立即反应），低于时按距上次更新的时间指数衰减
+ * 融合（恢复平滑）；读取时同样按空闲时长衰减，长时间未被选中的慢实例会逐渐重新获得试探流量。
+ *
+ * <p>权重与预热时长来自注册中心的实例元数据。实例在订阅变更中首次出现时开始预热，
+ * 有效权重在预热时长内从 1 线性爬升到配置权重，避免刚启动（JIT 未完成）的实例立即承接全量流量。
+ */
+public final class InstanceStats {
+
+    /** EWMA 衰减时间常数：样本权重随时间按 exp(-Δt / DECAY) 衰减 */
+    static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final String instance;
+    private final LongAdder active = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    /** 连续网络失败次数，成功时清零 */
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    /** 延迟 EWMA（纳秒）与其最近一次更新时间，写入加锁、读取无锁 */
+    private volatile double latencyEwma;
+    private volatile long ewmaStamp = System.nanoTime();
+    private volatile int weight = RegistryCenter.DEFAULT_WEIGHT;
+    private volatile long warmupNanos;
+    /** 预热开始时间，仅在 warming 为 true 时有效 */
+    private volatile long warmupStart;
+    private volatile boolean warming;
+    /** 平滑加权轮询的当前权重，只在持有所属 ServiceStats 锁时读写 */
+    long currentWeight;
+
+    InstanceStats(String instance) {
+        this.instance = instance;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    /** 请求发出前调用 */
+    public void onStart() {
+        active.increment();
+    }
+
+    /**
+     * 请求结束后调用（成功、业务失败或网络失败）。
+     *
+     * @param latencyNanos 本次调用耗时
+     * @param success      是否成功拿到响应，网络异常与超时为 false
+     */
+    public void onComplete(long latencyNanos, boolean success) {
+        active.decrement();
+        total.increment();
+        if (success) {
+            // 多数调用成功，计数已为 0 时不写，避免争用同一缓存行
+            if (consecutiveFailures.get() != 0) consecutiveFailures.set(0);
+        } else {
+            failures.increment();
+            consecutiveFailures.incrementAndGet();
+        }
+        histogram.record(latencyNanos);
+        observe(latencyNanos, System.nanoTime());
+    }
+
+    /** 记录一次延迟样本（超时、网络失败的耗时同样计入） */
+    synchronized void observe(long latencyNanos, long now) {
+        double current = latencyEwma;
+        if (latencyNanos > current) {
+            latencyEwma = latencyNanos;
+        } else {
+            double w = Math.exp(-(double) Math.max(now - ewmaStamp, 0) / DECAY_NANOS);
+            latencyEwma = current * w + latencyNanos * (1 - w);
+        }
+        ewmaStamp = now;
+    }
+
+    /** 当前延迟 EWMA（纳秒），按距上次更新的时长衰减；从未有样本时为 0 */
+    public double getLatencyEwma(long now) {
+        double current = latencyEwma;
+        if (current == 0) return 0;
+        return current * Math.exp(-(double) Math.max(now - ewmaStamp, 0) / DECAY_NANOS);
+    }
+
+    /** 配置权重 */
+    public int getWeight() {
+        return weight;
+    }
+
+    void configure(int weight, long warmupNanos) {
+        this.weight = weight;
+        this.warmupNanos = warmupNanos;
+    }
+
+    /** 实例刚上线：从 now 开始预热 */
+    void startWarmup(long now) {
+        warmupStart = now;
+        warming = true;
+    }
+
+    /** 考虑预热后的有效权重：预热期内按已上线时长线性爬升，最低为 1（权重为 0 的实例除外） */
+    public int getEffectiveWeight(long now) {
+        int w = weight;
+        if (!warming) return w;
+        long elapsed = now - warmupStart;
+        long window = warmupNanos;
+        if (elapsed >= window) {
+            warming = false;
+            return w;
+        }
+        return w == 0 ? 0 : (int) Math.max(1, w * Math.max(elapsed, 0) / window);
+    }
+
+    /** 当前在途请求数 */
+    public long getActive() {
+        return active.sum();
+    }
+
+    /** 累计完成的请求数 */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /** 累计网络失败数 */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /** 最近一次成功之后的连续网络失败数 */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /** 离群摘除后清零，恢复时重新计数 */
+    public void resetConsecutiveFailures() {
+        consecutiveFailures.set(0);
+    }
+
+    /** 调用耗时分布 */
+    public LatencyHistogram getLatencyHistogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,58 @@
+package com.malinghan.marpc.loadbalance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 2 的幂分桶（微秒）的延迟直方图，记录为一次分段计数器自增，无锁。
+ * 精度为 2 倍，足以用于离群检测中“比同伴慢数倍”的判断。
+ *
+ * <p>读取方对两次 {@link #snapshot()} 相减得到一个统计周期内的分布，再用 {@link #percentile(long[], double)} 估算分位数。
+ */
+public final class LatencyHistogram {
+
+    /** 第 i 个桶覆盖 [2^(i-1), 2^i) 微秒，最后一个桶收纳更大的值 */
+    static final int BUCKETS = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long latencyNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(latencyNanos, 0));
+        int idx = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        buckets[idx].increment();
+    }
+
+    /** 各桶累计计数 */
+    public long[] snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * 估算分位数，返回所在桶的上界（微秒）；没有样本时返回 0。
+     *
+     * @param counts 各桶计数，通常为两次快照之差
+     * @param q      分位，如 0.99
+     */
+    public static long percentile(long[] counts, double q) {
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * q);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return 1L << i;
+        }
+        return 1L << (counts.length - 1);
+    }
+}
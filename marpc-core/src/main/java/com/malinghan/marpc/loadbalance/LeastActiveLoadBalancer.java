@@ -0,0 +1,39 @@
+package com.malinghan.marpc.loadbalance;
+
+import com.malinghan.marpc.core.RpcRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少在途请求：选择当前在途数最小的实例，多个实例并列时随机选一个。
+ *
+ * <p>变慢的实例（如长时间 GC）请求堆积、在途数上升，新请求随即转向其他实例，
+ * 而不是像轮询那样继续平均分配。
+ */
+public class LeastActiveLoadBalancer implements LoadBalancer {
+
+    @Override
+    public String choose(RpcRequest request, List<String> instances, ServiceStats stats) {
+        if (instances == null || instances.isEmpty()) {
+            throw new IllegalArgumentException("instances is empty");
+        }
+        if (instances.size() == 1) return instances.get(0);
+
+        long least = Long.MAX_VALUE;
+        int leastCount = 0;
+        String chosen = null;
+        for (String instance : instances) {
+            long active = stats.active(instance);
+            if (active < least) {
+                least = active;
+                leastCount = 1;
+                chosen = instance;
+            } else if (active == least && ThreadLocalRandom.current().nextInt(++leastCount) == 0) {
+                // 水塘抽样：并列的 k 个实例各以 1/k 的概率被选中
+                chosen = instance;
+            }
+        }
+        return chosen;
+    }
+}
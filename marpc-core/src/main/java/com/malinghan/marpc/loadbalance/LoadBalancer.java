@@ -1,7 +1,26 @@
 package com.malinghan.marpc.loadbalance;
 
+import com.malinghan.marpc.core.RpcRequest;
+
 import java.util.List;
 
+/**
+ * 负载均衡 SPI：每次调用从路由后的候选实例中选出一个。
+ */
 public interface LoadBalancer {
-    String choose(List<String> instances);
+
+    /**
+     * @param request   本次调用，可读取服务名、方法签名、参数与隐式上下文；
+     *                  重试且开启切换实例时 {@link RpcRequest#getTriedInstances()} 为已尝试过的实例
+     * @param instances 路由后的候选实例，非空
+     * @param stats     该服务各实例的运行时统计（在途数等），由调用链路维护
+     */
+    String choose(RpcRequest request, List<String> instances, ServiceStats stats);
+
+    /**
+     * 服务实例列表变更回调（含启动时的首次拉取），传入注册中心的完整列表，在新列表对调用方可见之前执行。
+     * 需要按实例预计算结构的负载均衡覆盖此方法，默认忽略。
+     */
+    default void onChange(String service, List<String> instances) {
+    }
 }
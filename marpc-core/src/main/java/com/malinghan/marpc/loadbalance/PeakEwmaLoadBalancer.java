@@ -0,0 +1,46 @@
+package com.malinghan.marpc.loadbalance;
+
+import com.malinghan.marpc.core.RpcRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Peak EWMA + 二选一（power of two choices）：随机取两个不同实例，选负载代价较低的一个。
+ *
+ * <p>代价为 延迟 EWMA ×（在途数 + 1）。慢实例的 EWMA 立刻升到峰值、在途请求同时堆积，很快失去流量；
+ * 每次只比较两个实例，选择是 O(1) 且无锁，与实例数无关，也避免所有调用方同时涌向同一个“最优”实例。
+ */
+public class PeakEwmaLoadBalancer implements LoadBalancer {
+
+    /** 有在途请求但尚无延迟样本的实例（如刚上线）：视为很慢，避免冷启动时被瞬间打满 */
+    private static final double PENALTY = 1e12;
+
+    @Override
+    public String choose(RpcRequest request, List<String> instances, ServiceStats stats) {
+        if (instances == null || instances.isEmpty()) {
+            throw new IllegalArgumentException("instances is empty");
+        }
+        int n = instances.size();
+        if (n == 1) return instances.get(0);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(n);
+        int j = random.nextInt(n - 1);
+        if (j >= i) j++;
+        String a = instances.get(i);
+        String b = instances.get(j);
+        long now = System.nanoTime();
+        return cost(stats.peek(a), now) <= cost(stats.peek(b), now) ? a : b;
+    }
+
+    static double cost(InstanceStats stats, long now) {
+        if (stats == null) return 0;
+        long active = stats.getActive();
+        double ewma = stats.getLatencyEwma(now);
+        if (ewma == 0) {
+            return active == 0 ? 0 : PENALTY + active;
+        }
+        return ewma * (active + 1);
+    }
+}
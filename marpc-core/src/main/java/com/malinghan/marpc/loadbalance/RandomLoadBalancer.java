@@ -1,17 +1,18 @@
 package com.malinghan.marpc.loadbalance;
 
+import com.malinghan.marpc.core.RpcRequest;
+
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RandomLoadBalancer implements LoadBalancer {
 
-    private final Random random = new Random();
-
     @Override
-    public String choose(List<String> instances) {
+    public String choose(RpcRequest request, List<String> instances, ServiceStats stats) {
         if (instances == null || instances.isEmpty()) {
             throw new IllegalArgumentException("instances is empty");
         }
-        return instances.get(random.nextInt(instances.size()));
+        // 每线程独立的随机数生成器，多线程不争用同一个 seed
+        return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
     }
 }
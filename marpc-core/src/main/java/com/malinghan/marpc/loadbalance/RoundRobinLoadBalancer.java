@@ -1,18 +1,29 @@
 package com.malinghan.marpc.loadbalance;
 
+import com.malinghan.marpc.core.RpcRequest;
+
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 轮询：每个服务独立计数，不同服务的调用互不影响轮询位置。
+ */
 public class RoundRobinLoadBalancer implements LoadBalancer {
 
-    private final AtomicInteger counter = new AtomicInteger(0);
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
 
     @Override
-    public String choose(List<String> instances) {
+    public String choose(RpcRequest request, List<String> instances, ServiceStats stats) {
         if (instances == null || instances.isEmpty()) {
             throw new IllegalArgumentException("instances is empty");
         }
-        int idx = Math.abs(counter.getAndIncrement() % instances.size());
+        AtomicInteger counter = counters.get(request.getService());
+        if (counter == null) {
+            counter = counters.computeIfAbsent(request.getService(), k -> new AtomicInteger());
+        }
+        int idx = Math.floorMod(counter.getAndIncrement(), instances.size());
         return instances.get(idx);
     }
 }
@@ -0,0 +1,82 @@
+package com.malinghan.marpc.loadbalance;
+
+import com.malinghan.marpc.registry.RegistryCenter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个服务下各实例的运行时统计。每个 Consumer 代理持有一份，由注册中心变更回调刷新（清理下线实例、更新权重）。
+ */
+public final class ServiceStats {
+
+    private final String service;
+    private final ConcurrentHashMap<String, InstanceStats> instances = new ConcurrentHashMap<>();
+
+    public ServiceStats(String service) {
+        this.service = service;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    /** 取实例统计，不存在时创建 */
+    public InstanceStats get(String instance) {
+        InstanceStats stats = instances.get(instance);
+        if (stats == null) {
+            stats = instances.computeIfAbsent(instance, InstanceStats::new);
+        }
+        return stats;
+    }
+
+    /** 实例当前在途数，从未调用过的实例为 0 */
+    public long active(String instance) {
+        InstanceStats stats = instances.get(instance);
+        return stats == null ? 0 : stats.getActive();
+    }
+
+    /** 实例统计，从未调用过的实例返回 null，不创建 */
+    public InstanceStats peek(String instance) {
+        return instances.get(instance);
+    }
+
+    /** 只保留仍在线的实例 */
+    public void retain(Collection<String> live) {
+        instances.keySet().retainAll(live);
+    }
+
+    /**
+     * 按注册中心的实例列表与元数据刷新：清理下线实例，更新权重与预热时长。
+     *
+     * @param metadata 实例 -> 元数据，缺失的实例使用默认权重、不预热
+     * @param warmup   是否为新出现的实例开始预热；启动时首次拉取的实例视为已在运行，传 false
+     */
+    public void update(List<String> live, Map<String, Map<String, String>> metadata, boolean warmup) {
+        retain(live);
+        long now = System.nanoTime();
+        for (String instance : live) {
+            boolean added = !instances.containsKey(instance);
+            InstanceStats stats = get(instance);
+            Map<String, String> meta = metadata.getOrDefault(instance, Map.of());
+            int weight = Math.max(0, parse(meta.get(RegistryCenter.META_WEIGHT), RegistryCenter.DEFAULT_WEIGHT));
+            long warmupMillis = Math.max(0, parse(meta.get(RegistryCenter.META_WARMUP), 0));
+            stats.configure(weight, TimeUnit.MILLISECONDS.toNanos(warmupMillis));
+            if (added && warmup && warmupMillis > 0) {
+                stats.startWarmup(now);
+            }
+        }
+    }
+
+    private static int parse(String value, int defaultValue) {
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.malinghan.marpc.loadbalance;
+
+import com.malinghan.marpc.core.RpcRequest;
+
+import java.util.List;
+
+/**
+ * 平滑加权轮询（nginx smooth weighted round-robin）：每次选择时各实例当前权重加上有效权重，
+ * 选当前权重最大者并减去总权重。权重 5:1:1 的实例按 a a b a c a a 的顺序交错，而不是连续打到同一实例。
+ *
+ * <p>有效权重见 {@link InstanceStats#getEffectiveWeight(long)}：权重来自注册中心元数据，新上线实例在预热期内线性爬升。
+ * 选择过程按服务加锁（锁 {@link ServiceStats}），不同服务互不影响。
+ */
+public class WeightedRoundRobinLoadBalancer implements LoadBalancer {
+
+    @Override
+    public String choose(RpcRequest request, List<String> instances, ServiceStats stats) {
+        if (instances == null || instances.isEmpty()) {
+            throw new IllegalArgumentException("instances is empty");
+        }
+        if (instances.size() == 1) return instances.get(0);
+
+        long now = System.nanoTime();
+        synchronized (stats) {
+            long total = 0;
+            InstanceStats best = null;
+            for (String instance : instances) {
+                InstanceStats s = stats.get(instance);
+                int weight = s.getEffectiveWeight(now);
+                s.currentWeight += weight;
+                total += weight;
+                if (best == null || s.currentWeight > best.currentWeight) {
+                    best = s;
+                }
+            }
+            best.currentWeight -= total;
+            return best.getInstance();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.malinghan.marpc.outlier;
+
+import com.malinghan.marpc.loadbalance.InstanceStats;
+import com.malinghan.marpc.loadbalance.LatencyHistogram;
+import com.malinghan.marpc.loadbalance.ServiceStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按实例的离群检测：周期性检查每个实例的连续失败数、周期内失败率与 p99 延迟，将离群实例从路由中摘除。
+ *
+ * <p>第 n 次摘除的时长为 baseEjectionTime × 2^(n-1)，不超过 maxEjectionTime；未被摘除的周期里 n 逐步回落。
+ * 同一服务同时被摘除的实例不超过 maxEjectionPercent，避免大面积故障时把流量压到少数实例上。
+ *
+ * <p>摘除结果按服务预计算为过滤后的实例列表，调用时按列表引用查表，与 Router 的预计算方式一致。
+ * 经路由器筛选的子集（同样是路由器预计算的列表）按引用缓存过滤结果；不含被摘除实例的子集原样返回，不分配。
+ */
+@Slf4j
+public class OutlierDetector {
+
+    /** 摘除状态变化回调，如同步给就近路由的健康状态 */
+    @FunctionalInterface
+    public interface EjectionListener {
+        void onEjection(String service, String instance, boolean ejected);
+    }
+
+    private final OutlierDetectorConfig config;
+    private final Map<String, ServiceState> services = new ConcurrentHashMap<>();
+    private final List<EjectionListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    public OutlierDetector(OutlierDetectorConfig config) {
+        this.config = config;
+        if (config.isEnabled()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "marpc-outlier-detector");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    sweep(System.nanoTime());
+                } catch (Exception e) {
+                    log.error("[OutlierDetector] 检测失败", e);
+                }
+            }, config.getInterval(), config.getInterval(), TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public void addListener(EjectionListener listener) {
+        listeners.add(listener);
+    }
+
+    /** 实例列表变更：记录最新列表，清理下线实例的摘除状态 */
+    public void onChange(String service, List<String> instances, ServiceStats stats) {
+        if (!config.isEnabled()) return;
+        ServiceState state = services.computeIfAbsent(service, k -> new ServiceState(stats));
+        synchronized (state) {
+            state.instances = instances;
+            state.windows.keySet().retainAll(instances);
+            state.publish();
+        }
+    }
+
+    /** 过滤被摘除的实例；全部被摘除时不过滤 */
+    public List<String> route(String service, List<String> instances) {
+        if (!config.isEnabled()) return instances;
+        ServiceState state = services.get(service);
+        if (state == null) return instances;
+        Table table = state.table;
+        if (table == null) return instances;
+        if (table.source == instances) return table.result;
+        if (table.ejected.isEmpty()) return instances;
+        // 列表已被路由器筛选：每个子集按当前摘除集合过滤一次，缓存在 table 上，摘除集合变化时随 table 一起替换
+        List<String> cached = table.routed(instances);
+        if (cached != null) return cached;
+        List<String> result = filter(instances, table.ejected);
+        table.cache(instances, result);
+        return result;
+    }
+
+    public void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /** 一个检测周期：先恢复到期实例，再按本周期增量判定离群 */
+    void sweep(long now) {
+        services.forEach((service, state) -> {
+            synchronized (state) {
+                if (sweep(service, state, now)) state.publish();
+            }
+        });
+    }
+
+    private boolean sweep(String service, ServiceState state, long now) {
+        List<String> instances = state.instances;
+        if (instances == null) return false;
+        boolean changed = false;
+
+        // 计算本周期增量
+        Map<String, Long> p99 = new HashMap<>();
+        for (String instance : instances) {
+            Window window = state.windows.computeIfAbsent(instance, k -> new Window());
+            InstanceStats stats = state.stats.get(instance);
+            long total = stats.getTotal();
+            long failures = stats.getFailures();
+            long[] histogram = stats.getLatencyHistogram().snapshot();
+            window.requests = total - window.lastTotal;
+            window.failures = failures - window.lastFailures;
+            long[] delta = new long[histogram.length];
+            for (int i = 0; i < histogram.length; i++) {
+                delta[i] = histogram[i] - (window.lastHistogram == null ? 0 : window.lastHistogram[i]);
+            }
+            window.lastTotal = total;
+            window.lastFailures = failures;
+            window.lastHistogram = histogram;
+            if (window.requests >= config.getMinRequests()) {
+                p99.put(instance, LatencyHistogram.percentile(delta, 0.99));
+            }
+
+            // 到期恢复
+            if (window.ejectedUntil != 0 && now - window.ejectedUntil >= 0) {
+                window.ejectedUntil = 0;
+                changed = true;
+                log.info("[OutlierDetector] 恢复实例: {} -> {}", service, instance);
+                notifyListeners(service, instance, false);
+            }
+        }
+
+        long medianP99 = median(p99.values());
+        int ejected = (int) state.windows.values().stream().filter(w -> w.ejectedUntil != 0).count();
+        int maxEjected = instances.size() <= 1 ? 0
+                : Math.max(1, instances.size() * config.getMaxEjectionPercent() / 100);
+
+        for (String instance : instances) {
+            Window window = state.windows.get(instance);
+            if (window.ejectedUntil != 0) continue;
+            InstanceStats stats = state.stats.get(instance);
+            String reason = reason(stats, window, p99.get(instance), medianP99, p99.size());
+            if (reason == null) {
+                // 正常承接流量的周期，摘除次数回落一级
+                if (window.ejections > 0 && window.requests > 0) window.ejections--;
+                continue;
+            }
+            if (ejected >= maxEjected) continue;
+
+            window.ejections++;
+            long duration = Math.min(config.getBaseEjectionTime() << Math.min(window.ejections - 1, 30),
+                    config.getMaxEjectionTime());
+            window.ejectedUntil = now + TimeUnit.MILLISECONDS.toNanos(duration);
+            if (window.ejectedUntil == 0) window.ejectedUntil = 1;
+            stats.resetConsecutiveFailures();
+            ejected++;
+            changed = true;
+            log.warn("[OutlierDetector] 摘除实例: {} -> {}，原因: {}，时长 {}ms（第 {} 次）",
+                    service, instance, reason, duration, window.ejections);
+            notifyListeners(service, instance, true);
+        }
+        return changed;
+    }
+
+    private String reason(InstanceStats stats, Window window, Long p99, long medianP99, int peers) {
+        if (stats.getConsecutiveFailures() >= config.getConsecutiveFailures()) {
+            return "连续失败 " + stats.getConsecutiveFailures() + " 次";
+        }
+        if (window.requests >= config.getMinRequests()
+                && window.failures * 100 >= window.requests * config.getFailureRatePercent()) {
+            return "失败率 " + window.failures + "/" + window.requests;
+        }
+        // 至少三个实例有足够样本时，中位数才有代表性
+        if (p99 != null && peers >= 3 && medianP99 > 0 && p99 > medianP99 * config.getLatencyFactor()) {
+            return "p99 " + p99 + "us，同伴中位数 " + medianP99 + "us";
+        }
+        return null;
+    }
+
+    private void notifyListeners(String service, String instance, boolean ejected) {
+        for (EjectionListener listener : listeners) {
+            try {
+                listener.onEjection(service, instance, ejected);
+            } catch (Exception e) {
+                log.error("[OutlierDetector] 回调失败", e);
+            }
+        }
+    }
+
+    private static long median(Collection<Long> values) {
+        if (values.isEmpty()) return 0;
+        long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /** 不含被摘除实例时返回原列表，不复制 */
+    private static List<String> filter(List<String> instances, Set<String> ejected) {
+        if (ejected.isEmpty()) return instances;
+        List<String> result = null;
+        for (int i = 0; i < instances.size(); i++) {
+            String instance = instances.get(i);
+            if (ejected.contains(instance)) {
+                if (result == null) result = new ArrayList<>(instances.subList(0, i));
+            } else if (result != null) {
+                result.add(instance);
+            }
+        }
+        return result == null || result.isEmpty() ? instances : result;
+    }
+
+    /** 一个服务的检测状态，写入在 synchronized(this) 下进行 */
+    private static final class ServiceState {
+        final ServiceStats stats;
+        final Map<String, Window> windows = new HashMap<>();
+        List<String> instances;
+        volatile Table table;
+
+        ServiceState(ServiceStats stats) {
+            this.stats = stats;
+        }
+
+        void publish() {
+            Set<String> ejected = new HashSet<>();
+            windows.forEach((instance, window) -> {
+                if (window.ejectedUntil != 0) ejected.add(instance);
+            });
+            table = new Table(instances, Set.copyOf(ejected), filter(instances, ejected));
+        }
+    }
+
+    /**
+     * 路由表：来源列表、被摘除实例与过滤结果，发布后不再修改；
+     * 另按引用缓存经路由器筛选的子集的过滤结果，最多 {@link #MAX_ROUTED} 个，超出后不再缓存。
+     */
+    private static final class Table {
+        static final int MAX_ROUTED = 16;
+
+        final List<String> source;
+        final Set<String> ejected;
+        final List<String> result;
+        /** 子集与其过滤结果交替存放，整体替换发布 */
+        private volatile Object[] routed = new Object[0];
+
+        Table(List<String> source, Set<String> ejected, List<String> result) {
+            this.source = source;
+            this.ejected = ejected;
+            this.result = result;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<String> routed(List<String> subset) {
+            Object[] entries = routed;
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i] == subset) return (List<String>) entries[i + 1];
+            }
+            return null;
+        }
+
+        synchronized void cache(List<String> subset, List<String> filtered) {
+            Object[] entries = routed;
+            if (entries.length >= MAX_ROUTED * 2 || routed(subset) != null) return;
+            Object[] next = Arrays.copyOf(entries, entries.length + 2);
+            next[entries.length] = subset;
+            next[entries.length + 1] = filtered;
+            routed = next;
+        }
+    }
+
+    /** 单个实例的检测窗口与摘除状态 */
+    private static final class Window {
+        long lastTotal;
+        long lastFailures;
+        long[] lastHistogram;
+        long requests;
+        long failures;
+        /** 第几次摘除，决定摘除时长 */
+        int ejections;
+        /** 摘除截止时间（nanoTime），0 表示未摘除 */
+        long ejectedUntil;
+    }
+}
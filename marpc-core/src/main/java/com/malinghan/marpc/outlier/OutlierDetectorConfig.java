@@ -0,0 +1,41 @@
+package com.malinghan.marpc.outlier;
+
+import lombok.Data;
+
+/**
+ * 离群实例检测配置。
+ */
+@Data
+public class OutlierDetectorConfig {
+
+    /** 是否启用离群检测，默认 false */
+    private boolean enabled = false;
+
+    /** 检测周期（毫秒），错误率与延迟按周期内的增量计算，默认 5000ms */
+    private long interval = 5000;
+
+    /** 连续失败次数达到该值即摘除，默认 5 */
+    private int consecutiveFailures = 5;
+
+    /** 周期内失败率（百分比）达到该值即摘除，默认 50 */
+    private int failureRatePercent = 50;
+
+    /** 周期内请求数达到该值才参与失败率与延迟判断，默认 20 */
+    private int minRequests = 20;
+
+    /** 周期内 p99 超过同服务各实例 p99 中位数的倍数即摘除，默认 3 */
+    private double latencyFactor = 3.0;
+
+    /** 首次摘除时长（毫秒），之后每次摘除翻倍，默认 30000ms */
+    private long baseEjectionTime = 30000;
+
+    /** 单次摘除时长上限（毫秒），默认 300000ms */
+    private long maxEjectionTime = 300000;
+
+    /** 同一服务最多摘除的实例比例（百分比），默认 30；实例数大于 1 时至少允许摘除一个 */
+    private int maxEjectionPercent = 30;
+
+    public static OutlierDetectorConfig disabled() {
+        return new OutlierDetectorConfig();
+    }
+}
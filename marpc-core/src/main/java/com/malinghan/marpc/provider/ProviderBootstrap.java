@@ -1,23 +1,30 @@
 package com.malinghan.marpc.provider;
 
-import com.alibaba.fastjson2.JSON;
 import com.malinghan.marpc.annotation.MarpcProvider;
 import com.malinghan.marpc.core.RpcRequest;
 import com.malinghan.marpc.core.RpcResponse;
 import com.malinghan.marpc.exception.MarpcBizException;
 import com.malinghan.marpc.registry.RegistryCenter;
+import com.malinghan.marpc.serialization.Types;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
-import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
 import static com.malinghan.marpc.exception.MarpcException.ErrorCode.*;
@@ -30,12 +37,24 @@ public class ProviderBootstrap implements InitializingBean, DisposableBean {
     private final ApplicationContext context;
     private final RegistryCenter registryCenter;
     private final String instance;
+    /** 随注册下发的实例元数据，如权重、预热时长 */
+    private final Map<String, String> metadata;
     private final Map<String, Object> skeleton = new HashMap<>();
+    /** 方法表，下标为方法 id（0 不使用） */
+    private ProviderMethod[] methods = new ProviderMethod[1];
+    /** 服务名 -> 方法签名 -> 方法，调用时按请求中的服务名与签名查找 */
+    private Map<String, Map<String, ProviderMethod>> invokers = Map.of();
 
     public ProviderBootstrap(ApplicationContext context, RegistryCenter registryCenter, String instance) {
+        this(context, registryCenter, instance, Map.of());
+    }
+
+    public ProviderBootstrap(ApplicationContext context, RegistryCenter registryCenter, String instance,
+                             Map<String, String> metadata) {
         this.context = context;
         this.registryCenter = registryCenter;
         this.instance = instance;
+        this.metadata = metadata;
     }
 
     /** Spring InitializingBean 回调，所有 Bean 就绪后自动执行 */
@@ -50,12 +69,77 @@ public class ProviderBootstrap implements InitializingBean, DisposableBean {
                 if (isUserDefinedInterface(iface)) {
                     String service = iface.getCanonicalName();
                     skeleton.put(service, bean);
-                    registryCenter.register(service, instance);
-                    log.info("[ProviderBootstrap] 注册: {} -> {}", service, instance);
+                    registryCenter.register(service, instance, metadata);
+                    log.info("[ProviderBootstrap] 注册: {} -> {} {}", service, instance, metadata);
                 }
             }
         });
-        log.info("[ProviderBootstrap] === 启动完成，共 {} 个服务 ===", skeleton.size());
+        buildMethodTable();
+        log.info("[ProviderBootstrap] === 启动完成，共 {} 个服务, {} 个方法 ===", skeleton.size(), methods.length - 1);
+    }
+
+    /**
+     * 为所有服务方法分配 id：按服务名、方法签名排序，保证同一份代码每次启动得到相同的编号。
+     * 同时生成按服务名、方法签名索引的调用表。接口的静态方法与编译器生成的合成 / 桥接方法不是服务方法，不暴露。
+     */
+    private void buildMethodTable() {
+        List<ProviderMethod> table = new ArrayList<>();
+        Map<String, Map<String, ProviderMethod>> index = new HashMap<>();
+        table.add(null);
+        for (String service : new TreeSet<>(skeleton.keySet())) {
+            Object bean = skeleton.get(service);
+            Class<?> targetClass = AopUtils.getTargetClass(bean);
+            for (Class<?> iface : targetClass.getInterfaces()) {
+                if (!iface.getCanonicalName().equals(service)) continue;
+                TreeMap<String, Method> signs = new TreeMap<>();
+                for (Method m : iface.getMethods()) {
+                    if (!isServiceMethod(m)) continue;
+                    signs.putIfAbsent(buildSign(m), m);
+                }
+                Map<String, ProviderMethod> bySign = index.computeIfAbsent(service, k -> new HashMap<>());
+                ProviderSkeleton skeleton = loadSkeleton(iface);
+                List<String> skeletonSigns = skeleton != null ? Arrays.asList(skeleton.methodSigns()) : List.of();
+                signs.forEach((sign, m) -> {
+                    ProviderMethod method = new ProviderMethod(table.size(), service, sign, m, bean,
+                            skeleton, skeletonSigns.indexOf(sign));
+                    table.add(method);
+                    bySign.put(sign, method);
+                });
+            }
+        }
+        methods = table.toArray(new ProviderMethod[0]);
+        invokers = index;
+    }
+
+    private static boolean isServiceMethod(Method m) {
+        return !Modifier.isStatic(m.getModifiers()) && !m.isSynthetic() && !m.isBridge();
+    }
+
+    /** 加载 marpc-processor 为该接口生成的骨架，不存在时返回 null，退回 MethodHandle 调用 */
+    private ProviderSkeleton loadSkeleton(Class<?> iface) {
+        String className = ProviderSkeleton.className(iface);
+        try {
+            Class<?> type = Class.forName(className, true, iface.getClassLoader());
+            ProviderSkeleton skeleton = (ProviderSkeleton) type.getDeclaredConstructor().newInstance();
+            log.info("[ProviderBootstrap] 使用生成的 Skeleton: {}", className);
+            return skeleton;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            log.warn("[ProviderBootstrap] Skeleton 不可用，使用 MethodHandle 调用: {}", className, e);
+            return null;
+        }
+    }
+
+    /** 全部已暴露的服务方法，按 id 升序 */
+    public List<ProviderMethod> getMethods() {
+        return Arrays.asList(methods).subList(1, methods.length);
+    }
+
+    /** 按 id 查找服务方法，未知 id 返回 null */
+    public ProviderMethod getMethod(int id) {
+        ProviderMethod[] table = methods;
+        return id > 0 && id < table.length ? table[id] : null;
     }
 
     /** Spring DisposableBean 回调，容器关闭时自动执行 */
@@ -71,24 +155,44 @@ public class ProviderBootstrap implements InitializingBean, DisposableBean {
     }
 
     public RpcResponse invoke(RpcRequest request) {
-        Object bean = skeleton.get(request.getService());
-        if (bean == null) {
+        return invokeAsync(request).join();
+    }
+
+    /**
+     * 异步调用：服务方法返回 {@link CompletionStage} 时不阻塞，待其完成后再生成响应；
+     * 普通方法返回已完成的 Future。调用失败统一转换为错误响应，Future 不会异常完成。
+     */
+    public CompletableFuture<RpcResponse> invokeAsync(RpcRequest request) {
+        Map<String, ProviderMethod> bySign = invokers.get(request.getService());
+        if (bySign == null) {
             throw new MarpcBizException(SERVICE_NOT_FOUND,
                     "service not found: " + request.getService());
         }
+        Object result;
         try {
-            Method method = findMethod(AopUtils.getTargetClass(bean),
-                    request.getMethodSign(), request.getMethod());
-            Object[] typedArgs = convertArgs(method, request.getArgs());
-            Object result = ReflectionUtils.invokeMethod(method, bean, typedArgs);
-            return RpcResponse.ok(result);
-        } catch (MarpcBizException e) {
-            return RpcResponse.error(e.getErrorCode() + ": " + e.getMessage());
-        } catch (Exception e) {
-            log.error("[ProviderBootstrap] invoke error", e);
-            return RpcResponse.error(e.getClass().getName() + ": " +
-                    (e.getMessage() != null ? e.getMessage() : "null"));
+            ProviderMethod method = findMethod(bySign, request.getMethodSign(), request.getMethod());
+            result = method.invoke(convertArgs(method, request.getArgs()));
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            return CompletableFuture.completedFuture(errorResponse(e));
         }
+        if (result instanceof CompletionStage<?> stage) {
+            return stage.toCompletableFuture().handle((value, error) -> error == null
+                    ? RpcResponse.ok(value)
+                    : errorResponse(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error));
+        }
+        return CompletableFuture.completedFuture(RpcResponse.ok(result));
+    }
+
+    private RpcResponse errorResponse(Throwable e) {
+        if (e instanceof MarpcBizException be) {
+            return RpcResponse.error(be.getErrorCode() + ": " + be.getMessage());
+        }
+        log.error("[ProviderBootstrap] invoke error", e);
+        return RpcResponse.error(e.getClass().getName() + ": " +
+                (e.getMessage() != null ? e.getMessage() : "null"));
     }
 
     private boolean isUserDefinedInterface(Class<?> iface) {
@@ -96,16 +200,18 @@ public class ProviderBootstrap implements InitializingBean, DisposableBean {
         return SYSTEM_PACKAGES.stream().noneMatch(pkg::startsWith);
     }
 
-    private Method findMethod(Class<?> clazz, String methodSign, String methodName) {
-        if (methodSign != null && !methodSign.isEmpty()) {
-            for (Method m : clazz.getMethods()) {
-                if (buildSign(m).equals(methodSign)) return m;
-            }
+    /**
+     * 按签名精确查找；签名缺失或不匹配时退回按方法名与参数个数匹配（兼容签名规则不同的老客户端）。
+     */
+    private ProviderMethod findMethod(Map<String, ProviderMethod> bySign, String methodSign, String methodName) {
+        if (methodSign != null) {
+            ProviderMethod method = bySign.get(methodSign);
+            if (method != null) return method;
         }
         int argCount = methodSign != null && methodSign.contains("@")
                 ? Integer.parseInt(methodSign.split("@")[1].split("_")[0]) : 0;
-        for (Method m : clazz.getMethods()) {
-            if (m.getName().equals(methodName) && m.getParameterCount() == argCount) return m;
+        for (ProviderMethod m : bySign.values()) {
+            if (m.getMethod().equals(methodName) && m.getParameterTypes().length == argCount) return m;
         }
         throw new MarpcBizException(METHOD_NOT_FOUND, "method not found: " + methodSign);
     }
@@ -118,13 +224,11 @@ public class ProviderBootstrap implements InitializingBean, DisposableBean {
         return m.getName() + "@" + params.length + "_" + types;
     }
 
-    private Object[] convertArgs(Method method, Object[] args) {
+    /**
+     * 按参数泛型类型转换实参。已按类型解析的实参（携带方法 id 的 Netty 请求）原样使用，不会二次转换。
+     */
+    private Object[] convertArgs(ProviderMethod method, Object[] args) {
         if (args == null || args.length == 0) return args;
-        Class<?>[] paramTypes = method.getParameterTypes();
-        Object[] result = new Object[args.length];
-        for (int i = 0; i < args.length; i++) {
-            result[i] = JSON.to(paramTypes[i], args[i]);
-        }
-        return result;
+        return Types.coerce(args, method.getGenericParameterTypes());
     }
 }
@@ -0,0 +1,152 @@
+package com.malinghan.marpc.provider;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provider 请求分发线程池：将服务调用从 Netty I/O 线程卸载到业务线程，
+ * 避免一个慢服务阻塞同一 EventLoop 上的所有连接。
+ *
+ * <p>支持共享有界线程池、按服务隔离线程池、每请求一个虚拟线程三种模式，
+ * 并暴露队列深度与拒绝次数。线程池饱和时 {@link #select(String)} 返回的 Executor
+ * 抛出 {@link RejectedExecutionException}，由调用方转换为错误响应。
+ */
+@Slf4j
+public class ProviderExecutor implements DisposableBean {
+
+    private final ProviderExecutorConfig config;
+    private final String mode;
+    private final Executor sharedExecutor;
+    private final Map<String, ThreadPoolExecutor> isolatedExecutors = new ConcurrentHashMap<>();
+    private final LongAdder rejectedCount = new LongAdder();
+    /** 虚拟线程模式没有队列，用在途任务数代替队列深度 */
+    private final AtomicInteger virtualInFlight = new AtomicInteger();
+
+    public ProviderExecutor(ProviderExecutorConfig config) {
+        this.config = config;
+        String requested = config.getMode() == null ? ProviderExecutorConfig.MODE_POOL : config.getMode().toLowerCase();
+        Executor virtual = ProviderExecutorConfig.MODE_VIRTUAL.equals(requested) ? newVirtualExecutor() : null;
+        if (ProviderExecutorConfig.MODE_VIRTUAL.equals(requested) && virtual == null) {
+            log.warn("[ProviderExecutor] 当前 JDK 不支持虚拟线程，退化为 pool 模式");
+            requested = ProviderExecutorConfig.MODE_POOL;
+        }
+        this.mode = requested;
+        if (virtual != null) {
+            this.sharedExecutor = virtual;
+        } else if (ProviderExecutorConfig.MODE_DIRECT.equals(mode)) {
+            this.sharedExecutor = Runnable::run;
+        } else {
+            this.sharedExecutor = newPool("marpc-provider", config.getCoreThreads(),
+                    config.getMaxThreads(), config.getQueueCapacity());
+        }
+        log.info("[ProviderExecutor] 分发模式: {}", mode);
+    }
+
+    /**
+     * 选择执行服务调用的 Executor。isolated 模式下按服务返回独占线程池，其余模式忽略 service。
+     */
+    public Executor select(String service) {
+        if (ProviderExecutorConfig.MODE_ISOLATED.equals(mode) && service != null && isIsolated(service)) {
+            return isolatedExecutors.computeIfAbsent(service, s -> newPool(
+                    "marpc-provider-" + s.substring(s.lastIndexOf('.') + 1),
+                    config.getIsolatedThreads(), config.getIsolatedThreads(), config.getIsolatedQueueCapacity()));
+        }
+        if (ProviderExecutorConfig.MODE_VIRTUAL.equals(mode)) {
+            return this::executeVirtual;
+        }
+        return sharedExecutor;
+    }
+
+    /** 是否需要先知道服务名才能选择线程池（isolated 模式） */
+    public boolean isServiceAware() {
+        return ProviderExecutorConfig.MODE_ISOLATED.equals(mode);
+    }
+
+    public boolean isDirect() {
+        return ProviderExecutorConfig.MODE_DIRECT.equals(mode);
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /** 所有线程池排队中的任务数（虚拟线程模式为在途任务数） */
+    public int getQueueDepth() {
+        if (ProviderExecutorConfig.MODE_VIRTUAL.equals(mode)) return virtualInFlight.get();
+        int depth = sharedExecutor instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+        for (ThreadPoolExecutor pool : isolatedExecutors.values()) {
+            depth += pool.getQueue().size();
+        }
+        return depth;
+    }
+
+    /** 指定服务独占线程池的排队任务数，未隔离的服务返回共享线程池的值 */
+    public int getQueueDepth(String service) {
+        ThreadPoolExecutor pool = isolatedExecutors.get(service);
+        return pool != null ? pool.getQueue().size() : getQueueDepth();
+    }
+
+    /** 线程池饱和导致的累计拒绝次数 */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public void destroy() {
+        if (sharedExecutor instanceof ExecutorService es) es.shutdown();
+        isolatedExecutors.values().forEach(ExecutorService::shutdown);
+        log.info("[ProviderExecutor] 已关闭, 累计拒绝 {} 次", getRejectedCount());
+    }
+
+    private boolean isIsolated(String service) {
+        return config.getIsolatedServices() == null || config.getIsolatedServices().isEmpty()
+                || config.getIsolatedServices().contains(service);
+    }
+
+    private void executeVirtual(Runnable task) {
+        virtualInFlight.incrementAndGet();
+        try {
+            sharedExecutor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    virtualInFlight.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            virtualInFlight.decrementAndGet();
+            rejectedCount.increment();
+            throw e;
+        }
+    }
+
+    private ThreadPoolExecutor newPool(String name, int core, int max, int queueCapacity) {
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(core, Math.max(core, max),
+                config.getKeepAliveMs(), TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, name + "-" + index.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> {
+                    rejectedCount.increment();
+                    throw new RejectedExecutionException(name + " 线程池已满, queue=" + executor.getQueue().size());
+                });
+    }
+
+    /** 通过反射创建虚拟线程 Executor，编译目标为 JDK 17，运行在 JDK 21+ 时才可用 */
+    private static Executor newVirtualExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.malinghan.marpc.provider;
+
+import lombok.Data;
+
+import java.util.Set;
+
+/**
+ * Provider 业务线程池配置。
+ */
+@Data
+public class ProviderExecutorConfig {
+
+    /** 直接在 Netty I/O 线程上执行（旧行为，仅适合纯内存、无阻塞的服务） */
+    public static final String MODE_DIRECT = "direct";
+    /** 所有服务共享一个有界线程池 */
+    public static final String MODE_POOL = "pool";
+    /** 按服务隔离线程池，慢服务只会耗尽自己的线程 */
+    public static final String MODE_ISOLATED = "isolated";
+    /** 每个请求一个虚拟线程（JDK 21+），不可用时退化为 pool */
+    public static final String MODE_VIRTUAL = "virtual";
+
+    /** 分发模式：direct / pool / isolated / virtual，默认 pool */
+    private String mode = MODE_POOL;
+
+    /** 共享线程池核心线程数，默认 CPU 核数 * 2 */
+    private int coreThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    /** 共享线程池最大线程数，默认 200 */
+    private int maxThreads = 200;
+
+    /** 共享线程池队列容量，队列满且线程数达上限时拒绝请求，默认 1000 */
+    private int queueCapacity = 1000;
+
+    /** 空闲线程存活时间（毫秒），默认 60000ms */
+    private long keepAliveMs = 60000;
+
+    /** isolated 模式下独占线程池的服务，为空表示所有服务各自独占 */
+    private Set<String> isolatedServices = Set.of();
+
+    /** isolated 模式下每个服务线程池的线程数，默认 16 */
+    private int isolatedThreads = 16;
+
+    /** isolated 模式下每个服务线程池的队列容量，默认 200 */
+    private int isolatedQueueCapacity = 200;
+
+    public static ProviderExecutorConfig direct() {
+        ProviderExecutorConfig config = new ProviderExecutorConfig();
+        config.setMode(MODE_DIRECT);
+        return config;
+    }
+}
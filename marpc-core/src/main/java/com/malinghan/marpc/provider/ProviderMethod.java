@@ -0,0 +1,86 @@
+package com.malinghan.marpc.provider;
+
+import com.malinghan.marpc.exception.MarpcFrameworkException;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import static com.malinghan.marpc.exception.MarpcException.ErrorCode.PROVIDER_REGISTER_FAILED;
+
+/**
+ * Provider 暴露的一个服务方法。id 在 Provider 进程内唯一，启动时按服务名、方法签名排序分配，
+ * 握手时下发给客户端，请求帧可以只携带 id 而不携带服务名与方法签名。
+ *
+ * <p>存在编译期生成的 {@link ProviderSkeleton} 时按方法下标直接调用；否则注册时即把服务 Bean 绑定到
+ * {@link MethodHandle} 上，并适配成 {@code (Object[]) -> Object}。两种方式调用时都不再查找方法、也不经过反射调用。
+ */
+@Getter
+public class ProviderMethod {
+    private final int id;
+    private final String service;
+    private final String method;
+    private final String methodSign;
+    private final Class<?>[] parameterTypes;
+    private final Type[] genericParameterTypes;
+    @Getter(AccessLevel.NONE)
+    private final Object bean;
+    @Getter(AccessLevel.NONE)
+    private final ProviderSkeleton skeleton;
+    @Getter(AccessLevel.NONE)
+    private final int skeletonIndex;
+    @Getter(AccessLevel.NONE)
+    private final MethodHandle invoker;
+
+    /**
+     * @param skeleton      该服务的生成骨架，没有时为 null
+     * @param skeletonIndex 方法在骨架中的下标，小于 0 表示骨架中没有该方法（骨架与接口版本不一致）
+     */
+    ProviderMethod(int id, String service, String methodSign, Method method, Object bean,
+                   ProviderSkeleton skeleton, int skeletonIndex) {
+        this.id = id;
+        this.service = service;
+        this.method = method.getName();
+        this.methodSign = methodSign;
+        this.parameterTypes = method.getParameterTypes();
+        this.genericParameterTypes = method.getGenericParameterTypes();
+        this.bean = bean;
+        boolean generated = skeleton != null && skeletonIndex >= 0;
+        this.skeleton = generated ? skeleton : null;
+        this.skeletonIndex = skeletonIndex;
+        this.invoker = generated ? null : bind(method, bean);
+    }
+
+    /**
+     * 以已转换为参数类型的实参调用服务方法；void 方法返回 null，基本类型返回值自动装箱。
+     * 服务方法抛出的异常原样抛出，不包装为 InvocationTargetException。
+     */
+    public Object invoke(Object[] args) throws Throwable {
+        if (skeleton != null) {
+            return skeleton.invoke(bean, skeletonIndex, args);
+        }
+        return (Object) invoker.invokeExact(args);
+    }
+
+    /** 是否通过编译期生成的骨架调用 */
+    public boolean isGenerated() {
+        return skeleton != null;
+    }
+
+    private static MethodHandle bind(Method method, Object bean) {
+        try {
+            method.trySetAccessible();
+            return MethodHandles.lookup().unreflect(method)
+                    .bindTo(bean)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new MarpcFrameworkException(PROVIDER_REGISTER_FAILED,
+                    "cannot access method: " + method, e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.malinghan.marpc.provider;
+
+/**
+ * 编译期生成的服务端骨架：按方法下标直接调用服务接口方法，不经过反射或 MethodHandle。
+ *
+ * <p>由 marpc-processor 为 {@code @MarpcProvider} 类实现的每个服务接口生成，类名为接口名加
+ * {@link #SUFFIX}（嵌套接口的 {@code $} 替换为 {@code _}），与接口同包。
+ * {@link ProviderBootstrap} 找不到生成类时退回 MethodHandle 调用。
+ */
+public interface ProviderSkeleton {
+
+    String SUFFIX = "_MarpcSkeleton";
+
+    /** 接口全部方法的签名，下标即 {@link #invoke} 的 index */
+    String[] methodSigns();
+
+    /** 以已转换为参数类型的实参调用 bean 上第 index 个方法，void 方法返回 null */
+    Object invoke(Object bean, int index, Object[] args) throws Throwable;
+
+    /** 生成类的全限定名 */
+    static String className(Class<?> service) {
+        String pkg = service.getPackageName();
+        String simple = pkg.isEmpty() ? service.getName() : service.getName().substring(pkg.length() + 1);
+        return (pkg.isEmpty() ? "" : pkg + ".") + simple.replace('$', '_') + SUFFIX;
+    }
+}
@@ -7,6 +7,8 @@ import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -21,7 +23,7 @@ import static com.malinghan.marpc.exception.MarpcException.ErrorCode.*;
  * 基于 maregistry HTTP API 的注册中心实现
  *
  * 接口协议：
- *   POST /reg?service=xxx          body: InstanceMeta JSON  -> 注册
+ *   POST /reg?service=xxx          body: InstanceMeta JSON  -> 注册（元数据放在 parameters 中）
  *   POST /unreg?service=xxx        body: InstanceMeta JSON  -> 注销
  *   GET  /findAll?service=xxx                               -> 查询实例列表
  *   POST /renews?services=a,b,c    body: InstanceMeta JSON  -> 批量心跳续约
@@ -42,6 +44,8 @@ public class MaregistryCenter implements RegistryCenter {
     private final Map<String, Long> versionCache = new ConcurrentHashMap<>();
     // service -> 已知实例列表缓存
     private final Map<String, List<String>> instanceCache = new ConcurrentHashMap<>();
+    // service -> 实例 -> 元数据，随 fetchAll 更新
+    private final Map<String, Map<String, Map<String, String>>> metadataCache = new ConcurrentHashMap<>();
     // 已注册的实例（用于心跳续约）：service -> InstanceMeta JSON
     private final Map<String, String> registeredInstances = new ConcurrentHashMap<>();
 
@@ -77,17 +81,23 @@ public class MaregistryCenter implements RegistryCenter {
         log.info("[MaregistryCenter] 已关闭");
     }
 
+    @Override
+    public void register(String service, String instance) {
+        register(service, instance, Map.of());
+    }
+
     /**
      * 注册服务实例
-     * POST /reg?service=xxx  body: {"scheme":"http","host":"...","port":8080,"context":""}
+     * POST /reg?service=xxx  body: {"scheme":"http","host":"...","port":8080,"context":"","parameters":{...}}
      *
      * @param service  服务名，如 com.example.UserService
      * @param instance 实例地址，格式 host:port
+     * @param metadata 实例元数据，如 weight
      */
     @Override
-    public void register(String service, String instance) {
+    public void register(String service, String instance, Map<String, String> metadata) {
         try {
-            String body = toInstanceMetaJson(instance);
+            String body = toInstanceMetaJson(instance, metadata);
             String url = registryAddress + "/reg?service=" + service;
             post(url, body);
             registeredInstances.put(service, body);
@@ -106,7 +116,7 @@ public class MaregistryCenter implements RegistryCenter {
     @Override
     public void unregister(String service, String instance) {
         try {
-            String body = toInstanceMetaJson(instance);
+            String body = toInstanceMetaJson(instance, Map.of());
             String url = registryAddress + "/unreg?service=" + service;
             post(url, body);
             registeredInstances.remove(service);
@@ -131,7 +141,16 @@ public class MaregistryCenter implements RegistryCenter {
             List<String> instances = metas.stream()
                     .map(m -> m.get("host") + ":" + m.get("port"))
                     .collect(Collectors.toList());
+            Map<String, Map<String, String>> metadata = new HashMap<>();
+            for (Map<String, Object> m : metas) {
+                if (m.get("parameters") instanceof Map<?, ?> params && !params.isEmpty()) {
+                    Map<String, String> values = new HashMap<>();
+                    params.forEach((k, v) -> values.put(String.valueOf(k), String.valueOf(v)));
+                    metadata.put(m.get("host") + ":" + m.get("port"), values);
+                }
+            }
             instanceCache.put(service, instances);
+            metadataCache.put(service, metadata);
             return instances;
         } catch (Exception e) {
             log.warn("[MaregistryCenter] fetchAll 失败: {}, 使用缓存", service, e);
@@ -139,6 +158,19 @@ public class MaregistryCenter implements RegistryCenter {
         }
     }
 
+    /**
+     * 实例元数据，取自最近一次 fetchAll 返回的 parameters；尚未拉取过时先拉取一次
+     */
+    @Override
+    public Map<String, Map<String, String>> fetchMetadata(String service) {
+        Map<String, Map<String, String>> metadata = metadataCache.get(service);
+        if (metadata == null) {
+            fetchAll(service);
+            metadata = metadataCache.get(service);
+        }
+        return metadata == null ? Map.of() : metadata;
+    }
+
     /**
      * 订阅服务变更
      * 基于 GET /version?service=xxx 轮询版本号，版本变化时拉取最新实例列表
@@ -221,10 +253,16 @@ public class MaregistryCenter implements RegistryCenter {
     /**
      * 将 host:port 格式的实例地址转换为 maregistry 要求的 InstanceMeta JSON
      */
-    private String toInstanceMetaJson(String instance) {
+    private String toInstanceMetaJson(String instance, Map<String, String> metadata) {
         String[] parts = instance.split(":");
-        String host = parts[0];
-        int port = Integer.parseInt(parts[1]);
-        return String.format("{\"scheme\":\"http\",\"host\":\"%s\",\"port\":%d,\"context\":\"\"}", host, port);
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("scheme", "http");
+        meta.put("host", parts[0]);
+        meta.put("port", Integer.parseInt(parts[1]));
+        meta.put("context", "");
+        if (!metadata.isEmpty()) {
+            meta.put("parameters", metadata);
+        }
+        return JSON.toJSONString(meta);
     }
 }
\ No newline at end of file
@@ -1,9 +1,18 @@
 package com.malinghan.marpc.registry;
 
 import java.util.List;
+import java.util.Map;
 
 public interface RegistryCenter {
 
+    /** 实例元数据：权重，整数，缺省 {@link #DEFAULT_WEIGHT} */
+    String META_WEIGHT = "weight";
+    /** 实例元数据：预热时长（毫秒），实例上线后权重在该时长内线性爬升 */
+    String META_WARMUP = "warmup";
+    /** 实例元数据：所在可用区 */
+    String META_ZONE = "zone";
+    int DEFAULT_WEIGHT = 100;
+
     void start();
     void stop();
     void register(String service, String instance);
@@ -11,6 +20,16 @@ public interface RegistryCenter {
     List<String> fetchAll(String service);
     void subscribe(String service, ChangeListener listener);
 
+    /** 注册实例并附带元数据，不支持元数据的注册中心忽略元数据 */
+    default void register(String service, String instance, Map<String, String> metadata) {
+        register(service, instance);
+    }
+
+    /** 服务各实例的元数据（实例 -> 元数据），没有元数据的实例不出现在结果中 */
+    default Map<String, Map<String, String>> fetchMetadata(String service) {
+        return Map.of();
+    }
+
     @FunctionalInterface
     interface ChangeListener {
         void onChange(List<String> newInstances);
@@ -1,5 +1,7 @@
 package com.malinghan.marpc.registry;
 
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
 import com.malinghan.marpc.exception.MarpcFrameworkException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
@@ -8,7 +10,10 @@ import org.apache.curator.framework.recipes.cache.TreeCache;
 import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -56,12 +61,21 @@ public class ZkRegistryCenter implements RegistryCenter {
 
     @Override
     public void register(String service, String instance) {
+        register(service, instance, Map.of());
+    }
+
+    /** 元数据以 JSON 写入实例节点的数据，节点已存在时覆盖 */
+    @Override
+    public void register(String service, String instance, Map<String, String> metadata) {
         try {
             String path = buildPath(service, instance);
+            byte[] data = JSON.toJSONString(metadata).getBytes(StandardCharsets.UTF_8);
             if (client.checkExists().forPath(path) == null) {
                 client.create().creatingParentsIfNeeded()
-                        .withMode(CreateMode.EPHEMERAL).forPath(path);
-                log.info("[ZkRegistryCenter] 注册: {}", path);
+                        .withMode(CreateMode.EPHEMERAL).forPath(path, data);
+                log.info("[ZkRegistryCenter] 注册: {} {}", path, metadata);
+            } else {
+                client.setData().forPath(path, data);
             }
         } catch (Exception e) {
             throw new MarpcFrameworkException(PROVIDER_REGISTER_FAILED,
@@ -96,6 +110,29 @@ public class ZkRegistryCenter implements RegistryCenter {
         }
     }
 
+    @Override
+    public Map<String, Map<String, String>> fetchMetadata(String service) {
+        Map<String, Map<String, String>> result = new HashMap<>();
+        try {
+            String parent = buildServicePath(service);
+            if (client.checkExists().forPath(parent) == null) return result;
+            for (String child : client.getChildren().forPath(parent)) {
+                byte[] data;
+                try {
+                    data = client.getData().forPath(parent + "/" + child);
+                } catch (KeeperException.NoNodeException e) {
+                    continue; // 实例在两次读取之间下线
+                }
+                if (data == null || data.length == 0) continue;
+                result.put(child.replace("_", ":"), JSON.parseObject(new String(data, StandardCharsets.UTF_8),
+                        new TypeReference<Map<String, String>>() {}));
+            }
+        } catch (Exception e) {
+            log.warn("[ZkRegistryCenter] 读取元数据失败: {}", service, e);
+        }
+        return result;
+    }
+
     @Override
     public void subscribe(String service, ChangeListener listener) {
         try {
@@ -5,21 +5,28 @@ import lombok.extern.slf4j.Slf4j;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 灰度路由：按比例将流量路由到灰度节点。
  *
  * <p>通过 {@link #markGray(String)} 标记灰度实例，
  * 配置 grayRatio（0-100）控制灰度流量比例。
+ *
+ * <p>灰度 / 正常两组实例在实例列表变更或灰度标记变化时预先划分为不可变的路由表，按服务保存；
+ * 调用时只做一次查表和一次随机数，不再逐个实例划分、分配列表。
  */
 @Slf4j
 public class GrayRouter implements Router {
 
     private final int grayRatio;
-    private final Random random = new Random();
-    private final Map<String, Boolean> grayInstances = new ConcurrentHashMap<>();
+    private final Set<String> grayInstances = ConcurrentHashMap.newKeySet();
+    /** 灰度标记版本号，每次标记变化加一，路由表版本落后时重新划分 */
+    private volatile long version;
+    /** 服务名 -> 路由表 */
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
 
     /**
      * @param grayRatio 灰度流量比例（0-100），0 表示全部正常流量，100 表示全部灰度流量
@@ -33,20 +40,45 @@ public class GrayRouter implements Router {
 
     /** 标记实例为灰度节点 */
     public GrayRouter markGray(String instance) {
-        grayInstances.put(instance, true);
+        if (grayInstances.add(instance)) {
+            recompile();
+        }
         log.info("[GrayRouter] 标记灰度实例: {}", instance);
         return this;
     }
 
     /** 取消灰度标记 */
     public void unmarkGray(String instance) {
-        grayInstances.remove(instance);
+        if (grayInstances.remove(instance)) {
+            recompile();
+        }
         log.info("[GrayRouter] 取消灰度标记: {}", instance);
     }
 
     /** 清空所有灰度标记 */
     public void clearGray() {
         grayInstances.clear();
+        recompile();
+    }
+
+    @Override
+    public void onChange(String service, List<String> instances, Map<String, Map<String, String>> metadata) {
+        tables.put(service, compile(instances, version));
+    }
+
+    @Override
+    public List<String> route(String service, List<String> instances) {
+        if (instances == null || instances.isEmpty()) {
+            return instances;
+        }
+        Table table = tables.get(service);
+        long current = version;
+        if (table == null || table.source != instances || table.version != current) {
+            // 实例列表被前序路由器替换或灰度标记刚变化，重新划分并缓存
+            table = compile(instances, current);
+            tables.put(service, table);
+        }
+        return table.pick(grayRatio);
     }
 
     @Override
@@ -54,41 +86,57 @@ public class GrayRouter implements Router {
         if (instances == null || instances.isEmpty()) {
             return instances;
         }
+        return compile(instances, version).pick(grayRatio);
+    }
 
+    @Override
+    public int order() {
+        return 10;
+    }
+
+    /** 标记变化后按各服务最近的实例列表重建路由表 */
+    private synchronized void recompile() {
+        long next = version + 1;
+        version = next;
+        tables.replaceAll((service, table) -> compile(table.source, next));
+    }
+
+    private Table compile(List<String> instances, long version) {
         List<String> grayList = new ArrayList<>();
         List<String> normalList = new ArrayList<>();
-
         for (String instance : instances) {
-            if (grayInstances.containsKey(instance)) {
+            if (grayInstances.contains(instance)) {
                 grayList.add(instance);
             } else {
                 normalList.add(instance);
             }
         }
+        // 没有灰度实例时直接沿用原列表，下游按引用判断列表未变
+        return new Table(instances, version, List.copyOf(grayList),
+                grayList.isEmpty() ? instances : List.copyOf(normalList));
+    }
 
-        // 无灰度实例，返回全部正常实例
-        if (grayList.isEmpty()) {
-            return normalList;
-        }
+    /** 不可变路由表：来源列表、灰度标记版本及划分结果 */
+    private static final class Table {
+        final List<String> source;
+        final long version;
+        final List<String> gray;
+        final List<String> normal;
 
-        // 无正常实例，返回全部灰度实例
-        if (normalList.isEmpty()) {
-            return grayList;
+        Table(List<String> source, long version, List<String> gray, List<String> normal) {
+            this.source = source;
+            this.version = version;
+            this.gray = gray;
+            this.normal = normal;
         }
 
-        // 按比例路由
-        int dice = random.nextInt(100);
-        if (dice < grayRatio) {
-            log.debug("[GrayRouter] 命中灰度流量（{}%），返回灰度实例: {}", grayRatio, grayList);
-            return grayList;
-        } else {
-            log.debug("[GrayRouter] 命中正常流量，返回正常实例: {}", normalList);
-            return normalList;
+        List<String> pick(int grayRatio) {
+            // 无灰度实例，返回全部正常实例
+            if (gray.isEmpty()) return normal;
+            // 无正常实例，返回全部灰度实例
+            if (normal.isEmpty()) return gray;
+            // 按比例路由
+            return ThreadLocalRandom.current().nextInt(100) < grayRatio ? gray : normal;
         }
     }
-
-    @Override
-    public int order() {
-        return 10;
-    }
 }
@@ -0,0 +1,150 @@
+package com.malinghan.marpc.router;
+
+import com.malinghan.marpc.registry.RegistryCenter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 就近路由：优先同主机，其次同可用区，最后全部实例，减少跨机架、跨可用区的延迟与带宽。
+ *
+ * <p>实例的可用区取自注册中心元数据 {@link RegistryCenter#META_ZONE}，主机取实例地址的 host 部分。
+ * 某一层级中健康实例占比低于 failoverThreshold 时放弃该层级，避免少数本地实例承接全部流量被打垮。
+ * 健康状态按服务记录：同一实例在某个服务上被摘除，不影响它承载的其他服务。
+ *
+ * <p>路由结果在实例列表变更（{@link #onChange}）或健康状态变化时按服务预计算，调用时只做一次查表。
+ * 每个服务的实例列表、元数据、健康状态与路由结果放在一个不可变快照中，在 {@link ConcurrentHashMap#compute} 内整体替换，
+ * 并发的列表变更与健康状态变化不会用旧的计算结果覆盖新的。
+ */
+@Slf4j
+public class LocalityRouter implements Router {
+
+    private final String localHost;
+    private final String localZone;
+    private final double failoverThreshold;
+    /** 服务名 -> 最近一次实例列表、元数据、健康状态与预计算的路由结果 */
+    private final ConcurrentHashMap<String, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * @param localHost         本机地址，与实例地址的 host 部分比较
+     * @param localZone         本机所在可用区，为空时跳过同可用区层级
+     * @param failoverThreshold 层级内健康实例占比的下限（0-1）
+     */
+    public LocalityRouter(String localHost, String localZone, double failoverThreshold) {
+        if (failoverThreshold < 0 || failoverThreshold > 1) {
+            throw new IllegalArgumentException("failoverThreshold 必须在 0-1 之间");
+        }
+        this.localHost = localHost;
+        this.localZone = localZone == null || localZone.isBlank() ? null : localZone;
+        this.failoverThreshold = failoverThreshold;
+    }
+
+    @Override
+    public void onChange(String service, List<String> instances, Map<String, Map<String, String>> metadata) {
+        State state = states.compute(service, (s, old) ->
+                decide(instances, metadata, old == null ? Set.of() : old.unhealthy));
+        log.info("[LocalityRouter] 路由结果: {} -> {}", service, state.result);
+    }
+
+    /** 标记实例在某个服务上的健康状态，变化时只重新计算该服务的路由结果 */
+    public void setHealthy(String service, String instance, boolean healthy) {
+        boolean[] changed = {false};
+        State state = states.compute(service, (s, old) -> {
+            Set<String> current = old == null ? Set.of() : old.unhealthy;
+            if (current.contains(instance) != healthy) return old;
+            changed[0] = true;
+            Set<String> next = new HashSet<>(current);
+            if (healthy) {
+                next.remove(instance);
+            } else {
+                next.add(instance);
+            }
+            return old == null ? new State(null, Map.of(), Set.copyOf(next), null)
+                    : decide(old.source, old.metadata, Set.copyOf(next));
+        });
+        if (changed[0]) {
+            log.info("[LocalityRouter] 实例健康状态变化: {} -> {} {}，路由结果: {}",
+                    service, instance, healthy ? "健康" : "不健康", state.result);
+        }
+    }
+
+    @Override
+    public List<String> route(String service, List<String> instances) {
+        State state = states.get(service);
+        if (state == null) return select(instances, Map.of(), Set.of());
+        if (state.source != null && state.source == instances) return state.result;
+        // 列表已被其他路由器筛选过，按同一快照中的元数据与健康状态现算
+        return select(instances, state.metadata, state.unhealthy);
+    }
+
+    /** 没有服务上下文时无法取得元数据与健康状态，仅按主机筛选 */
+    @Override
+    public List<String> route(List<String> instances) {
+        return select(instances, Map.of(), Set.of());
+    }
+
+    @Override
+    public int order() {
+        return 5;
+    }
+
+    private State decide(List<String> instances, Map<String, Map<String, String>> metadata, Set<String> unhealthy) {
+        return new State(instances, metadata, unhealthy, select(instances, metadata, unhealthy));
+    }
+
+    List<String> select(List<String> instances, Map<String, Map<String, String>> metadata, Set<String> unhealthy) {
+        if (instances == null || instances.isEmpty()) return instances;
+        List<String> host = new ArrayList<>();
+        List<String> zone = new ArrayList<>();
+        for (String instance : instances) {
+            if (isLocalHost(instance)) host.add(instance);
+            if (localZone != null && localZone.equals(zoneOf(instance, metadata))) zone.add(instance);
+        }
+        List<String> selected = healthyTier(host, unhealthy);
+        if (selected == null) selected = healthyTier(zone, unhealthy);
+        if (selected == null) {
+            selected = healthy(instances, unhealthy);
+            // 全部不健康时不做筛选，交给重试与熔断处理
+            if (selected.isEmpty()) selected = instances;
+        }
+        return selected;
+    }
+
+    /** 层级内健康实例占比达到阈值时返回健康实例，否则返回 null 表示降级到下一层级 */
+    private List<String> healthyTier(List<String> tier, Set<String> unhealthy) {
+        if (tier.isEmpty()) return null;
+        List<String> healthy = healthy(tier, unhealthy);
+        if (healthy.isEmpty() || healthy.size() < tier.size() * failoverThreshold) return null;
+        return healthy;
+    }
+
+    private static List<String> healthy(List<String> instances, Set<String> unhealthy) {
+        if (unhealthy.isEmpty()) return instances;
+        List<String> result = new ArrayList<>(instances.size());
+        for (String instance : instances) {
+            if (!unhealthy.contains(instance)) result.add(instance);
+        }
+        return result;
+    }
+
+    private boolean isLocalHost(String instance) {
+        int colon = instance.lastIndexOf(':');
+        String host = colon < 0 ? instance : instance.substring(0, colon);
+        return host.equals(localHost) || host.equals("localhost") || host.equals("127.0.0.1");
+    }
+
+    private static String zoneOf(String instance, Map<String, Map<String, String>> metadata) {
+        Map<String, String> meta = metadata.get(instance);
+        return meta == null ? null : meta.get(RegistryCenter.META_ZONE);
+    }
+
+    /** 一个服务的不可变快照；收到实例列表之前 source 与 result 为 null，只记录健康状态 */
+    private record State(List<String> source, Map<String, Map<String, String>> metadata,
+                         Set<String> unhealthy, List<String> result) {
+    }
+}
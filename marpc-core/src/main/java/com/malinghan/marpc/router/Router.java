@@ -1,6 +1,7 @@
 package com.malinghan.marpc.router;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 路由接口：根据策略筛选实例列表。
@@ -14,6 +15,22 @@ public interface Router {
      */
     List<String> route(List<String> instances);
 
+    /**
+     * 按服务路由，默认忽略服务名。需要按服务预计算结果的路由器覆盖此方法。
+     * @param service   服务接口全限定名
+     * @param instances 候选实例列表，未经其他路由器筛选时与最近一次 {@link #onChange} 传入的是同一个列表对象
+     */
+    default List<String> route(String service, List<String> instances) {
+        return route(instances);
+    }
+
+    /**
+     * 服务实例列表变更回调（含启动时的首次拉取），在新列表对调用方可见之前执行。
+     * @param metadata 实例 -> 注册中心元数据
+     */
+    default void onChange(String service, List<String> instances, Map<String, Map<String, String>> metadata) {
+    }
+
     /**
      * 路由优先级，数值越小越先执行。默认 0。
      */
@@ -0,0 +1,65 @@
+package com.malinghan.marpc.serialization;
+
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONReader;
+import com.malinghan.marpc.core.RpcResponse;
+
+import java.lang.reflect.Type;
+
+/**
+ * json / jsonb 共用的按类型流式解析：字节直接解析为声明类型的对象，不先构造 JSONObject 树再转换。
+ */
+final class FastjsonReaders {
+
+    private FastjsonReaders() {
+    }
+
+    /** 实参数组：第 i 个元素按 types[i] 解析，多余的元素丢弃 */
+    static Object[] readArgs(JSONReader reader, Type[] types) {
+        try (reader) {
+            if (reader.nextIfNull()) return null;
+            // JSONB 数组头带元素个数；文本 JSON 无法预知个数，以 ']' 判断结束
+            int count;
+            if (reader.isJSONB()) {
+                count = reader.startArray();
+            } else if (reader.nextIfArrayStart()) {
+                count = Integer.MAX_VALUE;
+            } else {
+                throw new JSONException(reader.info("expect args array"));
+            }
+            Object[] args = new Object[Math.min(count, types.length)];
+            int i = 0;
+            for (; i < args.length; i++) {
+                if (!reader.isJSONB() && reader.nextIfArrayEnd()) break;
+                args[i] = reader.read(types[i]);
+            }
+            if (i < args.length) {
+                Object[] shorter = new Object[i];
+                System.arraycopy(args, 0, shorter, 0, i);
+                return shorter;
+            }
+            return args;
+        }
+    }
+
+    /** 响应对象：data 按 dataType 解析，其余字段按 {@link RpcResponse} 的定义读取 */
+    static RpcResponse readResponse(JSONReader reader, Type dataType) {
+        try (reader) {
+            if (reader.nextIfNull()) return null;
+            if (!reader.nextIfObjectStart()) {
+                throw new JSONException(reader.info("expect RpcResponse object"));
+            }
+            RpcResponse response = new RpcResponse();
+            while (!reader.nextIfObjectEnd()) {
+                String name = reader.readFieldName();
+                switch (name) {
+                    case "status" -> response.setStatus(reader.readBoolValue());
+                    case "data" -> response.setData(reader.read(dataType));
+                    case "errorMessage" -> response.setErrorMessage(reader.readString());
+                    default -> reader.skipValue();
+                }
+            }
+            return response;
+        }
+    }
+}
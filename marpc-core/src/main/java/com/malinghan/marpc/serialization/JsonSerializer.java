@@ -0,0 +1,68 @@
+package com.malinghan.marpc.serialization;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONReader;
+import com.malinghan.marpc.core.RpcResponse;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * fastjson2 文本 JSON，所有版本的对端都支持，是协商失败时的兜底方式。
+ */
+public class JsonSerializer implements Serializer {
+
+    public static final byte ID = 1;
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        return JSON.toJSONBytes(value);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, int offset, int length, Class<T> type) {
+        return JSON.parseObject(bytes, offset, length, StandardCharsets.UTF_8, type);
+    }
+
+    @Override
+    public void serialize(Object value, OutputStream out) {
+        JSON.writeTo(out, value);
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) {
+        return JSON.parseObject(in, StandardCharsets.UTF_8, type);
+    }
+
+    @Override
+    public Object[] deserializeArgs(byte[] bytes, int offset, int length, Type[] types) {
+        return FastjsonReaders.readArgs(JSONReader.of(bytes, offset, length, StandardCharsets.UTF_8), types);
+    }
+
+    @Override
+    public RpcResponse deserializeResponse(byte[] bytes, int offset, int length, Type dataType) {
+        return FastjsonReaders.readResponse(JSONReader.of(bytes, offset, length, StandardCharsets.UTF_8), dataType);
+    }
+
+    @Override
+    public Object[] deserializeArgs(InputStream in, Type[] types) {
+        return FastjsonReaders.readArgs(JSONReader.of(in, StandardCharsets.UTF_8), types);
+    }
+
+    @Override
+    public RpcResponse deserializeResponse(InputStream in, Type dataType) {
+        return FastjsonReaders.readResponse(JSONReader.of(in, StandardCharsets.UTF_8), dataType);
+    }
+}
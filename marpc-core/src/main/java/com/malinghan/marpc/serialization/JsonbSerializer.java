@@ -0,0 +1,93 @@
+package com.malinghan.marpc.serialization;
+
+import com.alibaba.fastjson2.JSONB;
+import com.alibaba.fastjson2.JSONReader;
+import com.malinghan.marpc.core.RpcResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * fastjson2 JSONB 二进制格式：与 JSON 数据模型一致（未声明类型的字段同样解析为 JSONObject / JSONArray），
+ * 体积更小、编解码更快。
+ *
+ * <p>JSONB 解析器只接受连续的 byte[]：从流解析时读入按线程复用的缓冲区，不为每次调用分配数组。
+ */
+public class JsonbSerializer implements Serializer {
+
+    public static final byte ID = 2;
+
+    /** 复用缓冲区的上限，更大的 payload 单独分配，避免线程长期持有大数组 */
+    private static final int MAX_SCRATCH = 64 * 1024;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return "jsonb";
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        return JSONB.toBytes(value);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, int offset, int length, Class<T> type) {
+        return JSONB.parseObject(bytes, offset, length, type);
+    }
+
+    @Override
+    public Object[] deserializeArgs(byte[] bytes, int offset, int length, Type[] types) {
+        return FastjsonReaders.readArgs(JSONReader.ofJSONB(bytes, offset, length), types);
+    }
+
+    @Override
+    public RpcResponse deserializeResponse(byte[] bytes, int offset, int length, Type dataType) {
+        return FastjsonReaders.readResponse(JSONReader.ofJSONB(bytes, offset, length), dataType);
+    }
+
+    @Override
+    public Object[] deserializeArgs(InputStream in, Type[] types) {
+        Bytes bytes = read(in);
+        return FastjsonReaders.readArgs(JSONReader.ofJSONB(bytes.array(), 0, bytes.length()), types);
+    }
+
+    @Override
+    public RpcResponse deserializeResponse(InputStream in, Type dataType) {
+        Bytes bytes = read(in);
+        return FastjsonReaders.readResponse(JSONReader.ofJSONB(bytes.array(), 0, bytes.length()), dataType);
+    }
+
+    /** 读出流中全部字节：长度已知且不超过上限时读入线程复用的缓冲区 */
+    private static Bytes read(InputStream in) {
+        try {
+            int available = in.available();
+            if (available <= 0 || available > MAX_SCRATCH) {
+                byte[] all = in.readAllBytes();
+                return new Bytes(all, all.length);
+            }
+            byte[] scratch = SCRATCH.get();
+            if (scratch.length < available) {
+                scratch = new byte[Math.min(MAX_SCRATCH, Math.max(available, scratch.length << 1))];
+                SCRATCH.set(scratch);
+            }
+            int n = in.readNBytes(scratch, 0, available);
+            if (in.read() != -1) {
+                throw new IllegalStateException("输入流长度与 available() 不一致");
+            }
+            return new Bytes(scratch, n);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Bytes(byte[] array, int length) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.malinghan.marpc.serialization;
+
+import com.malinghan.marpc.core.RpcResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * 序列化 SPI。内置 json / jsonb，自定义实现通过
+ * {@code META-INF/services/com.malinghan.marpc.serialization.Serializer} 注册。
+ *
+ * <p>{@link #id()} 写入 v2 帧头的 serializer 字段，两端按编号识别，必须全局唯一；
+ * 实现需线程安全。
+ */
+public interface Serializer {
+
+    /** 帧头中的序列化编号，1~127，内置实现占用 1~15 */
+    byte id();
+
+    /** 配置中使用的名称 */
+    String name();
+
+    byte[] serialize(Object value);
+
+    <T> T deserialize(byte[] bytes, int offset, int length, Class<T> type);
+
+    /** 序列化到输出流，默认先得到 byte[] 再整体写出 */
+    default void serialize(Object value, OutputStream out) {
+        try {
+            out.write(serialize(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** 从输入流反序列化，默认读出全部字节再解析 */
+    default <T> T deserialize(InputStream in, Class<T> type) {
+        try {
+            byte[] bytes = in.readAllBytes();
+            return deserialize(bytes, 0, bytes.length, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 解析实参数组，第 i 个元素按 types[i]（方法的泛型参数类型）转换。
+     * 默认先解析为 Object[] 再逐个转换，实现可覆盖为按类型一次解析。
+     */
+    default Object[] deserializeArgs(byte[] bytes, int offset, int length, Type[] types) {
+        return Types.coerce(deserialize(bytes, offset, length, Object[].class), types);
+    }
+
+    /**
+     * 解析响应，data 按 dataType（方法的泛型返回类型）转换。
+     * 默认先解析为 RpcResponse 再转换 data，实现可覆盖为按类型一次解析。
+     */
+    default RpcResponse deserializeResponse(byte[] bytes, int offset, int length, Type dataType) {
+        RpcResponse response = deserialize(bytes, offset, length, RpcResponse.class);
+        if (response != null) {
+            response.setData(Types.coerce(response.getData(), dataType));
+        }
+        return response;
+    }
+
+    /** 从输入流解析实参数组（如堆外 ByteBuf），默认读出全部字节再解析，实现可覆盖为流式解析 */
+    default Object[] deserializeArgs(InputStream in, Type[] types) {
+        try {
+            byte[] bytes = in.readAllBytes();
+            return deserializeArgs(bytes, 0, bytes.length, types);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** 从输入流解析响应（如堆外 ByteBuf），默认读出全部字节再解析，实现可覆盖为流式解析 */
+    default RpcResponse deserializeResponse(InputStream in, Type dataType) {
+        try {
+            byte[] bytes = in.readAllBytes();
+            return deserializeResponse(bytes, 0, bytes.length, dataType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.malinghan.marpc.serialization;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 序列化实现注册表：内置 json / jsonb，另加载 ServiceLoader 注册的实现。按编号或名称查找。
+ */
+@Slf4j
+public final class Serializers {
+
+    private static final Serializer[] BY_ID = new Serializer[128];
+
+    static {
+        register(new JsonSerializer());
+        register(new JsonbSerializer());
+        for (Serializer serializer : ServiceLoader.load(Serializer.class)) {
+            register(serializer);
+        }
+    }
+
+    private Serializers() {
+    }
+
+    private static void register(Serializer serializer) {
+        int id = serializer.id();
+        if (id <= 0) {
+            log.warn("[Serializers] 序列化编号非法, 忽略: {} id={}", serializer.getClass().getName(), id);
+            return;
+        }
+        if (BY_ID[id] != null) {
+            log.warn("[Serializers] 序列化编号 {} 冲突, 忽略 {}（已注册 {}）",
+                    id, serializer.getClass().getName(), BY_ID[id].getClass().getName());
+            return;
+        }
+        BY_ID[id] = serializer;
+    }
+
+    public static Serializer json() {
+        return BY_ID[JsonSerializer.ID];
+    }
+
+    /** 按编号查找，未知编号返回 null */
+    public static Serializer byId(int id) {
+        return id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+    /** 按名称查找，空名称返回 json，未知名称抛出 IllegalArgumentException */
+    public static Serializer byName(String name) {
+        if (name == null || name.isBlank()) return json();
+        for (Serializer serializer : BY_ID) {
+            if (serializer != null && serializer.name().equalsIgnoreCase(name)) return serializer;
+        }
+        throw new IllegalArgumentException("不支持的序列化方式: " + name);
+    }
+
+    /** 本端支持的全部编号 */
+    public static List<Integer> ids() {
+        List<Integer> ids = new ArrayList<>();
+        for (Serializer serializer : BY_ID) {
+            if (serializer != null) ids.add((int) serializer.id());
+        }
+        return ids;
+    }
+}
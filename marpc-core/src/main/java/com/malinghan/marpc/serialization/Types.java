@@ -0,0 +1,53 @@
+package com.malinghan.marpc.serialization;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.util.TypeUtils;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * 按声明类型（含泛型）转换已解析的值。
+ *
+ * <p>已按类型解析过的值原样返回，只有未带类型信息的值（JSONObject / JSONArray、数字类型不一致等）才会转换，
+ * 因此对一次解析得到的结果再调用也不会产生第二次转换。
+ */
+public final class Types {
+
+    private Types() {
+    }
+
+    public static Object coerce(Object value, Type type) {
+        if (value == null || type == null || type == Object.class) return value;
+        Class<?> raw = boxed(rawClass(type));
+        boolean tree = value instanceof JSONObject || value instanceof JSONArray;
+        if (raw.isInstance(value) && (!tree || type instanceof Class)) {
+            return value;
+        }
+        return TypeUtils.cast(value, type instanceof Class ? raw : type);
+    }
+
+    /** 按下标逐个转换，types 比 values 短时多出的值原样保留 */
+    public static Object[] coerce(Object[] values, Type[] types) {
+        if (values == null) return null;
+        for (int i = 0; i < values.length && i < types.length; i++) {
+            values[i] = coerce(values[i], types[i]);
+        }
+        return values;
+    }
+
+    static Class<?> rawClass(Type type) {
+        if (type instanceof Class<?> c) return c;
+        if (type instanceof ParameterizedType p && p.getRawType() instanceof Class<?> c) return c;
+        if (type instanceof GenericArrayType g) return Array.newInstance(rawClass(g.getGenericComponentType()), 0).getClass();
+        return Object.class;
+    }
+
+    static Class<?> boxed(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+}
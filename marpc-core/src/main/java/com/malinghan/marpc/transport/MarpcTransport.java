@@ -9,6 +9,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 public class MarpcTransport {
 
@@ -19,14 +21,15 @@ public class MarpcTransport {
     }
 
     @PostMapping("/marpc")
-    public RpcResponse invoke(@RequestBody RpcRequest request) {
+    public CompletableFuture<RpcResponse> invoke(@RequestBody RpcRequest request) {
         if (request.getContext() != null && !request.getContext().isEmpty()) {
             RpcContext.setAll(request.getContext());
         }
         try {
-            return providerBootstrap.invoke(request);
+            // 返回 Future 交由 Spring MVC 异步处理，异步服务方法不占用 Servlet 线程
+            return providerBootstrap.invokeAsync(request);
         } catch (MarpcBizException e) {
-            return RpcResponse.error(e.getErrorCode() + ": " + e.getMessage());
+            return CompletableFuture.completedFuture(RpcResponse.error(e.getErrorCode() + ": " + e.getMessage()));
         } finally {
             RpcContext.clear();
         }
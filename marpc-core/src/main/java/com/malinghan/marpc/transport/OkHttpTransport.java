@@ -1,19 +1,28 @@
 package com.malinghan.marpc.transport;
 
-import com.alibaba.fastjson2.JSON;
 import com.malinghan.marpc.core.RpcRequest;
 import com.malinghan.marpc.core.RpcResponse;
 import com.malinghan.marpc.exception.MarpcNetworkException;
+import com.malinghan.marpc.serialization.Serializer;
+import com.malinghan.marpc.serialization.Serializers;
 import okhttp3.*;
 
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static com.malinghan.marpc.exception.MarpcException.ErrorCode.NETWORK_ERROR;
 
+/**
+ * HTTP 传输：请求体与响应体固定为 json（Provider 端由 Spring MVC 解析），以 UTF-8 字节直接编解码，不经过中间 String。
+ */
 public class OkHttpTransport implements RpcTransport {
 
     private static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
 
+    private final Serializer serializer = Serializers.json();
+
     private final OkHttpClient client;
 
     public OkHttpTransport(int timeoutMs) {
@@ -26,17 +35,76 @@ public class OkHttpTransport implements RpcTransport {
 
     @Override
     public RpcResponse send(String instance, RpcRequest request) {
+        return send(instance, request, Object.class, 0);
+    }
+
+    /** timeoutMs 大于 0 时作为本次调用的整体超时（OkHttp callTimeout） */
+    @Override
+    public RpcResponse send(String instance, RpcRequest request, Type dataType, int timeoutMs) {
         try {
-            String url = "http://" + instance + "/marpc";
-            String body = JSON.toJSONString(request);
-            Request httpRequest = new Request.Builder()
-                    .url(url).post(RequestBody.create(body, JSON_TYPE)).build();
-            try (Response resp = client.newCall(httpRequest).execute()) {
-                String json = resp.body().string();
-                return JSON.parseObject(json, RpcResponse.class);
+            try (Response resp = newCall(instance, request, timeoutMs).execute()) {
+                return readResponse(resp);
             }
         } catch (Exception e) {
             throw new MarpcNetworkException(NETWORK_ERROR, "call failed: " + instance, e);
         }
     }
+
+    /** 基于 OkHttp enqueue 的异步调用，响应在 OkHttp Dispatcher 线程上完成 */
+    @Override
+    public CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request) {
+        return sendAsync(instance, request, Object.class, 0);
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request, Type dataType, int timeoutMs) {
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        Call call;
+        try {
+            call = newCall(instance, request, timeoutMs);
+        } catch (Exception e) {
+            future.completeExceptionally(new MarpcNetworkException(NETWORK_ERROR, "call failed: " + instance, e));
+            return future;
+        }
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(new MarpcNetworkException(NETWORK_ERROR, "call failed: " + instance, e));
+            }
+
+            @Override
+            public void onResponse(Call c, Response resp) {
+                try (resp) {
+                    future.complete(readResponse(resp));
+                } catch (Exception e) {
+                    future.completeExceptionally(new MarpcNetworkException(NETWORK_ERROR, "call failed: " + instance, e));
+                }
+            }
+        });
+        // 调用方取消 Future 时同步取消底层 HTTP 请求
+        future.whenComplete((r, e) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        return future;
+    }
+
+    private Call newCall(String instance, RpcRequest request, int timeoutMs) {
+        Call call = client.newCall(buildRequest(instance, request));
+        if (timeoutMs > 0) {
+            call.timeout().timeout(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    private Request buildRequest(String instance, RpcRequest request) {
+        String url = "http://" + instance + "/marpc";
+        byte[] body = serializer.serialize(request);
+        return new Request.Builder()
+                .url(url).post(RequestBody.create(body, JSON_TYPE)).build();
+    }
+
+    private RpcResponse readResponse(Response resp) throws IOException {
+        byte[] body = resp.body().bytes();
+        return serializer.deserialize(body, 0, body.length, RpcResponse.class);
+    }
 }
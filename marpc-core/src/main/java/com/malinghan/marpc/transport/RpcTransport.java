@@ -3,6 +3,56 @@ package com.malinghan.marpc.transport;
 import com.malinghan.marpc.core.RpcRequest;
 import com.malinghan.marpc.core.RpcResponse;
 
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface RpcTransport {
     RpcResponse send(String instance, RpcRequest request);
+
+    /**
+     * 异步发送：立即返回 Future，响应到达或调用失败时完成，调用线程不阻塞。
+     * 失败时 Future 以 {@link com.malinghan.marpc.exception.MarpcNetworkException} 异常完成。
+     *
+     * <p>默认实现退化为同步调用，具体传输层应覆盖为真正的非阻塞实现。
+     */
+    default CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request) {
+        try {
+            return CompletableFuture.completedFuture(send(instance, request));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 带返回值类型的发送：dataType 为方法的泛型返回类型，支持的传输层据此把响应的 data 一次解析为目标类型。
+     * 默认忽略类型，由调用方再转换。
+     */
+    default RpcResponse send(String instance, RpcRequest request, Type dataType) {
+        return send(instance, request);
+    }
+
+    /** {@link #send(String, RpcRequest, Type)} 的异步版本 */
+    default CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request, Type dataType) {
+        return sendAsync(instance, request);
+    }
+
+    /**
+     * 带方法级超时的发送：timeoutMs 大于 0 时覆盖传输层的全局超时，否则使用全局超时。
+     * 默认忽略 timeoutMs。
+     */
+    default RpcResponse send(String instance, RpcRequest request, Type dataType, int timeoutMs) {
+        return send(instance, request, dataType);
+    }
+
+    /** {@link #send(String, RpcRequest, Type, int)} 的异步版本 */
+    default CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request, Type dataType, int timeoutMs) {
+        return sendAsync(instance, request, dataType);
+    }
+
+    /**
+     * 服务实例列表变更回调（含启动时的首次拉取），持有长连接的传输层据此释放已下线实例的连接。默认忽略。
+     */
+    default void onChange(String service, List<String> instances) {
+    }
 }
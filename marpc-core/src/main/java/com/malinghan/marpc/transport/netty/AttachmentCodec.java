@@ -0,0 +1,64 @@
+package com.malinghan.marpc.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.EncoderException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * v2 帧附加信息区的二进制 k/v 编码：count(2) 之后每项为 keyLength(2) key valueLength(2) value，均为 UTF-8。
+ */
+final class AttachmentCodec {
+
+    private AttachmentCodec() {
+    }
+
+    /** 写入附加信息，返回写入的字节数；空 Map 不写任何字节 */
+    static int write(Map<String, String> attachments, ByteBuf out) {
+        if (attachments == null || attachments.isEmpty()) return 0;
+        int start = out.writerIndex();
+        int countIndex = start;
+        out.writeShort(0);
+        int count = 0;
+        for (Map.Entry<String, String> e : attachments.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) continue;
+            writeString(e.getKey(), out);
+            writeString(e.getValue(), out);
+            count++;
+        }
+        out.setShort(countIndex, count);
+        int length = out.writerIndex() - start;
+        if (length > MarpcProtocol.MAX_ATTACHMENT_LENGTH) {
+            throw new EncoderException("附加信息过大: " + length + " bytes");
+        }
+        return length;
+    }
+
+    /** 读取 [index, index + length) 区域的附加信息，不改变 in 的 readerIndex */
+    static Map<String, String> read(ByteBuf in, int index, int length) {
+        int end = index + length;
+        int count = in.getUnsignedShort(index);
+        index += 2;
+        Map<String, String> attachments = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count && index < end; i++) {
+            int keyLength = in.getUnsignedShort(index);
+            String key = in.toString(index + 2, keyLength, StandardCharsets.UTF_8);
+            index += 2 + keyLength;
+            int valueLength = in.getUnsignedShort(index);
+            String value = in.toString(index + 2, valueLength, StandardCharsets.UTF_8);
+            index += 2 + valueLength;
+            attachments.put(key, value);
+        }
+        return attachments;
+    }
+
+    private static void writeString(String s, ByteBuf out) {
+        int lengthIndex = out.writerIndex();
+        out.writeShort(0);
+        int length = ByteBufUtil.writeUtf8(out, s);
+        out.setShort(lengthIndex, length);
+    }
+}
@@ -0,0 +1,81 @@
+package com.malinghan.marpc.transport.netty;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * payload 压缩统计：压缩率与压缩 / 解压耗费的 CPU 时间。
+ */
+public class CompressionStats {
+
+    private final LongAdder compressedFrames = new LongAdder();
+    private final LongAdder skippedFrames = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressedFrames = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    void recordCompress(int raw, int compressed, long nanos) {
+        compressedFrames.increment();
+        rawBytes.add(raw);
+        compressedBytes.add(compressed);
+        compressNanos.add(nanos);
+    }
+
+    /** 达到阈值但压缩后没有变小，按原文发送 */
+    void recordSkip(long nanos) {
+        skippedFrames.increment();
+        compressNanos.add(nanos);
+    }
+
+    void recordDecompress(long nanos) {
+        decompressedFrames.increment();
+        decompressNanos.add(nanos);
+    }
+
+    public long getCompressedFrames() {
+        return compressedFrames.sum();
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames.sum();
+    }
+
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /** 压缩率：压缩后字节数 / 原始字节数，越小越好；未压缩过时为 1 */
+    public double getCompressionRatio() {
+        long raw = getRawBytes();
+        return raw == 0 ? 1 : (double) getCompressedBytes() / raw;
+    }
+
+    /** 压缩累计耗时（纳秒），包含压缩后未变小而放弃的帧 */
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    public long getDecompressedFrames() {
+        return decompressedFrames.sum();
+    }
+
+    /** 解压累计耗时（纳秒） */
+    public long getDecompressNanos() {
+        return decompressNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "compressed=" + getCompressedFrames()
+                + ", skipped=" + getSkippedFrames()
+                + ", ratio=" + String.format("%.3f", getCompressionRatio())
+                + ", compressMs=" + getCompressNanos() / 1_000_000
+                + ", decompressed=" + getDecompressedFrames()
+                + ", decompressMs=" + getDecompressNanos() / 1_000_000;
+    }
+}
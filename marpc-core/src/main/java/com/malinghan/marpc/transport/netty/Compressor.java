@@ -0,0 +1,23 @@
+package com.malinghan.marpc.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * payload 压缩算法。实现需无状态或线程安全，会被业务线程与 I/O 线程并发调用。
+ */
+interface Compressor {
+
+    /** 写入帧头 type 字节高位的算法编号，取值 1~7 */
+    byte id();
+
+    String name();
+
+    /** 压缩 in 的可读区域并追加到 out，不改变 in 的 readerIndex */
+    void compress(ByteBuf in, ByteBuf out);
+
+    /**
+     * 解压 in 的可读区域并追加到 out，不改变 in 的 readerIndex。
+     * 解压结果超过 maxLength 字节时抛出 {@link io.netty.handler.codec.compression.DecompressionException}。
+     */
+    void decompress(ByteBuf in, ByteBuf out, int maxLength);
+}
@@ -0,0 +1,37 @@
+package com.malinghan.marpc.transport.netty;
+
+/**
+ * 压缩算法注册表：按帧头中的编号或配置中的名称查找。
+ */
+final class Compressors {
+
+    static final String NONE = "none";
+
+    private static final Compressor[] BY_ID = new Compressor[8];
+
+    static {
+        register(new DeflateCompressor());
+        register(new SnappyCompressor());
+    }
+
+    private Compressors() {
+    }
+
+    private static void register(Compressor compressor) {
+        BY_ID[compressor.id()] = compressor;
+    }
+
+    /** 按编号查找，未知编号返回 null */
+    static Compressor byId(int id) {
+        return id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+    /** 按名称查找，none / 空返回 null，未知名称抛出 IllegalArgumentException */
+    static Compressor byName(String name) {
+        if (name == null || name.isBlank() || NONE.equalsIgnoreCase(name)) return null;
+        for (Compressor compressor : BY_ID) {
+            if (compressor != null && compressor.name().equalsIgnoreCase(name)) return compressor;
+        }
+        throw new IllegalArgumentException("不支持的压缩算法: " + name);
+    }
+}
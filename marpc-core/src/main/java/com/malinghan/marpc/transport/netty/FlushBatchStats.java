@@ -0,0 +1,75 @@
+package com.malinghan.marpc.transport.netty;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量 flush 统计：每次 flush 合并的帧数与字节数，按 2 的幂分桶记录直方图。
+ *
+ * <p>帧数桶：[1]、[2]、[3,4]、[5,8] ... [65,128]、[129,∞)，共 9 个。
+ */
+public class FlushBatchStats {
+
+    public static final int BUCKETS = 9;
+
+    private final AtomicLongArray frameHistogram = new AtomicLongArray(BUCKETS);
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder frameCount = new LongAdder();
+    private final LongAdder byteCount = new LongAdder();
+
+    void record(int frames, long bytes) {
+        if (frames <= 0) return;
+        frameHistogram.incrementAndGet(bucket(frames));
+        flushCount.increment();
+        frameCount.add(frames);
+        byteCount.add(bytes);
+    }
+
+    /** 帧数为 frames 的 flush 所在的桶下标 */
+    static int bucket(int frames) {
+        int b = 32 - Integer.numberOfLeadingZeros(frames - 1);
+        return Math.min(b, BUCKETS - 1);
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getFrameCount() {
+        return frameCount.sum();
+    }
+
+    public long getByteCount() {
+        return byteCount.sum();
+    }
+
+    /** 平均每次 flush 合并的帧数 */
+    public double getAverageBatchSize() {
+        long flushes = getFlushCount();
+        return flushes == 0 ? 0 : (double) getFrameCount() / flushes;
+    }
+
+    /** 帧数直方图快照，下标含义见类注释 */
+    public long[] getFrameHistogram() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = frameHistogram.get(i);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("flushes=").append(getFlushCount())
+                .append(", frames=").append(getFrameCount())
+                .append(", bytes=").append(getByteCount())
+                .append(", avgBatch=").append(String.format("%.2f", getAverageBatchSize()))
+                .append(", histogram={");
+        long[] histogram = getFrameHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(i == BUCKETS - 1 ? (1 << (i - 1)) + 1 + "+" : "<=" + (1 << i)).append(':').append(histogram[i]);
+        }
+        return sb.append('}').toString();
+    }
+}
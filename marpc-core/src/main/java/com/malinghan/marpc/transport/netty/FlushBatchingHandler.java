@@ -0,0 +1,113 @@
+package com.malinghan.marpc.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写合并：把短时间内的多次 flush 合并为一次系统调用。
+ *
+ * <p>位于 {@link MarpcFrameEncoder} 之前（出站方向在其之后），看到的是编码后的 ByteBuf。
+ * write 直接下传、只累计字节数；flush 被推迟，满足以下任一条件时才真正 flush：
+ * <ul>
+ *   <li>累计字节数达到 maxBytes 或帧数达到 maxFrames</li>
+ *   <li>windowMicros &gt; 0：距第一次被推迟的 flush 超过 windowMicros</li>
+ *   <li>windowMicros = 0：当前 EventLoop 已排队的任务执行完毕（同一轮内的写自然合并，不增加延迟）</li>
+ * </ul>
+ * windowMicros &lt; 0 时不合并，每次 flush 立即下传。
+ *
+ * <p>所有状态只在 Channel 所属 EventLoop 上访问，无需同步。
+ */
+public class FlushBatchingHandler extends ChannelDuplexHandler {
+
+    private final long windowMicros;
+    private final int maxBytes;
+    private final int maxFrames;
+    private final FlushBatchStats stats;
+
+    private int pendingFrames;
+    private long pendingBytes;
+    private boolean flushPending;
+    private ScheduledFuture<?> scheduledFlush;
+    private ChannelHandlerContext ctx;
+    private final Runnable flushTask = this::flushNow;
+
+    public FlushBatchingHandler(long windowMicros, int maxBytes, int maxFrames, FlushBatchStats stats) {
+        this.windowMicros = windowMicros;
+        this.maxBytes = maxBytes;
+        this.maxFrames = maxFrames;
+        this.stats = stats;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof ByteBuf buf) {
+            pendingBytes += buf.readableBytes();
+        }
+        pendingFrames++;
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        if (windowMicros < 0 || pendingBytes >= maxBytes || pendingFrames >= maxFrames) {
+            flushNow();
+            return;
+        }
+        if (flushPending) return;
+        flushPending = true;
+        if (windowMicros == 0) {
+            ctx.executor().execute(flushTask);
+        } else {
+            scheduledFlush = ctx.executor().schedule(flushTask, windowMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 出站缓冲区积压时立即 flush，避免 pending 数据让 Channel 一直不可写
+        if (!ctx.channel().isWritable()) {
+            flushNow();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushNow();
+        ctx.close(promise);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushNow();
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        flushNow();
+    }
+
+    private void flushNow() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        flushPending = false;
+        if (pendingFrames == 0) return;
+        stats.record(pendingFrames, pendingBytes);
+        pendingFrames = 0;
+        pendingBytes = 0;
+        ctx.flush();
+    }
+}
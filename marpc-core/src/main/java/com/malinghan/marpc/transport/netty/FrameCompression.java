@@ -0,0 +1,115 @@
+package com.malinghan.marpc.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.DecompressionException;
+
+/**
+ * 帧级 payload 压缩：只压缩达到阈值的 payload，压缩后不变小则按原文发送。
+ *
+ * <p>协商方式：客户端在请求帧 type 字节中声明首选算法；服务端开启压缩且支持该算法时，
+ * 响应帧回带同一算法编号（大响应按该算法压缩），客户端据此得知对端支持，之后的大请求也开始压缩。
+ * 不认识算法编号的旧服务端忽略这些位，响应不带编号，客户端就始终发送原文。
+ */
+final class FrameCompression {
+
+    static final FrameCompression DISABLED = new FrameCompression(null, Integer.MAX_VALUE);
+
+    /** 默认的解压后 payload 上限：16MB */
+    static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 16 * 1024 * 1024;
+
+    /** 客户端：首选算法；服务端：非 null 表示开启压缩，算法跟随请求 */
+    private final Compressor compressor;
+    private final int threshold;
+    /** 解压后 payload 的上限，防止少量压缩数据膨胀成巨大缓冲区（压缩炸弹） */
+    private final int maxDecompressedSize;
+    private final CompressionStats stats = new CompressionStats();
+
+    FrameCompression(Compressor compressor, int threshold) {
+        this(compressor, threshold, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    FrameCompression(Compressor compressor, int threshold, int maxDecompressedSize) {
+        this.compressor = compressor;
+        this.threshold = threshold;
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    static FrameCompression of(NettyConfig config) {
+        Compressor compressor = Compressors.byName(config.getCompression());
+        return new FrameCompression(compressor, compressor == null ? Integer.MAX_VALUE : config.getCompressThreshold(),
+                config.getMaxDecompressedSize());
+    }
+
+    boolean isEnabled() {
+        return compressor != null;
+    }
+
+    /** 本端首选的算法编号，未开启时为 0 */
+    byte codec() {
+        return compressor == null ? MarpcProtocol.CODEC_NONE : compressor.id();
+    }
+
+    /** 服务端：按请求声明的算法决定响应使用的算法，不支持或未开启时为 0 */
+    byte accept(byte requestedCodec) {
+        return compressor != null && Compressors.byId(requestedCodec) != null
+                ? requestedCodec : MarpcProtocol.CODEC_NONE;
+    }
+
+    /**
+     * 压缩 out 中 [start, writerIndex) 的 payload，压缩后更小时原地替换并返回 true。
+     */
+    boolean compress(byte codec, ByteBuf out, int start) {
+        int length = out.writerIndex() - start;
+        Compressor c = Compressors.byId(codec);
+        if (c == null || length < threshold) return false;
+
+        long begin = System.nanoTime();
+        ByteBuf compressed = out.alloc().ioBuffer(length / 2 + 64);
+        try {
+            c.compress(out.slice(start, length), compressed);
+            int compressedLength = compressed.readableBytes();
+            if (compressedLength >= length) {
+                stats.recordSkip(System.nanoTime() - begin);
+                return false;
+            }
+            out.writerIndex(start);
+            out.writeBytes(compressed);
+            stats.recordCompress(length, compressedLength, System.nanoTime() - begin);
+            return true;
+        } finally {
+            compressed.release();
+        }
+    }
+
+    /**
+     * 解压入站帧的 payload，返回新的 ByteBuf，由调用方 release。
+     * 解压结果超过 maxDecompressedSize 时抛出 {@link io.netty.handler.codec.compression.DecompressionException}。
+     */
+    ByteBuf decompress(MarpcFrame frame) {
+        Compressor c = Compressors.byId(frame.getCodec());
+        if (c == null) {
+            throw new IllegalStateException("未知的压缩算法编号: " + frame.getCodec());
+        }
+        long begin = System.nanoTime();
+        ByteBuf payload = frame.getPayload();
+        int initialCapacity = (int) Math.min((long) payload.readableBytes() << 2, maxDecompressedSize);
+        // 缓冲区容量上限兜底：算法实现漏检时写入也会在上限处失败
+        int maxCapacity = (int) Math.min(maxDecompressedSize + 1L, Integer.MAX_VALUE);
+        ByteBuf out = payload.alloc().heapBuffer(initialCapacity, maxCapacity);
+        try {
+            c.decompress(payload, out, maxDecompressedSize);
+        } catch (IndexOutOfBoundsException e) {
+            out.release();
+            throw new DecompressionException("解压结果超过 " + maxDecompressedSize + " 字节", e);
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+        stats.recordDecompress(System.nanoTime() - begin);
+        return out;
+    }
+
+    CompressionStats getStats() {
+        return stats;
+    }
+}
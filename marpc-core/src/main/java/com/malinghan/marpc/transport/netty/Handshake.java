@@ -0,0 +1,39 @@
+package com.malinghan.marpc.transport.netty;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 握手消息：客户端声明支持的最高协议版本与序列化编号，服务端回复双方共同支持的版本与序列化编号，
+ * 协商出 v2 时还附带服务端的方法表。
+ */
+@Data
+public class Handshake {
+    private int version;
+    private List<Integer> serializers;
+    private List<MethodRef> methods;
+
+    /** 方法表项：方法 id 对应的服务名与方法签名 */
+    @Data
+    public static class MethodRef {
+        private int id;
+        private String service;
+        private String methodSign;
+
+        public static MethodRef of(int id, String service, String methodSign) {
+            MethodRef ref = new MethodRef();
+            ref.id = id;
+            ref.service = service;
+            ref.methodSign = methodSign;
+            return ref;
+        }
+    }
+
+    public static Handshake of(int version, List<Integer> serializers) {
+        Handshake handshake = new Handshake();
+        handshake.version = version;
+        handshake.serializers = serializers;
+        return handshake;
+    }
+}
@@ -0,0 +1,139 @@
+package com.malinghan.marpc.transport.netty;
+
+import com.malinghan.marpc.core.RpcResponse;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 单个连接上的在途请求表：序号按连接独立分配，以 int 为键的开放寻址（线性探测）哈希表保存 Future。
+ *
+ * <p>相比全局 {@code ConcurrentHashMap<Integer, ...>}：put/remove 无装箱，锁只在同一连接的调用方之间竞争；
+ * 连接异常时只失败本连接上的请求。
+ */
+final class InFlightRequests {
+
+    static final AttributeKey<InFlightRequests> KEY = AttributeKey.valueOf("marpc.inflight");
+
+    /** 0 作为空槽标记，不分配为序号 */
+    private static final int EMPTY = 0;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] keys;
+    private CompletableFuture<RpcResponse>[] values;
+    private int mask;
+    private int size;
+    private int nextId;
+    /** size 的无锁读副本，供 leastpending 选择连接 */
+    private volatile int count;
+
+    InFlightRequests() {
+        this(INITIAL_CAPACITY, 0);
+    }
+
+    InFlightRequests(int initialCapacity, int firstId) {
+        allocate(Integer.highestOneBit(Math.max(initialCapacity, 2) - 1) << 1);
+        this.nextId = firstId;
+    }
+
+    static InFlightRequests of(Channel channel) {
+        return channel.attr(KEY).get();
+    }
+
+    /**
+     * 分配序号并登记 Future，返回序号。序号回绕后若仍被在途请求占用则跳过。
+     */
+    synchronized int register(CompletableFuture<RpcResponse> future) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        for (;;) {
+            int id = ++nextId;
+            if (id == EMPTY) continue;
+            int i = id & mask;
+            while (keys[i] != EMPTY && keys[i] != id) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == id) continue;
+            keys[i] = id;
+            values[i] = future;
+            count = ++size;
+            return id;
+        }
+    }
+
+    /**
+     * 摘除并返回序号对应的 Future，不存在时返回 null。
+     */
+    synchronized CompletableFuture<RpcResponse> remove(int id) {
+        if (id == EMPTY) return null;
+        int i = id & mask;
+        while (keys[i] != id) {
+            if (keys[i] == EMPTY) return null;
+            i = (i + 1) & mask;
+        }
+        CompletableFuture<RpcResponse> future = values[i];
+        // 后移删除：把探测链上后续元素回填到空位，避免墓碑
+        int j = i;
+        for (;;) {
+            j = (j + 1) & mask;
+            int key = keys[j];
+            if (key == EMPTY) break;
+            int home = key & mask;
+            boolean stay = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stay) {
+                keys[i] = key;
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        values[i] = null;
+        count = --size;
+        return future;
+    }
+
+    /**
+     * 清空并以给定异常失败所有在途请求，Future 回调在锁外执行。
+     */
+    void failAll(Throwable cause) {
+        CompletableFuture<RpcResponse>[] drained;
+        synchronized (this) {
+            if (size == 0) return;
+            drained = values;
+            allocate(INITIAL_CAPACITY);
+            count = size = 0;
+        }
+        for (CompletableFuture<RpcResponse> future : drained) {
+            if (future != null) future.completeExceptionally(cause);
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        CompletableFuture<RpcResponse>[] oldValues = values;
+        allocate(capacity);
+        for (int k = 0; k < oldKeys.length; k++) {
+            int key = oldKeys[k];
+            if (key == EMPTY) continue;
+            int i = key & mask;
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = oldValues[k];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new CompletableFuture[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -1,16 +1,124 @@
 package com.malinghan.marpc.transport.netty;
 
-import lombok.Data;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
+import lombok.Getter;
 
-@Data
+import java.util.Map;
+
+/**
+ * 协议帧。
+ *
+ * <p>出站帧携带待序列化的消息体 {@link #body}，编码时直接序列化进池化 ByteBuf；
+ * 入站帧携带 payload 的 retained 切片 {@link #payload}，不拷贝字节，使用方解析后必须调用 {@link #release()}。
+ *
+ * <p>{@link #codec} 为压缩算法编号：出站帧表示声明 / 使用的算法，{@link #compressed} 为 true 时允许按阈值压缩；
+ * 入站帧的 {@link #compressed} 表示 payload 已压缩，需要先解压。
+ * {@link #attachments} 为 v2 帧头之后的二进制 k/v 附加信息（请求的 RpcContext），v1 帧始终为 null。
+ *
+ * <p>帧对象由 Netty {@link Recycler} 按线程池化：出站帧在编码后、入站帧在 {@link #release()} 后归还，
+ * 之后不得再访问。每线程缓存上限由 {@code -Dmarpc.frame.recyclerCapacity} 配置，0 表示不池化。
+ */
+@Getter
 public class MarpcFrame {
+
+    private static final Recycler<MarpcFrame> RECYCLER =
+            new Recycler<>(Integer.getInteger("marpc.frame.recyclerCapacity", 4096)) {
+                @Override
+                protected MarpcFrame newObject(Handle<MarpcFrame> handle) {
+                    return new MarpcFrame(handle);
+                }
+            };
+
+    @Getter(AccessLevel.NONE)
+    private final Recycler.Handle<MarpcFrame> handle;
     private byte type;
     private int sequenceId;
-    private byte[] payload;
+    private Object body;
+    private ByteBuf payload;
+    private byte version;
+    private byte codec;
+    private byte serializer;
+    private boolean compressed;
+    private Map<String, String> attachments;
+    /** 方法 id，0 表示未使用，仅 v2 请求帧编码 */
+    private int methodId;
+    private boolean released;
+
+    private MarpcFrame(Recycler.Handle<MarpcFrame> handle) {
+        this.handle = handle;
+    }
+
+    private static MarpcFrame of(byte type, int sequenceId, Object body, ByteBuf payload) {
+        MarpcFrame frame = RECYCLER.get();
+        frame.type = type;
+        frame.sequenceId = sequenceId;
+        frame.body = body;
+        frame.payload = payload;
+        frame.version = MarpcProtocol.VERSION_1;
+        frame.codec = MarpcProtocol.CODEC_NONE;
+        frame.serializer = MarpcProtocol.SERIALIZER_JSON;
+        frame.compressed = false;
+        frame.attachments = null;
+        frame.methodId = 0;
+        frame.released = false;
+        return frame;
+    }
+
+    /** 出站帧：body 为 RpcRequest / RpcResponse，默认 v1、不压缩；编码后即归还对象池 */
+    public static MarpcFrame outbound(byte type, int sequenceId, Object body) {
+        return of(type, sequenceId, body, null);
+    }
+
+    /** 入站帧：payload 为解码器切出的 retained 切片 */
+    public static MarpcFrame inbound(byte type, int sequenceId, ByteBuf payload) {
+        return of(type, sequenceId, null, payload);
+    }
+
+    /** 帧头版本 */
+    public MarpcFrame version(byte version) {
+        this.version = version;
+        return this;
+    }
+
+    /** 出站：声明压缩算法 codec，compress 为 true 时 payload 达到阈值即压缩；入站：payload 是否已压缩 */
+    public MarpcFrame compression(byte codec, boolean compressed) {
+        this.codec = codec;
+        this.compressed = compressed;
+        return this;
+    }
+
+    /** payload 序列化编号，仅 v2 帧编码，v1 帧固定为 json */
+    public MarpcFrame serializer(byte serializer) {
+        this.serializer = serializer;
+        return this;
+    }
+
+    /** 方法 id，非 0 时仅 v2 帧编码 */
+    public MarpcFrame methodId(int methodId) {
+        this.methodId = methodId;
+        return this;
+    }
+
+    /** 附加信息，仅 v2 帧编码 */
+    public MarpcFrame attachments(Map<String, String> attachments) {
+        this.attachments = attachments;
+        return this;
+    }
+
+    public int payloadLength() {
+        return payload == null ? 0 : payload.readableBytes();
+    }
 
-    public MarpcFrame(byte type, int sequenceId, byte[] payload) {
-        this.type = type;
-        this.sequenceId = sequenceId;
-        this.payload = payload;
+    /** 释放入站 payload 并把帧归还对象池，重复调用安全 */
+    public void release() {
+        if (released) return;
+        released = true;
+        if (payload != null) payload.release();
+        body = null;
+        payload = null;
+        attachments = null;
+        handle.recycle(this);
     }
 }
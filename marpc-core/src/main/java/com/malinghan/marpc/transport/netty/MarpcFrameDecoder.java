@@ -3,39 +3,91 @@ package com.malinghan.marpc.transport.netty;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
+import java.util.Map;
 
+/**
+ * 帧解码器：按版本字节区分 v1 / v2 帧头，同一连接上两种版本可以混用。
+ */
+@Slf4j
 public class MarpcFrameDecoder extends ByteToMessageDecoder {
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-        // 等待至少 header 长度
+        // 等待至少 v1 header 长度
         if (in.readableBytes() < MarpcProtocol.HEADER_LENGTH) return;
 
-        in.markReaderIndex();
-
+        int start = in.readerIndex();
         // 校验魔数
-        byte m1 = in.readByte();
-        byte m2 = in.readByte();
-        if (m1 != MarpcProtocol.MAGIC_1 || m2 != MarpcProtocol.MAGIC_2) {
+        if (in.getByte(start) != MarpcProtocol.MAGIC_1 || in.getByte(start + 1) != MarpcProtocol.MAGIC_2) {
+            in.skipBytes(in.readableBytes());
             ctx.close();
             return;
         }
 
-        byte version = in.readByte(); // 版本，暂不处理
-        byte type = in.readByte();
-        int sequenceId = in.readInt();
-        int length = in.readInt();
-
-        // 等待 body 到齐
-        if (in.readableBytes() < length) {
-            in.resetReaderIndex();
+        byte version = in.getByte(start + 2);
+        MarpcFrame frame;
+        if (version == MarpcProtocol.VERSION_1) {
+            frame = decodeV1(in, start);
+        } else if (version == MarpcProtocol.VERSION_2) {
+            frame = decodeV2(in, start);
+        } else {
+            log.warn("[MarpcFrameDecoder] 不支持的协议版本: {}, 关闭连接 {}", version, ctx.channel().remoteAddress());
+            in.skipBytes(in.readableBytes());
+            ctx.close();
             return;
         }
+        if (frame != null) out.add(frame);
+    }
+
+    private MarpcFrame decodeV1(ByteBuf in, int start) {
+        byte rawType = in.getByte(start + 3);
+        int sequenceId = in.getInt(start + 4);
+        int length = in.getInt(start + 8);
+
+        // 等待 body 到齐
+        if (in.readableBytes() < MarpcProtocol.HEADER_LENGTH + length) return null;
+
+        // 切片共享底层内存，不拷贝 payload；由处理方解析后 release
+        ByteBuf payload = in.retainedSlice(start + MarpcProtocol.HEADER_LENGTH, length);
+        in.skipBytes(MarpcProtocol.HEADER_LENGTH + length);
+        return MarpcFrame.inbound((byte) (rawType & MarpcProtocol.TYPE_MASK), sequenceId, payload)
+                .compression(codec(rawType), compressed(rawType));
+    }
+
+    private MarpcFrame decodeV2(ByteBuf in, int start) {
+        if (in.readableBytes() < MarpcProtocol.HEADER_LENGTH_V2) return null;
+        byte type = in.getByte(start + 3);
+        byte flags = in.getByte(start + 4);
+        byte serializer = in.getByte(start + 5);
+        int sequenceId = in.getInt(start + 6);
+        int attachLength = in.getUnsignedShort(start + 10);
+        int length = in.getInt(start + 12);
+
+        int headerLength = MarpcProtocol.HEADER_LENGTH_V2
+                + ((flags & MarpcProtocol.FLAG_METHOD_ID) != 0 ? 4 : 0);
+        if (in.readableBytes() < headerLength + attachLength + length) return null;
+
+        int methodId = headerLength > MarpcProtocol.HEADER_LENGTH_V2 ? in.getInt(start + MarpcProtocol.HEADER_LENGTH_V2) : 0;
+        Map<String, String> attachments = attachLength == 0 ? null
+                : AttachmentCodec.read(in, start + headerLength, attachLength);
+        ByteBuf payload = in.retainedSlice(start + headerLength + attachLength, length);
+        in.skipBytes(headerLength + attachLength + length);
+        return MarpcFrame.inbound(type, sequenceId, payload)
+                .methodId(methodId)
+                .version(MarpcProtocol.VERSION_2)
+                .compression(codec(flags), compressed(flags))
+                .serializer(serializer)
+                .attachments(attachments);
+    }
+
+    private static byte codec(byte bits) {
+        return (byte) ((bits & MarpcProtocol.CODEC_MASK) >>> MarpcProtocol.CODEC_SHIFT);
+    }
 
-        byte[] payload = new byte[length];
-        in.readBytes(payload);
-        out.add(new MarpcFrame(type, sequenceId, payload));
+    private static boolean compressed(byte bits) {
+        return (bits & MarpcProtocol.FLAG_COMPRESSED) != 0;
     }
 }
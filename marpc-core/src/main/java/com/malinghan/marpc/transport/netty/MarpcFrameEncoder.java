@@ -1,19 +1,106 @@
 package com.malinghan.marpc.transport.netty;
 
+import com.malinghan.marpc.serialization.Serializer;
+import com.malinghan.marpc.serialization.Serializers;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
+/**
+ * 帧编码器：header 写入后预留长度字段，消息体直接序列化进同一个 ByteBuf，最后回填长度。
+ *
+ * <p>调用方优先使用 {@link #encode(ByteBufAllocator, MarpcFrame)} 在业务线程上编码，
+ * 写入 Channel 的是现成的 ByteBuf，序列化不占用 I/O 线程；直接写入 MarpcFrame 时由本编码器在 I/O 线程编码。
+ * 帧允许压缩且 payload 达到阈值时，序列化后原地压缩并置压缩标志（v1 在 type 字节，v2 在 flags 字节）。
+ * 出站帧（携带 body）编码后归还对象池，无论编码成功与否。
+ */
 public class MarpcFrameEncoder extends MessageToByteEncoder<MarpcFrame> {
 
+    private final FrameCompression compression;
+
+    public MarpcFrameEncoder() {
+        this(FrameCompression.DISABLED);
+    }
+
+    MarpcFrameEncoder(FrameCompression compression) {
+        this.compression = compression;
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, MarpcFrame frame, ByteBuf out) {
+        try {
+            encodeTo(frame, out, compression);
+        } finally {
+            recycleOutbound(frame);
+        }
+    }
+
+    /** 编码为完整帧，使用池化直接内存；编码失败时释放已分配的 ByteBuf */
+    public static ByteBuf encode(ByteBufAllocator alloc, MarpcFrame frame) {
+        return encode(alloc, frame, FrameCompression.DISABLED);
+    }
+
+    static ByteBuf encode(ByteBufAllocator alloc, MarpcFrame frame, FrameCompression compression) {
+        ByteBuf buf = alloc.ioBuffer();
+        try {
+            encodeTo(frame, buf, compression);
+            return buf;
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        } finally {
+            recycleOutbound(frame);
+        }
+    }
+
+    /** 入站帧被转发编码时仍由持有方释放 */
+    private static void recycleOutbound(MarpcFrame frame) {
+        if (frame.getBody() != null) frame.release();
+    }
+
+    static void encodeTo(MarpcFrame frame, ByteBuf out, FrameCompression compression) {
         out.writeByte(MarpcProtocol.MAGIC_1);
         out.writeByte(MarpcProtocol.MAGIC_2);
-        out.writeByte(MarpcProtocol.VERSION);
-        out.writeByte(frame.getType());
-        out.writeInt(frame.getSequenceId());
-        out.writeInt(frame.getPayload().length);
-        out.writeBytes(frame.getPayload());
+        out.writeByte(frame.getVersion());
+        int codecBits = frame.getCodec() << MarpcProtocol.CODEC_SHIFT;
+        int flagsIndex;
+        int lengthIndex;
+        Serializer serializer;
+        if (frame.getVersion() == MarpcProtocol.VERSION_1) {
+            serializer = Serializers.json();
+            flagsIndex = out.writerIndex();
+            out.writeByte(frame.getType() | codecBits);
+            out.writeInt(frame.getSequenceId());
+            lengthIndex = out.writerIndex();
+            out.writeInt(0);
+        } else {
+            out.writeByte(frame.getType());
+            flagsIndex = out.writerIndex();
+            out.writeByte(codecBits | (frame.getMethodId() != 0 ? MarpcProtocol.FLAG_METHOD_ID : 0));
+            serializer = PayloadCodec.serializer(frame.getSerializer());
+            out.writeByte(serializer.id());
+            out.writeInt(frame.getSequenceId());
+            int attachLengthIndex = out.writerIndex();
+            out.writeShort(0);
+            lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            if (frame.getMethodId() != 0) {
+                out.writeInt(frame.getMethodId());
+            }
+            out.setShort(attachLengthIndex, AttachmentCodec.write(frame.getAttachments(), out));
+        }
+
+        int payloadStart = out.writerIndex();
+        if (frame.getBody() != null) {
+            PayloadCodec.write(serializer, frame.getBody(), out);
+        } else if (frame.getPayload() != null) {
+            ByteBuf payload = frame.getPayload();
+            out.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+        }
+        if (frame.isCompressed() && compression.compress(frame.getCodec(), out, payloadStart)) {
+            out.setByte(flagsIndex, out.getByte(flagsIndex) | MarpcProtocol.FLAG_COMPRESSED);
+        }
+        out.setInt(lengthIndex, out.writerIndex() - payloadStart);
     }
 }
@@ -1,10 +1,52 @@
 package com.malinghan.marpc.transport.netty;
 
+import com.malinghan.marpc.serialization.JsonSerializer;
+
+/**
+ * 协议常量。
+ *
+ * <p>v1 帧头（12 字节）：magic(2) version(1) type(1) sequenceId(4) bodyLength(4)，
+ * type 字节低 4 位为帧类型，高位复用为压缩算法编号与压缩标志。
+ *
+ * <p>v2 帧头（16 字节）：magic(2) version(1) type(1) flags(1) serializer(1) sequenceId(4)
+ * attachLength(2) bodyLength(4)，之后依次为附加信息区与 payload。
+ * flags 与 v1 type 字节高位布局相同：bit4~6 为压缩算法编号，bit7 表示 payload 已压缩；
+ * bit0 表示帧头之后紧跟 4 字节方法 id（握手时由服务端下发），此时请求 payload 只是实参数组，
+ * 服务端按方法参数的泛型类型一次解析。
+ *
+ * <p>建连后客户端以 v1 帧发送握手，服务端回握手帧确认双方都支持的最高版本；
+ * 旧服务端把握手当作普通请求并回错误响应，客户端据此继续使用 v1。服务端按请求帧的版本回写响应。
+ */
 public class MarpcProtocol {
     public static final byte MAGIC_1 = (byte) 0xAA;
     public static final byte MAGIC_2 = (byte) 0xBB;
-    public static final byte VERSION = 0x01;
+    public static final byte VERSION_1 = 0x01;
+    public static final byte VERSION_2 = 0x02;
+    /** 本端支持的最高版本 */
+    public static final byte VERSION = VERSION_2;
     public static final byte TYPE_REQUEST  = 0x01;
     public static final byte TYPE_RESPONSE = 0x02;
+    public static final byte TYPE_HANDSHAKE = 0x03;
+    /** v1 帧头长度 */
     public static final int HEADER_LENGTH  = 12;
+    /** v2 帧头长度 */
+    public static final int HEADER_LENGTH_V2 = 16;
+
+    /** 握手帧使用的序号，请求序号从不分配 0 */
+    public static final int HANDSHAKE_SEQUENCE_ID = 0;
+
+    public static final int TYPE_MASK = 0x0F;
+    public static final int CODEC_MASK = 0x70;
+    public static final int CODEC_SHIFT = 4;
+    public static final int FLAG_COMPRESSED = 0x80;
+    /** v2 flags：帧头后携带方法 id */
+    public static final int FLAG_METHOD_ID = 0x01;
+
+    public static final byte CODEC_NONE = 0;
+
+    /** v1 帧与握手帧固定使用的序列化方式，见 {@link com.malinghan.marpc.serialization.Serializers} */
+    public static final byte SERIALIZER_JSON = JsonSerializer.ID;
+
+    /** 附加信息区最大长度（attachLength 为无符号 short） */
+    public static final int MAX_ATTACHMENT_LENGTH = 0xFFFF;
 }
@@ -0,0 +1,216 @@
+package com.malinghan.marpc.transport.netty;
+
+import com.malinghan.marpc.exception.MarpcNetworkException;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.malinghan.marpc.exception.MarpcException.ErrorCode.NETWORK_ERROR;
+
+/**
+ * 单个 Provider 实例的连接池：固定数量的长连接，由 Bootstrap 轮流注册到不同 EventLoop。
+ *
+ * <p>按轮询或最少在途请求选择连接；连接断开后在 EventLoop 上按指数退避后台重连。
+ * 所有连接都不可用时返回建连 Future，调用方在建连完成后发送，任何线程（包括 EventLoop）都不会阻塞等待建连。
+ * 实例下线后连接池被关闭：不再建连与重连，已有连接在途请求处理完后关闭。
+ */
+@Slf4j
+class NettyChannelPool {
+
+    private final String instance;
+    private final String host;
+    private final int port;
+    private final Bootstrap bootstrap;
+    private final NettyConfig config;
+    private final boolean leastPending;
+    private final AtomicReferenceArray<Channel> channels;
+    /** 正在后台重连的槽位，避免重复调度 */
+    private final AtomicReferenceArray<Boolean> reconnecting;
+    /** 槽位上进行中的建连，并发调用共用同一次建连 */
+    private final AtomicReferenceArray<CompletableFuture<Channel>> connecting;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean closed;
+
+    NettyChannelPool(String instance, Bootstrap bootstrap, NettyConfig config) {
+        String[] parts = instance.split(":");
+        this.instance = instance;
+        this.host = parts[0];
+        this.port = Integer.parseInt(parts[1]);
+        this.bootstrap = bootstrap;
+        this.config = config;
+        this.leastPending = NettyConfig.SELECT_LEAST_PENDING.equalsIgnoreCase(config.getConnectionSelect());
+        int size = Math.max(1, config.getConnectionsPerInstance());
+        this.channels = new AtomicReferenceArray<>(size);
+        this.reconnecting = new AtomicReferenceArray<>(size);
+        this.connecting = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * 首次使用时发起第一个连接，其余连接在后台建立，均不等待建连完成。
+     */
+    void start() {
+        connect(0);
+        for (int i = 1; i < channels.length(); i++) {
+            scheduleReconnect(i, 0);
+        }
+    }
+
+    /** 选择一个可用连接，全部不可用时返回 null，不阻塞 */
+    Channel acquire() {
+        return leastPending ? selectLeastPending() : selectRoundRobin();
+    }
+
+    /**
+     * 全部连接不可用时调用：优先复用进行中的建连，否则选一个槽位发起建连。
+     * 返回的 Future 在 EventLoop 上完成，失败时为 {@link MarpcNetworkException}。
+     */
+    CompletableFuture<Channel> connect() {
+        for (int i = 0; i < connecting.length(); i++) {
+            CompletableFuture<Channel> pending = connecting.get(i);
+            if (pending != null) return pending;
+        }
+        return connect(Math.floorMod(next.getAndIncrement(), channels.length()));
+    }
+
+    /** 本实例所有连接上的在途请求数 */
+    int pendingCount() {
+        int total = 0;
+        for (int i = 0; i < channels.length(); i++) {
+            Channel ch = channels.get(i);
+            if (ch != null) total += InFlightRequests.of(ch).size();
+        }
+        return total;
+    }
+
+    void close() {
+        close(0);
+    }
+
+    /**
+     * 关闭连接池并停止后台重连。drainMs 大于 0 时有在途请求的连接延迟到 drainMs 后关闭，
+     * 在途请求在此之前正常收到响应或超时。
+     */
+    void close(long drainMs) {
+        closed = true;
+        for (int i = 0; i < channels.length(); i++) {
+            Channel ch = channels.get(i);
+            if (ch == null) continue;
+            if (drainMs > 0 && InFlightRequests.of(ch).size() > 0) {
+                ch.eventLoop().schedule(() -> ch.close(), drainMs, TimeUnit.MILLISECONDS);
+            } else {
+                ch.close();
+            }
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private Channel selectRoundRobin() {
+        int n = channels.length();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < n; i++) {
+            Channel ch = channels.get(Math.floorMod(start + i, n));
+            if (ch != null && ch.isActive()) return ch;
+        }
+        return null;
+    }
+
+    private Channel selectLeastPending() {
+        Channel best = null;
+        int bestPending = Integer.MAX_VALUE;
+        int n = channels.length();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < n; i++) {
+            Channel ch = channels.get(Math.floorMod(start + i, n));
+            if (ch == null || !ch.isActive()) continue;
+            int pending = InFlightRequests.of(ch).size();
+            if (pending < bestPending) {
+                best = ch;
+                bestPending = pending;
+            }
+        }
+        return best;
+    }
+
+    private CompletableFuture<Channel> connect(int slot) {
+        while (true) {
+            CompletableFuture<Channel> pending = connecting.get(slot);
+            if (pending != null) return pending;
+            Channel existing = channels.get(slot);
+            if (existing != null && existing.isActive()) return CompletableFuture.completedFuture(existing);
+            if (closed) {
+                return CompletableFuture.failedFuture(
+                        new MarpcNetworkException(NETWORK_ERROR, "连接池已关闭: " + instance));
+            }
+            CompletableFuture<Channel> created = new CompletableFuture<>();
+            if (!connecting.compareAndSet(slot, null, created)) continue;
+            bootstrap.connect(host, port).addListener((ChannelFuture f) -> {
+                if (f.isSuccess() && closed) {
+                    // 建连期间连接池已关闭，不再装入槽位
+                    f.channel().close();
+                    connecting.set(slot, null);
+                    created.completeExceptionally(
+                            new MarpcNetworkException(NETWORK_ERROR, "连接池已关闭: " + instance));
+                } else if (f.isSuccess()) {
+                    install(slot, f.channel());
+                    connecting.set(slot, null);
+                    log.info("[NettyChannelPool] 连接成功: {} #{}", instance, slot);
+                    created.complete(f.channel());
+                } else {
+                    connecting.set(slot, null);
+                    created.completeExceptionally(
+                            new MarpcNetworkException(NETWORK_ERROR, "连接失败: " + instance, f.cause()));
+                }
+            });
+            return created;
+        }
+    }
+
+    private void install(int slot, Channel ch) {
+        channels.set(slot, ch);
+        // 与 close 并发时 close 可能没看到刚装入的连接，由这里补关
+        if (closed) {
+            ch.close();
+            return;
+        }
+        ch.closeFuture().addListener(f -> {
+            if (!closed) {
+                log.warn("[NettyChannelPool] 连接断开: {} #{}，后台重连", instance, slot);
+                scheduleReconnect(slot, config.getReconnectInitialDelayMs());
+            }
+        });
+    }
+
+    private void scheduleReconnect(int slot, long delayMs) {
+        if (closed || !reconnecting.compareAndSet(slot, null, Boolean.TRUE)) return;
+        bootstrap.config().group().schedule(() -> reconnect(slot, delayMs), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void reconnect(int slot, long delayMs) {
+        if (closed) return;
+        Channel existing = channels.get(slot);
+        if (existing != null && existing.isActive()) {
+            reconnecting.set(slot, null);
+            return;
+        }
+        connect(slot).whenComplete((ch, error) -> {
+            reconnecting.set(slot, null);
+            if (error == null) {
+                log.info("[NettyChannelPool] 后台连接成功: {} #{}", instance, slot);
+            } else {
+                long nextDelay = Math.min(Math.max(delayMs * 2, config.getReconnectInitialDelayMs()),
+                        config.getReconnectMaxDelayMs());
+                log.warn("[NettyChannelPool] 后台连接失败: {} #{}，{}ms 后重试", instance, slot, nextDelay);
+                scheduleReconnect(slot, nextDelay);
+            }
+        });
+    }
+}
@@ -1,42 +1,103 @@
 package com.malinghan.marpc.transport.netty;
 
-import com.alibaba.fastjson2.JSON;
 import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.exception.MarpcNetworkException;
+import com.malinghan.marpc.serialization.Serializers;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 
+import static com.malinghan.marpc.exception.MarpcException.ErrorCode.NETWORK_ERROR;
+
+/**
+ * 客户端响应处理器：每个连接一个实例，只操作本连接的 {@link InFlightRequests}。
+ *
+ * <p>连接建立后以 v1 帧发送握手，收到握手确认后把 {@link PeerState} 升级到协商出的版本；
+ * 握手完成前的请求按 v1 发送，不需要等待。
+ */
 @Slf4j
 public class NettyClientHandler extends SimpleChannelInboundHandler<MarpcFrame> {
 
-    private final ConcurrentHashMap<Integer, CompletableFuture<RpcResponse>> pendingRequests;
+    private final InFlightRequests inFlight;
+    private final PeerState peer;
+    private final FrameCompression compression;
+
+    NettyClientHandler(InFlightRequests inFlight, PeerState peer, FrameCompression compression) {
+        this.inFlight = inFlight;
+        this.peer = peer;
+        this.compression = compression;
+    }
 
-    public NettyClientHandler(ConcurrentHashMap<Integer, CompletableFuture<RpcResponse>> pendingRequests) {
-        this.pendingRequests = pendingRequests;
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        MarpcFrame handshake = MarpcFrame.outbound(MarpcProtocol.TYPE_HANDSHAKE, MarpcProtocol.HANDSHAKE_SEQUENCE_ID,
+                Handshake.of(MarpcProtocol.VERSION, Serializers.ids())).compression(compression.codec(), false);
+        ctx.writeAndFlush(MarpcFrameEncoder.encode(ctx.alloc(), handshake));
+        super.channelActive(ctx);
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, MarpcFrame frame) {
-        log.info("[NettyClientHandler] 收到响应, sequenceId={}, payloadLen={}",
-                frame.getSequenceId(), frame.getPayload().length);
-        CompletableFuture<RpcResponse> future = pendingRequests.remove(frame.getSequenceId());
-        if (future != null) {
-            RpcResponse response = JSON.parseObject(frame.getPayload(), RpcResponse.class);
-            future.complete(response);
-        } else {
-            log.warn("[NettyClientHandler] 未找到对应的 Future, sequenceId={}", frame.getSequenceId());
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("[NettyClientHandler] 收到响应, sequenceId={}, payloadLen={}",
+                        frame.getSequenceId(), frame.payloadLength());
+            }
+            if (compression.isEnabled() && frame.getCodec() == compression.codec() && !peer.compression()) {
+                peer.compression(true);
+                log.info("[NettyClientHandler] 对端支持压缩算法 {}: {}", frame.getCodec(), ctx.channel().remoteAddress());
+            }
+            if (frame.getSequenceId() == MarpcProtocol.HANDSHAKE_SEQUENCE_ID) {
+                onHandshake(ctx, frame);
+                return;
+            }
+            CompletableFuture<RpcResponse> future = inFlight.remove(frame.getSequenceId());
+            if (future == null) {
+                log.warn("[NettyClientHandler] 未找到对应的 Future（可能已超时）, sequenceId={}", frame.getSequenceId());
+                return;
+            }
+            try {
+                future.complete(PayloadCodec.readResponse(frame, ResponseFuture.dataType(future), compression));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        } finally {
+            frame.release();
         }
     }
 
+    private void onHandshake(ChannelHandlerContext ctx, MarpcFrame frame) {
+        if (frame.getType() != MarpcProtocol.TYPE_HANDSHAKE) {
+            // 旧服务端把握手当作普通请求处理并回了错误响应
+            log.info("[NettyClientHandler] 对端不支持握手，使用 v1 协议: {}", ctx.channel().remoteAddress());
+            return;
+        }
+        try {
+            Handshake ack = PayloadCodec.read(frame, Handshake.class, compression);
+            byte version = (byte) Math.min(ack.getVersion(), MarpcProtocol.VERSION);
+            peer.serializers(ack.getSerializers());
+            peer.methods(ack.getMethods());
+            peer.version(version);
+            log.info("[NettyClientHandler] 握手完成, 协议版本 v{}, 序列化 {}, 方法表 {} 项: {}", version,
+                    ack.getSerializers(), ack.getMethods() == null ? 0 : ack.getMethods().size(), ctx.channel().remoteAddress());
+        } catch (Exception e) {
+            log.warn("[NettyClientHandler] 握手响应解析失败，使用 v1 协议: {}", ctx.channel().remoteAddress(), e);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 连接断开：只失败本连接上的在途请求，不影响同一实例的其他连接
+        inFlight.failAll(new MarpcNetworkException(NETWORK_ERROR, "连接已断开: " + ctx.channel().remoteAddress()));
+        super.channelInactive(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         log.error("[NettyClientHandler] 异常: {}", cause.getMessage(), cause);
-        // 完成所有等待中的 Future（异常）
-        pendingRequests.forEach((id, future) -> future.completeExceptionally(cause));
-        pendingRequests.clear();
+        inFlight.failAll(cause);
         ctx.close();
     }
 }
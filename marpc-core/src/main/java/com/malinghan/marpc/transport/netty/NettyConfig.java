@@ -0,0 +1,87 @@
+package com.malinghan.marpc.transport.netty;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Netty 传输层配置。
+ */
+@Data
+public class NettyConfig {
+
+    /** 轮询选择连接 */
+    public static final String SELECT_ROUND_ROBIN = "roundrobin";
+    /** 选择在途请求最少的连接 */
+    public static final String SELECT_LEAST_PENDING = "leastpending";
+
+    /** Netty 服务端口，默认 9090 */
+    private int port = 9090;
+
+    /** 每个 Provider 实例建立的连接数，连接会分散到不同 EventLoop，默认 1 */
+    private int connectionsPerInstance = 1;
+
+    /** 连接选择策略：roundrobin / leastpending，默认 roundrobin */
+    private String connectionSelect = SELECT_ROUND_ROBIN;
+
+    /** 断线后首次后台重连的延迟（毫秒），之后指数退避，默认 1000ms */
+    private long reconnectInitialDelayMs = 1000;
+
+    /** 后台重连的最大退避间隔（毫秒），默认 30000ms */
+    private long reconnectMaxDelayMs = 30000;
+
+    /**
+     * 写合并窗口（微秒）：&gt;0 表示最多推迟这么久再 flush；
+     * 0 表示合并同一轮 EventLoop 任务中的 flush（默认，不增加延迟）；&lt;0 关闭写合并。
+     */
+    private long flushWindowMicros = 0;
+
+    /** 累计待 flush 字节数达到该值时立即 flush，默认 64KB */
+    private int flushMaxBytes = 64 * 1024;
+
+    /** 累计待 flush 帧数达到该值时立即 flush，默认 64 */
+    private int flushMaxFrames = 64;
+
+    /** Linux 上是否优先使用 native epoll 传输，不可用时自动退化为 NIO，默认 true */
+    private boolean nativeTransport = true;
+
+    /** I/O 线程数，0 表示使用 Netty 默认值（CPU 核数 * 2） */
+    private int ioThreads = 0;
+
+    /** 服务端是否开启 SO_REUSEPORT（仅 epoll），开启后按 acceptorThreads 绑定多个监听 socket */
+    private boolean reusePort = false;
+
+    /** SO_REUSEPORT 开启时的 accept 线程数（监听 socket 数），默认 1 */
+    private int acceptorThreads = 1;
+
+    /** TCP_NODELAY，默认 true */
+    private boolean tcpNoDelay = true;
+
+    /** TCP_QUICKACK（仅 epoll），默认 false */
+    private boolean tcpQuickAck = false;
+
+    /** SO_SNDBUF（字节），0 表示使用系统默认值 */
+    private int sendBufferSize = 0;
+
+    /** SO_RCVBUF（字节），0 表示使用系统默认值 */
+    private int receiveBufferSize = 0;
+
+    /**
+     * payload 压缩算法：none / snappy / deflate，默认 none。
+     * 客户端为首选算法；服务端非 none 时按客户端声明的算法压缩响应，两端都开启才会生效。
+     */
+    private String compression = "none";
+
+    /** payload 达到该字节数才压缩，默认 2048 */
+    private int compressThreshold = 2048;
+
+    /** 解压后 payload 的最大字节数，超过则拒绝该帧，防止压缩炸弹，默认 16MB */
+    private int maxDecompressedSize = FrameCompression.DEFAULT_MAX_DECOMPRESSED_SIZE;
+
+    /** 客户端默认序列化方式：json / jsonb 或 SPI 注册的名称，对端不支持时退回 json，默认 json */
+    private String serializer = "json";
+
+    /** 按服务覆盖序列化方式：服务接口全限定名 -> 序列化名称 */
+    private Map<String, String> serviceSerializers = new HashMap<>();
+}
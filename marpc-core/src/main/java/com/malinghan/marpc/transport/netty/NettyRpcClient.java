@@ -1,100 +1,334 @@
 package com.malinghan.marpc.transport.netty;
 
-import com.alibaba.fastjson2.JSON;
 import com.malinghan.marpc.core.RpcRequest;
 import com.malinghan.marpc.core.RpcResponse;
 import com.malinghan.marpc.exception.MarpcNetworkException;
+import com.malinghan.marpc.serialization.Serializer;
+import com.malinghan.marpc.serialization.Serializers;
 import com.malinghan.marpc.transport.RpcTransport;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.malinghan.marpc.exception.MarpcException.ErrorCode.NETWORK_ERROR;
 
 @Slf4j
 public class NettyRpcClient implements RpcTransport {
 
-    private final ConcurrentHashMap<String, Channel> channelPool = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, CompletableFuture<RpcResponse>> pendingRequests = new ConcurrentHashMap<>();
-    private final AtomicInteger sequenceIdGenerator = new AtomicInteger(0);
-    private final EventLoopGroup workerGroup = new NioEventLoopGroup();
+    private final ConcurrentHashMap<String, NettyChannelPool> channelPools = new ConcurrentHashMap<>();
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    private final ConcurrentHashMap<String, String> nettyInstances = new ConcurrentHashMap<>();
+    /** 各服务当前注册的实例（Netty 地址），只在 onChange 中修改 */
+    private final Map<String, Set<String>> registered = new HashMap<>();
+    /** 所有服务注册实例的并集，未收到过实例变更时为 null，不限制建连 */
+    private volatile Set<String> live;
+    private final EventLoopGroup workerGroup;
+    private final Bootstrap bootstrap;
+    private final FlushBatchStats flushStats = new FlushBatchStats();
+    private final FrameCompression compression;
+    private final Serializer defaultSerializer;
+    private final Map<String, Serializer> serviceSerializers = new HashMap<>();
+    private final HashedWheelTimer timeoutTimer = new HashedWheelTimer(
+            new DefaultThreadFactory("marpc-client-timeout", true), 10, TimeUnit.MILLISECONDS, 512);
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
     private final int timeoutMs;
-    private final int nettyPort;
+    private final NettyConfig config;
 
-    public NettyRpcClient(int timeoutMs, int nettyPort) {
+    public NettyRpcClient(int timeoutMs, NettyConfig config) {
         this.timeoutMs = timeoutMs;
-        this.nettyPort = nettyPort;
+        this.config = config;
+        this.compression = FrameCompression.of(config);
+        this.defaultSerializer = Serializers.byName(config.getSerializer());
+        config.getServiceSerializers().forEach((service, name) -> serviceSerializers.put(service, Serializers.byName(name)));
+        boolean epoll = NettyTransports.useEpoll(config);
+        this.workerGroup = NettyTransports.newGroup(epoll, config.getIoThreads(), "marpc-client-io");
+        this.bootstrap = new Bootstrap();
+        NettyTransports.applyClientOptions(bootstrap, config, epoll);
+        bootstrap.group(workerGroup)
+                .channel(NettyTransports.socketChannel(epoll))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutMs)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        InFlightRequests inFlight = new InFlightRequests();
+                        PeerState peer = new PeerState();
+                        ch.attr(InFlightRequests.KEY).set(inFlight);
+                        ch.attr(PeerState.KEY).set(peer);
+                        ch.pipeline()
+                                .addLast(new MarpcFrameDecoder())
+                                .addLast(new FlushBatchingHandler(config.getFlushWindowMicros(),
+                                        config.getFlushMaxBytes(), config.getFlushMaxFrames(), flushStats))
+                                .addLast(new MarpcFrameEncoder(compression))
+                                .addLast(new NettyClientHandler(inFlight, peer, compression));
+                    }
+                });
+        log.info("[NettyRpcClient] 传输: {}, 每实例连接数: {}, 选择策略: {}, 压缩: {}, 序列化: {} {}",
+                epoll ? "epoll" : "nio", config.getConnectionsPerInstance(), config.getConnectionSelect(),
+                config.getCompression(), defaultSerializer.name(), config.getServiceSerializers());
     }
 
     @Override
     public RpcResponse send(String instance, RpcRequest request) {
+        return send(instance, request, Object.class);
+    }
+
+    @Override
+    public RpcResponse send(String instance, RpcRequest request, Type dataType) {
+        return send(instance, request, dataType, 0);
+    }
+
+    @Override
+    public RpcResponse send(String instance, RpcRequest request, Type dataType, int timeoutMs) {
         try {
-            String host = instance.split(":")[0];
-            String nettyInstance = host + ":" + nettyPort;
-            Channel channel = getOrCreateChannel(nettyInstance);
-            int sequenceId = sequenceIdGenerator.incrementAndGet();
-            CompletableFuture<RpcResponse> future = new CompletableFuture<>();
-            pendingRequests.put(sequenceId, future);
-
-            byte[] payload = JSON.toJSONBytes(request);
-            MarpcFrame frame = new MarpcFrame(MarpcProtocol.TYPE_REQUEST, sequenceId, payload);
-            channel.writeAndFlush(frame).addListener(f -> {
-                if (!f.isSuccess()) {
-                    pendingRequests.remove(sequenceId);
-                    future.completeExceptionally(f.cause());
-                }
-            });
+            return sendAsync(instance, request, dataType, timeoutMs).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MarpcNetworkException ne) throw ne;
+            throw new MarpcNetworkException(NETWORK_ERROR, "Netty call failed: " + instance, e.getCause());
+        }
+    }
 
-            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+    /**
+     * 非阻塞发送：写出请求帧后立即返回，由 {@link NettyClientHandler} 在收到响应时完成 Future。
+     * 超时、写失败、连接异常均以 {@link MarpcNetworkException} 完成 Future。
+     */
+    @Override
+    public CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request) {
+        return sendAsync(instance, request, Object.class);
+    }
+
+    /**
+     * 响应的 data 由 {@link NettyClientHandler} 按 dataType 直接解析为目标类型。
+     */
+    @Override
+    public CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request, Type dataType) {
+        return sendAsync(instance, request, dataType, 0);
+    }
+
+    /**
+     * timeoutMs 大于 0 时使用方法级超时，否则使用全局超时。
+     */
+    @Override
+    public CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request, Type dataType, int timeoutMs) {
+        int timeout = timeoutMs > 0 ? timeoutMs : this.timeoutMs;
+        // 在途表中的 Future 即返回给调用方的 Future，完成时自行取消超时并包装异常
+        ResponseFuture future = new ResponseFuture(dataType, instance);
+        try {
+            NettyChannelPool pool = getChannelPool(nettyInstance(instance));
+            Channel channel = pool.acquire();
+            if (channel != null) {
+                write(channel, request, future, timeout);
+            } else {
+                // 没有可用连接：建连完成后在 EventLoop 上写出，调用线程与重试所在的 I/O 线程都不等待建连
+                pool.connect().whenComplete((ch, error) -> {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    } else {
+                        write(ch, request, future, timeout);
+                    }
+                });
+            }
         } catch (Exception e) {
-            throw new MarpcNetworkException(NETWORK_ERROR, "Netty call failed: " + instance, e);
+            future.completeExceptionally(e);
         }
+        return future;
     }
 
-    private Channel getOrCreateChannel(String instance) {
-        Channel ch = channelPool.get(instance);
-        if (ch != null && ch.isActive()) return ch;
-        // channel 不存在或已断开，重建
-        channelPool.remove(instance);
-        return channelPool.computeIfAbsent(instance, key -> {
+    /** 在已建立的连接上登记在途请求、启动超时并写出请求帧，失败时以异常完成 future */
+    private void write(Channel channel, RpcRequest request, ResponseFuture future, int timeout) {
+        // 等待建连期间已被调用方取消
+        if (future.isDone()) return;
+        try {
+            InFlightRequests inFlight = InFlightRequests.of(channel);
+            PeerState peer = PeerState.of(channel);
+            // 序号在本连接内分配，响应由本连接的 NettyClientHandler 按序号取回
+            int sequenceId = inFlight.register(future);
+            future.bind(inFlight, sequenceId);
+            ByteBuf encoded;
             try {
-                String[] parts = key.split(":");
-                String host = parts[0];
-                int port = Integer.parseInt(parts[1]);
-
-                Bootstrap bootstrap = new Bootstrap();
-                bootstrap.group(workerGroup)
-                        .channel(NioSocketChannel.class)
-                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutMs)
-                        .handler(new ChannelInitializer<SocketChannel>() {
-                            @Override
-                            protected void initChannel(SocketChannel ch) {
-                                ch.pipeline()
-                                        .addLast(new MarpcFrameDecoder())
-                                        .addLast(new MarpcFrameEncoder())
-                                        .addLast(new NettyClientHandler(pendingRequests));
-                            }
-                        });
-
-                ChannelFuture future = bootstrap.connect(host, port).sync();
-                log.info("[NettyRpcClient] 连接成功: {}", key);
-                return future.channel();
+                // 在调用线程上直接序列化进池化 ByteBuf，I/O 线程只负责写出
+                encoded = MarpcFrameEncoder.encode(channel.alloc(), requestFrame(peer, sequenceId, request), compression);
             } catch (Exception e) {
-                throw new MarpcNetworkException(NETWORK_ERROR, "连接失败: " + key, e);
+                inFlight.remove(sequenceId);
+                throw e;
+            }
+            requestCount.increment();
+
+            // 超时由时间轮驱动：到期时从在途表摘除并失败，调用线程无需为超时而阻塞
+            future.timeout(timeoutTimer.newTimeout(t -> {
+                if (inFlight.remove(sequenceId) != null) {
+                    timeoutCount.increment();
+                    future.completeExceptionally(new TimeoutException(
+                            "request timeout after " + timeout + "ms, sequenceId=" + sequenceId));
+                }
+            }, timeout, TimeUnit.MILLISECONDS));
+
+            channel.writeAndFlush(encoded).addListener(f -> {
+                if (!f.isSuccess() && inFlight.remove(sequenceId) != null) {
+                    future.completeExceptionally(f.cause());
+                }
+            });
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /** 注册中心登记的是 HTTP 端口，Netty 连接使用同一主机的 Netty 端口；结果按实例缓存，避免每次调用拆分拼接字符串 */
+    private String nettyInstance(String instance) {
+        String nettyInstance = nettyInstances.get(instance);
+        if (nettyInstance == null) {
+            nettyInstance = nettyInstances.computeIfAbsent(instance,
+                    key -> key.split(":")[0] + ":" + config.getPort());
+        }
+        return nettyInstance;
+    }
+
+    /**
+     * 始终声明首选压缩算法，确认对端支持后大请求才压缩；
+     * v2 连接上 RpcContext 放入二进制附加信息区，payload 中不再携带 context，
+     * 并使用该服务配置的序列化方式（对端不支持时退回 json）；对端下发过该方法的 id 时，
+     * payload 只携带参数，服务名与方法签名由帧头中的方法 id 代替。
+     */
+    private MarpcFrame requestFrame(PeerState peer, int sequenceId, RpcRequest request) {
+        byte version = peer.version();
+        Object body = request;
+        Map<String, String> attachments = null;
+        byte serializer = MarpcProtocol.SERIALIZER_JSON;
+        int methodId = 0;
+        if (version >= MarpcProtocol.VERSION_2) {
+            byte preferred = serviceSerializers.getOrDefault(request.getService(), defaultSerializer).id();
+            if (peer.supports(preferred)) serializer = preferred;
+            attachments = request.getContext();
+            methodId = peer.methodId(request.getService(), request.getMethodSign());
+            if (methodId != 0) {
+                // 携带方法 id 时请求体只有实参数组，服务端按方法参数类型一次解析
+                body = request.getArgs() != null ? request.getArgs() : EMPTY_ARGS;
+            } else if (attachments != null) {
+                // context 已放入附加信息区，payload 使用不含 context 的副本
+                RpcRequest compact = new RpcRequest();
+                compact.setService(request.getService());
+                compact.setMethod(request.getMethod());
+                compact.setMethodSign(request.getMethodSign());
+                compact.setArgs(request.getArgs());
+                body = compact;
+            }
+        }
+        return MarpcFrame.outbound(MarpcProtocol.TYPE_REQUEST, sequenceId, body)
+                .version(version)
+                .compression(compression.codec(), peer.compression())
+                .serializer(serializer)
+                .methodId(methodId)
+                .attachments(attachments);
+    }
+
+    private NettyChannelPool getChannelPool(String instance) {
+        NettyChannelPool pool = channelPools.get(instance);
+        if (pool != null) return pool;
+        // 按旧实例列表选中的已下线实例不再建立连接池，以网络异常失败，由重试切换实例
+        if (!isLive(instance)) {
+            throw new MarpcNetworkException(NETWORK_ERROR, "实例已下线: " + instance);
+        }
+        // 建连不放在 computeIfAbsent 中：start 只发起异步连接，且只由放入成功的线程调用
+        NettyChannelPool created = new NettyChannelPool(instance, bootstrap, config);
+        NettyChannelPool existing = channelPools.putIfAbsent(instance, created);
+        if (existing != null) return existing;
+        // onChange 先发布实例并集再清理连接池：放入期间实例恰好下线时，要么被清理看到，要么在这里被发现
+        if (!isLive(instance)) {
+            channelPools.remove(instance, created);
+            created.close();
+            throw new MarpcNetworkException(NETWORK_ERROR, "实例已下线: " + instance);
+        }
+        created.start();
+        return created;
+    }
+
+    private boolean isLive(String instance) {
+        Set<String> current = live;
+        return current == null || current.contains(instance);
+    }
+
+    /**
+     * 实例下线时关闭并移除其连接池，连接池随之停止后台重连；同一地址仍被其他服务引用时保留。
+     * 有在途请求的连接等待一个全局超时周期后再关闭，下线实例上已发出的请求仍可正常返回。
+     */
+    @Override
+    public synchronized void onChange(String service, List<String> instances) {
+        Set<String> current = new HashSet<>();
+        for (String instance : instances) {
+            current.add(nettyInstance(instance));
+        }
+        registered.put(service, current);
+        Set<String> all = new HashSet<>();
+        registered.values().forEach(all::addAll);
+        live = all;
+        nettyInstances.values().removeIf(nettyInstance -> !all.contains(nettyInstance));
+        channelPools.forEach((instance, pool) -> {
+            if (!all.contains(instance) && channelPools.remove(instance, pool)) {
+                pool.close(timeoutMs);
+                log.info("[NettyRpcClient] 实例已下线，关闭连接池: {}", instance);
             }
         });
     }
 
+    /** 当前等待响应的请求数 */
+    public int getPendingCount() {
+        int total = 0;
+        for (NettyChannelPool pool : channelPools.values()) {
+            total += pool.pendingCount();
+        }
+        return total;
+    }
+
+    /** 累计发出的请求数 */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /** 累计超时的请求数 */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /** 超时率：累计超时数 / 累计请求数 */
+    public double getTimeoutRate() {
+        long requests = getRequestCount();
+        return requests == 0 ? 0 : (double) getTimeoutCount() / requests;
+    }
+
+    /** 请求写合并统计 */
+    public FlushBatchStats getFlushStats() {
+        return flushStats;
+    }
+
+    /** 请求压缩 / 响应解压统计 */
+    public CompressionStats getCompressionStats() {
+        return compression.getStats();
+    }
+
     public void shutdown() {
-        channelPool.values().forEach(Channel::close);
+        channelPools.values().forEach(NettyChannelPool::close);
         workerGroup.shutdownGracefully();
+        // 连接关闭时由 NettyClientHandler.channelInactive 失败各自的在途请求
+        timeoutTimer.stop();
+        log.info("[NettyRpcClient] 已关闭, 超时 {}/{}, 写合并统计: {}, 压缩统计: {}",
+                getTimeoutCount(), getRequestCount(), flushStats, compression.getStats());
     }
 }
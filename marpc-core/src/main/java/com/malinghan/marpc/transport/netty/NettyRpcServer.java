@@ -1,58 +1,86 @@
 package com.malinghan.marpc.transport.netty;
 
 import com.malinghan.marpc.provider.ProviderBootstrap;
+import com.malinghan.marpc.provider.ProviderExecutor;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Slf4j
 public class NettyRpcServer implements InitializingBean, DisposableBean {
 
     private final ProviderBootstrap providerBootstrap;
-    private final int port;
+    private final ProviderExecutor providerExecutor;
+    private final NettyConfig config;
+    private final FlushBatchStats flushStats = new FlushBatchStats();
+    private final FrameCompression compression;
 
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
-    private Channel serverChannel;
+    private final List<Channel> serverChannels = new ArrayList<>();
 
-    public NettyRpcServer(ProviderBootstrap providerBootstrap, int port) {
+    public NettyRpcServer(ProviderBootstrap providerBootstrap, ProviderExecutor providerExecutor, NettyConfig config) {
         this.providerBootstrap = providerBootstrap;
-        this.port = port;
+        this.providerExecutor = providerExecutor;
+        this.config = config;
+        this.compression = FrameCompression.of(config);
     }
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        bossGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup();
+        boolean epoll = NettyTransports.useEpoll(config);
+        // SO_REUSEPORT 下每个 accept 线程绑定一个独立的监听 socket，由内核在它们之间分发新连接
+        int acceptors = epoll && config.isReusePort() ? Math.max(1, config.getAcceptorThreads()) : 1;
+        bossGroup = NettyTransports.newGroup(epoll, acceptors, "marpc-server-boss");
+        workerGroup = NettyTransports.newGroup(epoll, config.getIoThreads(), "marpc-server-io");
 
         ServerBootstrap bootstrap = new ServerBootstrap();
+        NettyTransports.applyServerOptions(bootstrap, config, epoll);
         bootstrap.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(NettyTransports.serverSocketChannel(epoll))
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) {
                         ch.pipeline()
                                 .addLast(new MarpcFrameDecoder())
-                                .addLast(new MarpcFrameEncoder())
-                                .addLast(new NettyServerHandler(providerBootstrap));
+                                .addLast(new FlushBatchingHandler(config.getFlushWindowMicros(),
+                                        config.getFlushMaxBytes(), config.getFlushMaxFrames(), flushStats))
+                                .addLast(new MarpcFrameEncoder(compression))
+                                .addLast(new NettyServerHandler(providerBootstrap, providerExecutor, compression));
                     }
                 });
 
-        ChannelFuture future = bootstrap.bind(port).sync();
-        serverChannel = future.channel();
-        log.info("[NettyRpcServer] 启动，监听端口: {}", port);
+        for (int i = 0; i < acceptors; i++) {
+            ChannelFuture future = bootstrap.bind(config.getPort()).sync();
+            serverChannels.add(future.channel());
+        }
+        log.info("[NettyRpcServer] 启动，监听端口: {}, 传输: {}, 监听 socket 数: {}, 业务分发模式: {}, 压缩: {}",
+                config.getPort(), epoll ? "epoll" : "nio", acceptors, providerExecutor.getMode(), config.getCompression());
     }
 
     @Override
     public void destroy() throws Exception {
-        if (serverChannel != null) serverChannel.close().sync();
+        for (Channel serverChannel : serverChannels) {
+            serverChannel.close().sync();
+        }
         if (bossGroup != null) bossGroup.shutdownGracefully().sync();
         if (workerGroup != null) workerGroup.shutdownGracefully().sync();
-        log.info("[NettyRpcServer] 已关闭");
+        log.info("[NettyRpcServer] 已关闭, 写合并统计: {}, 压缩统计: {}", flushStats, compression.getStats());
+    }
+
+    /** 响应写合并统计 */
+    public FlushBatchStats getFlushStats() {
+        return flushStats;
+    }
+
+    /** 响应压缩 / 请求解压统计 */
+    public CompressionStats getCompressionStats() {
+        return compression.getStats();
     }
 }
@@ -1,50 +1,227 @@
 package com.malinghan.marpc.transport.netty;
 
-import com.alibaba.fastjson2.JSON;
 import com.malinghan.marpc.context.RpcContext;
 import com.malinghan.marpc.core.RpcRequest;
 import com.malinghan.marpc.core.RpcResponse;
 import com.malinghan.marpc.exception.MarpcBizException;
 import com.malinghan.marpc.provider.ProviderBootstrap;
+import com.malinghan.marpc.provider.ProviderExecutor;
+import com.malinghan.marpc.provider.ProviderMethod;
+import com.malinghan.marpc.serialization.Serializers;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.malinghan.marpc.exception.MarpcException.ErrorCode.METHOD_NOT_FOUND;
+import static com.malinghan.marpc.exception.MarpcException.ErrorCode.PROVIDER_BUSY;
+
 @Slf4j
 public class NettyServerHandler extends SimpleChannelInboundHandler<MarpcFrame> {
 
     private final ProviderBootstrap providerBootstrap;
+    private final ProviderExecutor providerExecutor;
+    private final FrameCompression compression;
 
-    public NettyServerHandler(ProviderBootstrap providerBootstrap) {
+    public NettyServerHandler(ProviderBootstrap providerBootstrap, ProviderExecutor providerExecutor) {
+        this(providerBootstrap, providerExecutor, FrameCompression.DISABLED);
+    }
+
+    NettyServerHandler(ProviderBootstrap providerBootstrap, ProviderExecutor providerExecutor,
+                       FrameCompression compression) {
         this.providerBootstrap = providerBootstrap;
+        this.providerExecutor = providerExecutor;
+        this.compression = compression;
     }
 
+    /**
+     * I/O 线程只负责把请求帧交给业务线程池；反序列化、服务调用、响应序列化都在业务线程执行。
+     * isolated 模式需要服务名选择线程池，只能先在 I/O 线程反序列化。握手帧直接在 I/O 线程应答。
+     */
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, MarpcFrame frame) {
-        log.info("[NettyServerHandler] 收到请求, sequenceId={}, payloadLen={}",
-                frame.getSequenceId(), frame.getPayload().length);
-        RpcRequest request = JSON.parseObject(frame.getPayload(), RpcRequest.class);
+        // 逐请求日志为 debug 级别，并先判断级别，避免关闭时仍为参数装箱
+        if (log.isDebugEnabled()) {
+            log.debug("[NettyServerHandler] 收到请求, sequenceId={}, payloadLen={}",
+                    frame.getSequenceId(), frame.payloadLength());
+        }
+        // 响应使用请求的协议版本与序列化方式，以及客户端声明的压缩算法（本端开启且支持时），
+        // 回带的算法编号同时告知客户端可以压缩请求
+        Reply reply = new Reply(frame.getSequenceId(), frame.getVersion(), compression.accept(frame.getCodec()),
+                Serializers.byId(frame.getSerializer()) != null ? frame.getSerializer() : MarpcProtocol.SERIALIZER_JSON);
+        if (frame.getType() == MarpcProtocol.TYPE_HANDSHAKE) {
+            handshake(ctx, frame, reply);
+            return;
+        }
+        // frame 只释放一次：由 readRequest 释放；非 isolated 模式提交被拒绝、readRequest 没有执行时在这里释放
+        if (providerExecutor.isServiceAware()) {
+            RpcRequest request = readRequest(ctx, frame, reply);
+            if (request == null) return;
+            try {
+                providerExecutor.select(request.getService()).execute(() -> process(ctx, reply, request));
+            } catch (RejectedExecutionException e) {
+                reject(ctx, reply, e);
+            }
+        } else {
+            try {
+                providerExecutor.select(null).execute(() -> {
+                    RpcRequest request = readRequest(ctx, frame, reply);
+                    if (request != null) process(ctx, reply, request);
+                });
+            } catch (RejectedExecutionException e) {
+                frame.release();
+                reject(ctx, reply, e);
+            }
+        }
+    }
+
+    private void reject(ChannelHandlerContext ctx, Reply reply, RejectedExecutionException e) {
+        log.warn("[NettyServerHandler] 业务线程池已满, 拒绝请求 sequenceId={}, queueDepth={}, rejected={}",
+                reply.sequenceId, providerExecutor.getQueueDepth(), providerExecutor.getRejectedCount());
+        writeResponse(ctx, reply, RpcResponse.error(PROVIDER_BUSY + ": " + e.getMessage()));
+    }
 
+    /**
+     * v2 请求的 RpcContext 在附加信息区，v1 请求的在 payload 中；
+     * 携带方法 id 的请求体只有实参数组，按方法表补全服务名与方法签名，并按参数泛型类型一次解析实参。解析失败时直接回写错误响应并返回 null，
+     * 无论成功与否都会释放 frame。
+     */
+    private RpcRequest readRequest(ChannelHandlerContext ctx, MarpcFrame frame, Reply reply) {
+        try {
+            RpcRequest request;
+            if (frame.getMethodId() != 0) {
+                ProviderMethod method = providerBootstrap.getMethod(frame.getMethodId());
+                if (method == null) {
+                    throw new MarpcBizException(METHOD_NOT_FOUND, "unknown method id: " + frame.getMethodId());
+                }
+                request = new RpcRequest();
+                request.setService(method.getService());
+                request.setMethod(method.getMethod());
+                request.setMethodSign(method.getMethodSign());
+                request.setArgs(PayloadCodec.readArgs(frame, method.getGenericParameterTypes(), compression));
+            } else {
+                request = PayloadCodec.read(frame, RpcRequest.class, compression);
+            }
+            if (frame.getAttachments() != null) {
+                request.setContext(frame.getAttachments());
+            }
+            return request;
+        } catch (MarpcBizException e) {
+            writeResponse(ctx, reply, RpcResponse.error(e.getErrorCode() + ": " + e.getMessage()));
+            return null;
+        } catch (Exception e) {
+            log.error("[NettyServerHandler] 请求解析失败, sequenceId={}", reply.sequenceId, e);
+            writeResponse(ctx, reply, RpcResponse.error("INTERNAL_ERROR: " + e.getMessage()));
+            return null;
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void handshake(ChannelHandlerContext ctx, MarpcFrame frame, Reply reply) {
+        int version = MarpcProtocol.VERSION_1;
+        List<Integer> serializers = new ArrayList<>();
+        try {
+            Handshake hello = PayloadCodec.read(frame, Handshake.class, compression);
+            version = Math.min(hello.getVersion(), MarpcProtocol.VERSION);
+            if (hello.getSerializers() != null) {
+                for (Integer id : hello.getSerializers()) {
+                    if (id != null && Serializers.byId(id) != null) serializers.add(id);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[NettyServerHandler] 握手解析失败，按 v1 应答: {}", ctx.channel().remoteAddress(), e);
+        } finally {
+            frame.release();
+        }
+        log.info("[NettyServerHandler] 握手, 协议版本 v{}, 序列化 {}: {}", version, serializers, ctx.channel().remoteAddress());
+        Handshake handshake = Handshake.of(version, serializers);
+        if (version >= MarpcProtocol.VERSION_2) {
+            List<Handshake.MethodRef> methods = new ArrayList<>();
+            for (ProviderMethod method : providerBootstrap.getMethods()) {
+                methods.add(Handshake.MethodRef.of(method.getId(), method.getService(), method.getMethodSign()));
+            }
+            handshake.setMethods(methods);
+        }
+        MarpcFrame ack = MarpcFrame.outbound(MarpcProtocol.TYPE_HANDSHAKE, reply.sequenceId, handshake)
+                .version(reply.version)
+                .compression(reply.codec, false);
+        ctx.writeAndFlush(MarpcFrameEncoder.encode(ctx.alloc(), ack));
+    }
+
+    private void process(ChannelHandlerContext ctx, Reply reply, RpcRequest request) {
         if (request.getContext() != null && !request.getContext().isEmpty()) {
             RpcContext.setAll(request.getContext());
         }
 
-        RpcResponse response;
+        CompletableFuture<RpcResponse> future;
         try {
-            response = providerBootstrap.invoke(request);
+            future = providerBootstrap.invokeAsync(request);
         } catch (MarpcBizException e) {
-            response = RpcResponse.error(e.getErrorCode() + ": " + e.getMessage());
-        } catch (Exception e) {
-            log.error("[NettyServerHandler] 调用异常", e);
-            response = RpcResponse.error("INTERNAL_ERROR: " + e.getMessage());
+            future = CompletableFuture.completedFuture(RpcResponse.error(e.getErrorCode() + ": " + e.getMessage()));
+        } catch (Throwable e) {
+            // 包括服务方法同步抛出的 Error，客户端同样要收到响应，不能一直等到超时
+            future = CompletableFuture.failedFuture(e);
         } finally {
             RpcContext.clear();
         }
 
-        byte[] payload = JSON.toJSONBytes(response);
-        MarpcFrame responseFrame = new MarpcFrame(MarpcProtocol.TYPE_RESPONSE, frame.getSequenceId(), payload);
-        log.info("[NettyServerHandler] 发送响应, sequenceId={}, status={}", frame.getSequenceId(), response.isStatus());
-        ctx.writeAndFlush(responseFrame);
+        // 异步服务方法完成后再回写响应，不占用线程等待；任何异常完成都回写 INTERNAL_ERROR
+        future.whenComplete((response, error) -> {
+            if (error == null && response != null) {
+                writeResponse(ctx, reply, response);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            log.error("[NettyServerHandler] 调用异常, sequenceId={}", reply.sequenceId, cause);
+            writeResponse(ctx, reply, RpcResponse.error("INTERNAL_ERROR: "
+                    + (cause != null ? cause.getClass().getName() + ": " + cause.getMessage() : "null response")));
+        });
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, Reply reply, RpcResponse response) {
+        // 在当前（业务）线程直接序列化进池化 ByteBuf，避免中间 byte[]
+        ByteBuf encoded;
+        try {
+            encoded = MarpcFrameEncoder.encode(ctx.alloc(), reply.frame(response), compression);
+        } catch (Exception e) {
+            log.error("[NettyServerHandler] 响应序列化失败, sequenceId={}", reply.sequenceId, e);
+            encoded = MarpcFrameEncoder.encode(ctx.alloc(),
+                    reply.frame(RpcResponse.error("INTERNAL_ERROR: " + e.getMessage()))
+                            .serializer(MarpcProtocol.SERIALIZER_JSON));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("[NettyServerHandler] 发送响应, sequenceId={}, status={}", reply.sequenceId, response.isStatus());
+        }
+        ctx.writeAndFlush(encoded);
+    }
+
+    /** 响应帧头信息：与请求同序号、同版本、同序列化方式，压缩算法为协商结果 */
+    private static final class Reply {
+        final int sequenceId;
+        final byte version;
+        final byte codec;
+        final byte serializer;
+
+        Reply(int sequenceId, byte version, byte codec, byte serializer) {
+            this.sequenceId = sequenceId;
+            this.version = version;
+            this.codec = codec;
+            this.serializer = serializer;
+        }
+
+        MarpcFrame frame(RpcResponse response) {
+            return MarpcFrame.outbound(MarpcProtocol.TYPE_RESPONSE, sequenceId, response)
+                    .version(version)
+                    .compression(codec, codec != MarpcProtocol.CODEC_NONE)
+                    .serializer(serializer);
+        }
     }
 
     @Override
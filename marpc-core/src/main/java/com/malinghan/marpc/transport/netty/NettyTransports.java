@@ -0,0 +1,73 @@
+package com.malinghan.marpc.transport.netty;
+
+import io.netty.bootstrap.AbstractBootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 传输实现选择：Linux 上优先使用 native epoll，不可用时退化为 NIO；统一设置 socket 参数。
+ */
+@Slf4j
+final class NettyTransports {
+
+    private NettyTransports() {
+    }
+
+    /** 配置允许且当前平台加载到 native epoll 时返回 true */
+    static boolean useEpoll(NettyConfig config) {
+        if (!config.isNativeTransport()) return false;
+        if (Epoll.isAvailable()) return true;
+        log.info("[NettyTransports] native epoll 不可用，使用 NIO: {}",
+                Epoll.unavailabilityCause() != null ? Epoll.unavailabilityCause().getMessage() : "unknown");
+        return false;
+    }
+
+    /** threads 为 0 时使用 Netty 默认线程数（CPU 核数 * 2） */
+    static EventLoopGroup newGroup(boolean epoll, int threads, String name) {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(name);
+        return epoll ? new EpollEventLoopGroup(threads, threadFactory)
+                : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    static Class<? extends SocketChannel> socketChannel(boolean epoll) {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    static Class<? extends ServerSocketChannel> serverSocketChannel(boolean epoll) {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    /** 客户端连接的 socket 参数 */
+    static void applyClientOptions(AbstractBootstrap<?, ?> bootstrap, NettyConfig config, boolean epoll) {
+        bootstrap.option(ChannelOption.TCP_NODELAY, config.isTcpNoDelay());
+        if (config.getSendBufferSize() > 0) bootstrap.option(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        if (config.getReceiveBufferSize() > 0) bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        if (epoll && config.isTcpQuickAck()) bootstrap.option(EpollChannelOption.TCP_QUICKACK, true);
+    }
+
+    /** 服务端监听及子连接的 socket 参数 */
+    static void applyServerOptions(ServerBootstrap bootstrap, NettyConfig config, boolean epoll) {
+        bootstrap.childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay());
+        if (config.getSendBufferSize() > 0) bootstrap.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        if (config.getReceiveBufferSize() > 0) {
+            // 监听 socket 上设置，accept 出的连接在握手前即可使用较大的窗口
+            bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        if (epoll && config.isTcpQuickAck()) bootstrap.childOption(EpollChannelOption.TCP_QUICKACK, true);
+        if (epoll && config.isReusePort()) bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+    }
+}
@@ -0,0 +1,101 @@
+package com.malinghan.marpc.transport.netty;
+
+import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.serialization.Serializer;
+import com.malinghan.marpc.serialization.Serializers;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.lang.reflect.Type;
+
+/**
+ * 消息体与 ByteBuf 之间的直接序列化，序列化方式由帧头的 serializer 编号决定（v1 帧固定为 json）。
+ */
+final class PayloadCodec {
+
+    private PayloadCodec() {
+    }
+
+    /** 将 body 以 json 序列化后直接追加到 out 的 writerIndex 处 */
+    static void write(Object body, ByteBuf out) {
+        write(Serializers.json(), body, out);
+    }
+
+    /** 将 body 序列化后直接追加到 out 的 writerIndex 处 */
+    static void write(Serializer serializer, Object body, ByteBuf out) {
+        serializer.serialize(body, new ByteBufOutputStream(out));
+    }
+
+    /** 反序列化入站帧，payload 已压缩时先解压到临时 ByteBuf */
+    static <T> T read(MarpcFrame frame, Class<T> type, FrameCompression compression) {
+        Serializer serializer = serializer(frame.getSerializer());
+        if (!frame.isCompressed()) {
+            return read(serializer, frame.getPayload(), type);
+        }
+        ByteBuf raw = compression.decompress(frame);
+        try {
+            return read(serializer, raw, type);
+        } finally {
+            raw.release();
+        }
+    }
+
+    /** 按方法参数的泛型类型一次解析实参数组（携带方法 id 的请求体） */
+    static Object[] readArgs(MarpcFrame frame, Type[] types, FrameCompression compression) {
+        Serializer serializer = serializer(frame.getSerializer());
+        ByteBuf payload = payload(frame, compression);
+        try {
+            if (payload.hasArray()) {
+                return serializer.deserializeArgs(payload.array(), payload.arrayOffset() + payload.readerIndex(),
+                        payload.readableBytes(), types);
+            }
+            // 堆外内存直接以流方式解析，不拷贝成中间 byte[]
+            return serializer.deserializeArgs(new ByteBufInputStream(payload.duplicate()), types);
+        } finally {
+            if (payload != frame.getPayload()) payload.release();
+        }
+    }
+
+    /** 按方法的泛型返回类型一次解析响应 */
+    static RpcResponse readResponse(MarpcFrame frame, Type dataType, FrameCompression compression) {
+        Serializer serializer = serializer(frame.getSerializer());
+        ByteBuf payload = payload(frame, compression);
+        try {
+            if (payload.hasArray()) {
+                return serializer.deserializeResponse(payload.array(), payload.arrayOffset() + payload.readerIndex(),
+                        payload.readableBytes(), dataType);
+            }
+            return serializer.deserializeResponse(new ByteBufInputStream(payload.duplicate()), dataType);
+        } finally {
+            if (payload != frame.getPayload()) payload.release();
+        }
+    }
+
+    /** 未压缩时返回帧自身的 payload，否则解压到新的 ByteBuf，由调用方 release */
+    private static ByteBuf payload(MarpcFrame frame, FrameCompression compression) {
+        return frame.isCompressed() ? compression.decompress(frame) : frame.getPayload();
+    }
+
+    /** 以 json 从 payload 的可读区域反序列化，不改变 payload 的 readerIndex */
+    static <T> T read(ByteBuf payload, Class<T> type) {
+        return read(Serializers.json(), payload, type);
+    }
+
+    /** 从 payload 的可读区域反序列化，不改变 payload 的 readerIndex */
+    static <T> T read(Serializer serializer, ByteBuf payload, Class<T> type) {
+        if (payload.hasArray()) {
+            return serializer.deserialize(payload.array(), payload.arrayOffset() + payload.readerIndex(),
+                    payload.readableBytes(), type);
+        }
+        return serializer.deserialize(new ByteBufInputStream(payload.duplicate()), type);
+    }
+
+    static Serializer serializer(byte id) {
+        Serializer serializer = Serializers.byId(id);
+        if (serializer == null) {
+            throw new IllegalStateException("未知的序列化编号: " + id);
+        }
+        return serializer;
+    }
+}
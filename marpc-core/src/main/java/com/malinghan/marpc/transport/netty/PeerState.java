@@ -0,0 +1,79 @@
+package com.malinghan.marpc.transport.netty;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 客户端连接上与对端协商出的状态：协议版本、对端支持的序列化方式、对端的方法表、对端是否支持本端的压缩算法。
+ * 由 {@link NettyClientHandler} 在收到握手 / 响应时更新，发送线程只读。
+ */
+final class PeerState {
+
+    static final AttributeKey<PeerState> KEY = AttributeKey.valueOf("marpc.peer");
+
+    private volatile byte version = MarpcProtocol.VERSION_1;
+    private volatile boolean compression;
+    /** 下标为序列化编号，握手完成后整体替换 */
+    private volatile boolean[] serializers = new boolean[0];
+    /** 服务名 -> 方法签名 -> 方法 id，握手完成后整体替换 */
+    private volatile Map<String, Map<String, Integer>> methodIds = Map.of();
+
+    static PeerState of(Channel channel) {
+        return channel.attr(KEY).get();
+    }
+
+    byte version() {
+        return version;
+    }
+
+    void version(byte version) {
+        this.version = version;
+    }
+
+    /** 对端是否支持该序列化编号；json 始终可用 */
+    boolean supports(byte serializer) {
+        if (serializer == MarpcProtocol.SERIALIZER_JSON) return true;
+        boolean[] supported = serializers;
+        return serializer > 0 && serializer < supported.length && supported[serializer];
+    }
+
+    void serializers(List<Integer> ids) {
+        boolean[] supported = new boolean[128];
+        if (ids != null) {
+            for (Integer id : ids) {
+                if (id != null && id > 0 && id < supported.length) supported[id] = true;
+            }
+        }
+        this.serializers = supported;
+    }
+
+    /** 对端为该方法分配的 id，未知时返回 0 */
+    int methodId(String service, String methodSign) {
+        Map<String, Integer> signs = methodIds.get(service);
+        if (signs == null) return 0;
+        Integer id = signs.get(methodSign);
+        return id == null ? 0 : id;
+    }
+
+    void methods(List<Handshake.MethodRef> methods) {
+        Map<String, Map<String, Integer>> table = new HashMap<>();
+        if (methods != null) {
+            for (Handshake.MethodRef ref : methods) {
+                table.computeIfAbsent(ref.getService(), k -> new HashMap<>()).put(ref.getMethodSign(), ref.getId());
+            }
+        }
+        this.methodIds = table;
+    }
+
+    boolean compression() {
+        return compression;
+    }
+
+    void compression(boolean compression) {
+        this.compression = compression;
+    }
+}
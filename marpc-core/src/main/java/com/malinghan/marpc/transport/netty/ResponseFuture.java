@@ -0,0 +1,92 @@
+package com.malinghan.marpc.transport.netty;
+
+import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.exception.MarpcNetworkException;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+
+import static com.malinghan.marpc.exception.MarpcException.ErrorCode.NETWORK_ERROR;
+
+/**
+ * 在途请求的 Future，同时记录调用方期望的 data 类型，收到响应时按该类型解析。
+ *
+ * <p>同一个对象既登记在在途表中，也直接返回给调用方：完成时取消超时任务，异常统一包装为
+ * {@link MarpcNetworkException}（已是该类型时原样传递），不再为每次调用额外创建一个结果 Future 与回调。
+ * 调用方 {@link #cancel} 时同时取消超时任务并从在途表摘除。
+ */
+final class ResponseFuture extends CompletableFuture<RpcResponse> {
+
+    private final Type dataType;
+    private final String instance;
+    /** 继承的 CompletableFuture.Timeout 会遮蔽导入，这里使用全限定名 */
+    private volatile io.netty.util.Timeout timeout;
+    private volatile int sequenceId;
+    /** 登记所在的在途表，写出前为 null */
+    private volatile InFlightRequests inFlight;
+
+    ResponseFuture(Type dataType) {
+        this(dataType, null);
+    }
+
+    ResponseFuture(Type dataType, String instance) {
+        this.dataType = parseable(dataType) ? dataType : Object.class;
+        this.instance = instance;
+    }
+
+    void timeout(io.netty.util.Timeout timeout) {
+        this.timeout = timeout;
+        // 设置前已完成或被取消
+        if (isDone()) timeout.cancel();
+    }
+
+    /** 记录登记位置，供取消时摘除；登记前已被取消则立即摘除 */
+    void bind(InFlightRequests inFlight, int sequenceId) {
+        this.sequenceId = sequenceId;
+        this.inFlight = inFlight;
+        if (isCancelled()) inFlight.remove(sequenceId);
+    }
+
+    @Override
+    public boolean complete(RpcResponse value) {
+        cancelTimeout();
+        return super.complete(value);
+    }
+
+    @Override
+    public boolean completeExceptionally(Throwable ex) {
+        cancelTimeout();
+        return super.completeExceptionally(ex instanceof MarpcNetworkException ? ex
+                : new MarpcNetworkException(NETWORK_ERROR, "Netty call failed: " + instance, ex));
+    }
+
+    /** CompletableFuture.cancel 不经过 completeExceptionally，需单独释放超时任务与在途表项 */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            cancelTimeout();
+            InFlightRequests table = inFlight;
+            if (table != null) table.remove(sequenceId);
+        }
+        return cancelled;
+    }
+
+    private void cancelTimeout() {
+        io.netty.util.Timeout t = timeout;
+        if (t != null) t.cancel();
+    }
+
+    /** void、类型变量、通配符等无法直接解析的类型按 Object 解析，由调用方再转换 */
+    private static boolean parseable(Type type) {
+        if (type == void.class || type == Void.class) return false;
+        return type instanceof Class<?> || type instanceof ParameterizedType || type instanceof GenericArrayType;
+    }
+
+    /** 在途表中的 Future 期望的 data 类型，普通 Future 按 Object 处理 */
+    static Type dataType(CompletableFuture<RpcResponse> future) {
+        return future instanceof ResponseFuture f ? f.dataType : Object.class;
+    }
+}
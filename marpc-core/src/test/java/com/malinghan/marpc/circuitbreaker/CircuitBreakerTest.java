@@ -0,0 +1,201 @@
+package com.malinghan.marpc.circuitbreaker;
+
+import com.malinghan.marpc.exception.MarpcFrameworkException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 熔断器单元测试：最小调用数、失败率与慢调用熔断，半开限量探测与超时，注册表的熔断粒度。
+ */
+class CircuitBreakerTest {
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    private static CircuitBreakerConfig config() {
+        CircuitBreakerConfig config = CircuitBreakerConfig.of(10, 50, 0, 0);
+        config.setHalfOpenProbes(2);
+        return config;
+    }
+
+    @Test
+    void belowMinimumCallsDoesNotTrip() {
+        CircuitBreaker breaker = new CircuitBreaker(CircuitBreakerConfig.of(10, 50, 10000, 5000));
+        for (int i = 0; i < 9; i++) breaker.onFailure();
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        assertEquals(9, breaker.getFailureCount());
+        breaker.preCall();
+    }
+
+    @Test
+    void failureRateTrips() {
+        CircuitBreaker breaker = new CircuitBreaker(CircuitBreakerConfig.of(10, 50, 10000, 5000));
+        for (int i = 0; i < 6; i++) breaker.onSuccess();
+        for (int i = 0; i < 4; i++) breaker.onFailure();
+        // 4/10 未达到 50%
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        breaker.onFailure();
+        // 5/11 仍未达到
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        breaker.onFailure();
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+        assertThrows(MarpcFrameworkException.class, breaker::preCall);
+    }
+
+    @Test
+    void slowCallRateTrips() {
+        CircuitBreakerConfig config = CircuitBreakerConfig.of(10, 50, 10000, 5000);
+        config.setSlowCallRateThreshold(80);
+        CircuitBreaker breaker = new CircuitBreaker(config);
+        for (int i = 0; i < 2; i++) breaker.onSuccess(0);
+        for (int i = 0; i < 7; i++) breaker.onSuccess(SLOW);
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        breaker.onSuccess(SLOW);
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenAdmitsLimitedProbesThenCloses() {
+        CircuitBreaker breaker = new CircuitBreaker(config());
+        for (int i = 0; i < 10; i++) breaker.onFailure();
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+
+        breaker.preCall();
+        assertEquals(CircuitBreakerState.HALF_OPEN, breaker.getState());
+        breaker.preCall();
+        // 探测名额已用完
+        assertThrows(MarpcFrameworkException.class, breaker::preCall);
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreakerState.HALF_OPEN, breaker.getState());
+        breaker.onSuccess();
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureCount());
+        breaker.preCall();
+    }
+
+    @Test
+    void halfOpenFailureReopens() {
+        CircuitBreakerConfig config = config();
+        config.setHalfOpenDelay(10000);
+        CircuitBreaker breaker = new CircuitBreaker(config);
+        for (int i = 0; i < 10; i++) breaker.onFailure();
+
+        breaker.preCall();
+        assertEquals(CircuitBreakerState.HALF_OPEN, breaker.getState());
+        breaker.onFailure();
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+        // 按 halfOpenDelay 重新熔断
+        assertThrows(MarpcFrameworkException.class, breaker::preCall);
+    }
+
+    @Test
+    void releasedProbeIsReturned() {
+        CircuitBreaker breaker = new CircuitBreaker(config());
+        for (int i = 0; i < 10; i++) breaker.onFailure();
+
+        breaker.preCall();
+        breaker.preCall();
+        assertThrows(MarpcFrameworkException.class, breaker::preCall);
+        // 探测未发出即中止，名额归还
+        breaker.release();
+        breaker.preCall();
+        assertEquals(CircuitBreakerState.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenTimeoutReopens() throws InterruptedException {
+        CircuitBreakerConfig config = config();
+        config.setHalfOpenTimeout(50);
+        config.setHalfOpenDelay(10000);
+        CircuitBreaker breaker = new CircuitBreaker(config);
+        for (int i = 0; i < 10; i++) breaker.onFailure();
+
+        breaker.preCall();
+        breaker.preCall();
+        Thread.sleep(100);
+        // 探测一直没有结果，超时后重新熔断
+        assertThrows(MarpcFrameworkException.class, breaker::preCall);
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+    }
+
+    @Test
+    void concurrentHalfOpenAdmitsOnlyProbes() throws Exception {
+        CircuitBreakerConfig config = config();
+        config.setHalfOpenProbes(3);
+        CircuitBreaker breaker = new CircuitBreaker(config);
+        for (int i = 0; i < 10; i++) breaker.onFailure();
+
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        breaker.preCall();
+                        admitted.incrementAndGet();
+                    } catch (MarpcFrameworkException ignored) {
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(3, admitted.get());
+    }
+
+    @Test
+    void disabledNeverTrips() {
+        CircuitBreaker breaker = new CircuitBreaker(CircuitBreakerConfig.disabled());
+        for (int i = 0; i < 100; i++) breaker.onFailure();
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        breaker.preCall();
+    }
+
+    @Test
+    void registryIsolatesMethods() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(config());
+        CircuitBreaker hello = registry.get("demo.HelloService", "hello@1_java.lang.String");
+        CircuitBreaker bye = registry.get("demo.HelloService", "bye@0");
+        assertSame(hello, registry.get("demo.HelloService", "hello@1_java.lang.String"));
+        assertNotSame(hello, bye);
+
+        for (int i = 0; i < 10; i++) hello.onFailure();
+        assertEquals(CircuitBreakerState.OPEN, hello.getState());
+        assertEquals(CircuitBreakerState.CLOSED, bye.getState());
+        assertEquals(2, registry.getAll().size());
+    }
+
+    @Test
+    void registryServiceScope() {
+        CircuitBreakerConfig config = config();
+        config.setScope("service");
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(config);
+        CircuitBreaker hello = registry.get("demo.HelloService", "hello@1_java.lang.String");
+        assertSame(hello, registry.get("demo.HelloService", "bye@0"));
+        assertNotSame(hello, registry.get("demo.UserService", "find@1_int"));
+        assertEquals("demo.HelloService", hello.getName());
+    }
+
+    @Test
+    void registrySharesBreakerWhenDisabled() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(CircuitBreakerConfig.disabled());
+        assertSame(registry.get("a", "x@0"), registry.get("b", "y@0"));
+    }
+}
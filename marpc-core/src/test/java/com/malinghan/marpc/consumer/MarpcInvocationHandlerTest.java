@@ -0,0 +1,207 @@
+package com.malinghan.marpc.consumer;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.malinghan.marpc.annotation.MarpcMethod;
+import com.malinghan.marpc.circuitbreaker.CircuitBreaker;
+import com.malinghan.marpc.circuitbreaker.CircuitBreakerConfig;
+import com.malinghan.marpc.circuitbreaker.CircuitBreakerState;
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.exception.MarpcNetworkException;
+import com.malinghan.marpc.loadbalance.ServiceStats;
+import com.malinghan.marpc.retry.RetryPolicy;
+import com.malinghan.marpc.transport.RpcTransport;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.malinghan.marpc.exception.MarpcException.ErrorCode.NETWORK_ERROR;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MarpcInvocationHandler 单元测试：验证异步调用不阻塞、异步重试、重试后只向熔断器上报一次结果。
+ */
+class MarpcInvocationHandlerTest {
+
+    interface AsyncService {
+        CompletableFuture<String> hello(String name);
+        String helloSync(String name);
+        CompletableFuture<List<Point>> points();
+        @MarpcMethod(timeout = 500, retries = 0)
+        CompletableFuture<String> fastHello(String name);
+    }
+
+    record Point(int x, int y) {
+    }
+
+    /** 记录每次 sendAsync 调用，由测试手动完成 Future */
+    static class ManualTransport implements RpcTransport {
+        final List<String> instances = new ArrayList<>();
+        final List<CompletableFuture<RpcResponse>> futures = new ArrayList<>();
+        final List<Integer> timeouts = new ArrayList<>();
+
+        @Override
+        public RpcResponse send(String instance, RpcRequest request) {
+            instances.add(instance);
+            return RpcResponse.ok("sync:" + request.getArgs()[0]);
+        }
+
+        @Override
+        public CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request) {
+            instances.add(instance);
+            CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+            futures.add(future);
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<RpcResponse> sendAsync(String instance, RpcRequest request, Type dataType, int timeoutMs) {
+            timeouts.add(timeoutMs);
+            return sendAsync(instance, request);
+        }
+    }
+
+    @Test
+    void async_returnsImmediately_completesWithConvertedValue() throws Exception {
+        ManualTransport transport = new ManualTransport();
+        AsyncService service = proxy(transport, RetryPolicy.noRetry(), List.of("a:1"));
+
+        CompletableFuture<String> result = service.hello("world");
+        assertFalse(result.isDone());
+        assertEquals(1, transport.futures.size());
+
+        transport.futures.get(0).complete(RpcResponse.ok("hello, world"));
+        assertEquals("hello, world", result.get());
+    }
+
+    @Test
+    void async_networkError_retriesOnAnotherInstance() throws Exception {
+        ManualTransport transport = new ManualTransport();
+        AsyncService service = proxy(transport, RetryPolicy.of(1, 1000), List.of("a:1", "b:1"));
+
+        CompletableFuture<String> result = service.hello("world");
+        transport.futures.get(0).completeExceptionally(
+                new MarpcNetworkException(NETWORK_ERROR, "boom"));
+        assertFalse(result.isDone());
+        assertEquals(2, transport.futures.size());
+        assertNotEquals(transport.instances.get(0), transport.instances.get(1));
+
+        transport.futures.get(1).complete(RpcResponse.ok("retried"));
+        assertEquals("retried", result.get());
+    }
+
+    /** 半开探测只放行一次调用，重试中间的失败不计入熔断器，最终成功即关闭 */
+    @Test
+    void async_retriedProbeReportsFinalOutcomeOnce() throws Exception {
+        CircuitBreakerConfig config = CircuitBreakerConfig.of(10, 50, 0, 0);
+        config.setHalfOpenProbes(1);
+        CircuitBreaker breaker = new CircuitBreaker(config);
+        for (int i = 0; i < 10; i++) breaker.onFailure();
+        ManualTransport transport = new ManualTransport();
+        AsyncService service = proxy(transport, RetryPolicy.of(1, 1000), List.of("a:1", "b:1"), breaker);
+
+        CompletableFuture<String> result = service.hello("world");
+        assertEquals(CircuitBreakerState.HALF_OPEN, breaker.getState());
+        transport.futures.get(0).completeExceptionally(new MarpcNetworkException(NETWORK_ERROR, "boom"));
+        assertEquals(CircuitBreakerState.HALF_OPEN, breaker.getState());
+
+        transport.futures.get(1).complete(RpcResponse.ok("retried"));
+        assertEquals("retried", result.get());
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureCount());
+    }
+
+    @Test
+    void async_bizError_completesExceptionally() {
+        ManualTransport transport = new ManualTransport();
+        AsyncService service = proxy(transport, RetryPolicy.noRetry(), List.of("a:1"));
+
+        CompletableFuture<String> result = service.hello("world");
+        transport.futures.get(0).complete(RpcResponse.error("METHOD_NOT_FOUND: hello"));
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    void async_untypedDataConvertedByGenericReturnType() throws Exception {
+        ManualTransport transport = new ManualTransport();
+        AsyncService service = proxy(transport, RetryPolicy.noRetry(), List.of("a:1"));
+
+        CompletableFuture<List<Point>> result = service.points();
+        transport.futures.get(0).complete(RpcResponse.ok(JSONArray.of(JSONObject.of("x", 1, "y", 2))));
+        assertEquals(List.of(new Point(1, 2)), result.get());
+    }
+
+    @Test
+    void async_typedDataReturnedAsIs() throws Exception {
+        ManualTransport transport = new ManualTransport();
+        AsyncService service = proxy(transport, RetryPolicy.noRetry(), List.of("a:1"));
+
+        List<Point> points = List.of(new Point(3, 4));
+        CompletableFuture<List<Point>> result = service.points();
+        transport.futures.get(0).complete(RpcResponse.ok(points));
+        assertSame(points, result.get());
+    }
+
+    @Test
+    void methodPolicy_overridesGlobalTimeoutAndRetries() {
+        ManualTransport transport = new ManualTransport();
+        AsyncService service = proxy(transport, RetryPolicy.of(1, 1000), List.of("a:1", "b:1"));
+
+        CompletableFuture<String> result = service.fastHello("world");
+        transport.futures.get(0).completeExceptionally(new MarpcNetworkException(NETWORK_ERROR, "boom"));
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(1, transport.futures.size());
+        assertEquals(List.of(500), transport.timeouts);
+
+        service.hello("world");
+        assertEquals(List.of(500, 0), transport.timeouts);
+    }
+
+    @Test
+    void async_tracksInFlightPerInstance() {
+        ManualTransport transport = new ManualTransport();
+        ServiceStats stats = new ServiceStats(AsyncService.class.getCanonicalName());
+        MarpcInvocationHandler handler = new MarpcInvocationHandler(AsyncService.class, request -> "a:1", stats,
+                List.of(), RetryPolicy.noRetry(), new CircuitBreaker(CircuitBreakerConfig.disabled()), transport);
+        AsyncService service = (AsyncService) Proxy.newProxyInstance(AsyncService.class.getClassLoader(),
+                new Class[]{AsyncService.class}, handler);
+
+        service.hello("world");
+        service.hello("again");
+        assertEquals(2, stats.active("a:1"));
+
+        transport.futures.get(0).complete(RpcResponse.ok("hello"));
+        transport.futures.get(1).completeExceptionally(new MarpcNetworkException(NETWORK_ERROR, "boom"));
+        assertEquals(0, stats.active("a:1"));
+        assertEquals(2, stats.get("a:1").getTotal());
+        assertEquals(1, stats.get("a:1").getFailures());
+    }
+
+    @Test
+    void sync_usesBlockingSend() {
+        ManualTransport transport = new ManualTransport();
+        AsyncService service = proxy(transport, RetryPolicy.noRetry(), List.of("a:1"));
+
+        assertEquals("sync:world", service.helloSync("world"));
+        assertTrue(transport.futures.isEmpty());
+    }
+
+    private AsyncService proxy(RpcTransport transport, RetryPolicy retryPolicy, List<String> instances) {
+        return proxy(transport, retryPolicy, instances, new CircuitBreaker(CircuitBreakerConfig.disabled()));
+    }
+
+    private AsyncService proxy(RpcTransport transport, RetryPolicy retryPolicy, List<String> instances,
+                               CircuitBreaker breaker) {
+        int[] counter = {0};
+        MarpcInvocationHandler handler = new MarpcInvocationHandler(AsyncService.class,
+                () -> instances.get(counter[0]++ % instances.size()),
+                List.of(), retryPolicy, breaker, transport);
+        return (AsyncService) Proxy.newProxyInstance(AsyncService.class.getClassLoader(),
+                new Class[]{AsyncService.class}, handler);
+    }
+}
@@ -0,0 +1,284 @@
+package com.malinghan.marpc.loadbalance;
+
+import com.malinghan.marpc.annotation.MarpcMethod;
+import com.malinghan.marpc.consumer.MethodDescriptor;
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.registry.RegistryCenter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 负载均衡单元测试：最少在途选择、并列随机、轮询按服务独立计数、平滑加权与预热、一致性哈希。
+ */
+class LoadBalancerTest {
+
+    private static final List<String> INSTANCES = List.of("a:1", "b:1", "c:1");
+
+    @Test
+    void leastActive_choosesInstanceWithFewestInFlight() {
+        ServiceStats stats = new ServiceStats("demo.UserService");
+        stats.get("a:1").onStart();
+        stats.get("a:1").onStart();
+        stats.get("b:1").onStart();
+        stats.get("c:1").onStart();
+        stats.get("c:1").onComplete(1_000, true);
+
+        LoadBalancer lb = new LeastActiveLoadBalancer();
+        for (int i = 0; i < 20; i++) {
+            assertEquals("c:1", lb.choose(request("demo.UserService"), INSTANCES, stats));
+        }
+        assertEquals(0, stats.active("c:1"));
+        assertEquals(1, stats.get("c:1").getTotal());
+    }
+
+    @Test
+    void leastActive_tiesSpreadAcrossInstances() {
+        ServiceStats stats = new ServiceStats("demo.UserService");
+        LoadBalancer lb = new LeastActiveLoadBalancer();
+        Map<String, Integer> hits = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            hits.merge(lb.choose(request("demo.UserService"), INSTANCES, stats), 1, Integer::sum);
+        }
+        assertEquals(3, hits.size());
+        hits.values().forEach(n -> assertTrue(n > 800, hits::toString));
+    }
+
+    @Test
+    void peakEwma_avoidsSlowInstance() {
+        ServiceStats stats = new ServiceStats("demo.OrderService");
+        long now = System.nanoTime();
+        stats.get("a:1").observe(20_000_000, now);
+        stats.get("b:1").observe(1_000_000, now);
+
+        LoadBalancer lb = new PeakEwmaLoadBalancer();
+        for (int i = 0; i < 20; i++) {
+            assertEquals("b:1", lb.choose(request("demo.OrderService"), List.of("a:1", "b:1"), stats));
+        }
+    }
+
+    @Test
+    void peakEwma_jumpsToPeakAndDecaysBack() {
+        InstanceStats stats = new ServiceStats("demo.OrderService").get("a:1");
+        long now = 0;
+        stats.observe(1_000_000, now);
+        stats.observe(50_000_000, now + 1);
+        assertEquals(50_000_000, stats.getLatencyEwma(now + 1), 1);
+
+        // 一个衰减时间常数后，低延迟样本权重约为 1 - 1/e
+        long later = now + 1 + InstanceStats.DECAY_NANOS;
+        stats.observe(1_000_000, later);
+        double expected = 50_000_000 * Math.exp(-1) + 1_000_000 * (1 - Math.exp(-1));
+        assertEquals(expected, stats.getLatencyEwma(later), 1);
+        assertTrue(stats.getLatencyEwma(later + InstanceStats.DECAY_NANOS) < expected);
+    }
+
+    @Test
+    void peakEwma_penalizesBusyInstanceWithoutSamples() {
+        ServiceStats stats = new ServiceStats("demo.OrderService");
+        stats.get("a:1").onStart();
+        long now = System.nanoTime();
+        assertTrue(PeakEwmaLoadBalancer.cost(stats.peek("a:1"), now) > PeakEwmaLoadBalancer.cost(stats.peek("b:1"), now));
+    }
+
+    @Test
+    void weighted_interleavesByWeight() {
+        ServiceStats stats = new ServiceStats("demo.OrderService");
+        List<String> instances = List.of("a:1", "b:1", "c:1");
+        stats.update(instances, Map.of(
+                "a:1", Map.of(RegistryCenter.META_WEIGHT, "5"),
+                "b:1", Map.of(RegistryCenter.META_WEIGHT, "1"),
+                "c:1", Map.of(RegistryCenter.META_WEIGHT, "1")), false);
+
+        LoadBalancer lb = new WeightedRoundRobinLoadBalancer();
+        List<String> picked = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            picked.add(lb.choose(request("demo.OrderService"), instances, stats));
+        }
+        assertEquals(List.of("a:1", "a:1", "b:1", "a:1", "c:1", "a:1", "a:1"), picked);
+    }
+
+    @Test
+    void weighted_newInstanceWarmsUp() {
+        ServiceStats stats = new ServiceStats("demo.OrderService");
+        stats.update(List.of("a:1"), Map.of(), false);
+        stats.update(List.of("a:1", "b:1"), Map.of("b:1", Map.of(RegistryCenter.META_WARMUP, "60000")), true);
+
+        InstanceStats old = stats.get("a:1");
+        InstanceStats fresh = stats.get("b:1");
+        long now = System.nanoTime();
+        assertEquals(RegistryCenter.DEFAULT_WEIGHT, old.getEffectiveWeight(now));
+        assertTrue(fresh.getEffectiveWeight(now) < 5);
+        assertEquals(RegistryCenter.DEFAULT_WEIGHT / 2,
+                fresh.getEffectiveWeight(now + TimeUnit.SECONDS.toNanos(30)), 2);
+        assertEquals(RegistryCenter.DEFAULT_WEIGHT, fresh.getEffectiveWeight(now + TimeUnit.SECONDS.toNanos(61)));
+    }
+
+    @Test
+    void consistentHash_sameKeySameInstance() {
+        LoadBalancer lb = new ConsistentHashLoadBalancer();
+        List<String> instances = List.of("10.0.0.1:8080", "10.0.0.2:8080", "10.0.0.3:8080");
+        RpcRequest req = request("demo.UserService");
+        req.setHashKey(42L);
+        String first = lb.choose(req, instances, null);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(first, lb.choose(req, new ArrayList<>(instances), null));
+        }
+    }
+
+    @Test
+    void consistentHash_retrySkipsTriedInstances() {
+        LoadBalancer lb = new ConsistentHashLoadBalancer();
+        List<String> instances = List.of("10.0.0.1:8080", "10.0.0.2:8080", "10.0.0.3:8080");
+        RpcRequest req = request("demo.UserService");
+        req.setHashKey(42L);
+        String first = lb.choose(req, instances, null);
+
+        Set<String> tried = new HashSet<>(Set.of(first));
+        req.setTriedInstances(tried);
+        String second = lb.choose(req, instances, null);
+        assertNotEquals(first, second);
+        // 重试顺序对同一个键是确定的
+        assertEquals(second, lb.choose(req, instances, null));
+
+        tried.add(second);
+        String third = lb.choose(req, instances, null);
+        assertNotEquals(first, third);
+        assertNotEquals(second, third);
+
+        // 全部尝试过时回到原实例
+        tried.add(third);
+        assertEquals(first, lb.choose(req, instances, null));
+    }
+
+    @Test
+    void consistentHash_addingInstanceMovesAboutOneNth() {
+        LoadBalancer lb = new ConsistentHashLoadBalancer();
+        List<String> before = new ArrayList<>();
+        for (int i = 0; i < 9; i++) before.add("10.0.0." + i + ":8080");
+        List<String> after = new ArrayList<>(before);
+        after.add("10.0.0.9:8080");
+
+        int keys = 10_000;
+        String[] owners = new String[keys];
+        RpcRequest req = request("demo.UserService");
+        lb.onChange("demo.UserService", before);
+        for (int k = 0; k < keys; k++) {
+            req.setHashKey(k);
+            owners[k] = lb.choose(req, before, null);
+        }
+        int moved = 0;
+        lb.onChange("demo.UserService", after);
+        for (int k = 0; k < keys; k++) {
+            req.setHashKey(k);
+            String owner = lb.choose(req, after, null);
+            if (!owner.equals(owners[k])) {
+                moved++;
+                // 迁移的键只会落到新实例上
+                assertEquals("10.0.0.9:8080", owner);
+            }
+        }
+        // 期望约 1/10，虚拟节点下偏差不大
+        assertTrue(moved > keys / 20 && moved < keys / 5, "moved=" + moved);
+
+        // 实例下线后恢复原有归属
+        lb.onChange("demo.UserService", before);
+        for (int k = 0; k < keys; k++) {
+            req.setHashKey(k);
+            assertEquals(owners[k], lb.choose(req, before, null));
+        }
+    }
+
+    @Test
+    void consistentHash_routedSubsetKeepsRingAndOtherOwners() {
+        LoadBalancer lb = new ConsistentHashLoadBalancer();
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < 5; i++) all.add("10.0.0." + i + ":8080");
+        lb.onChange("demo.UserService", all);
+        String filtered = "10.0.0.2:8080";
+        List<String> routed = new ArrayList<>(all);
+        routed.remove(filtered);
+
+        RpcRequest req = request("demo.UserService");
+        for (int k = 0; k < 1000; k++) {
+            req.setHashKey(k);
+            req.setTriedInstances(null);
+            String owner = lb.choose(req, all, null);
+            String routedOwner = lb.choose(req, routed, null);
+            if (!owner.equals(filtered)) {
+                // 未被筛掉的实例，归属不变
+                assertEquals(owner, routedOwner);
+            } else {
+                // 被筛掉实例的键沿环落到下一个实例，与把它当作已尝试时一致
+                req.setTriedInstances(Set.of(filtered));
+                assertEquals(lb.choose(req, all, null), routedOwner);
+            }
+            // 交替传入不同子集不会重建环
+            req.setTriedInstances(null);
+            assertEquals(owner, lb.choose(req, all, null));
+        }
+    }
+
+    interface UserService {
+        @MarpcMethod(hashArg = 1)
+        String find(String region, long userId);
+
+        @MarpcMethod(hashContextKey = "tenant")
+        String byTenant(String name);
+
+        String byFirstArg(long userId);
+    }
+
+    @Test
+    void methodDescriptor_resolvesHashKey() throws Exception {
+        MethodDescriptor find = MethodDescriptor.of(UserService.class,
+                UserService.class.getMethod("find", String.class, long.class));
+        assertEquals(7L, find.hashKey(new Object[]{"cn", 7L}, null));
+
+        MethodDescriptor byTenant = MethodDescriptor.of(UserService.class,
+                UserService.class.getMethod("byTenant", String.class));
+        assertEquals("t1", byTenant.hashKey(new Object[]{"bob"}, Map.of("tenant", "t1")));
+        // 上下文中没有该键时退回第一个参数
+        assertEquals("bob", byTenant.hashKey(new Object[]{"bob"}, null));
+
+        MethodDescriptor byFirstArg = MethodDescriptor.of(UserService.class,
+                UserService.class.getMethod("byFirstArg", long.class));
+        assertEquals(3L, byFirstArg.hashKey(new Object[]{3L}, null));
+    }
+
+    @Test
+    void roundRobin_countsPerService() {
+        LoadBalancer lb = new RoundRobinLoadBalancer();
+        ServiceStats stats = new ServiceStats("demo.UserService");
+        assertEquals("a:1", lb.choose(request("demo.UserService"), INSTANCES, stats));
+        assertEquals("a:1", lb.choose(request("demo.OrderService"), INSTANCES, stats));
+        assertEquals("b:1", lb.choose(request("demo.UserService"), INSTANCES, stats));
+        assertEquals("b:1", lb.choose(request("demo.OrderService"), INSTANCES, stats));
+    }
+
+    @Test
+    void serviceStats_retainDropsOfflineInstances() {
+        ServiceStats stats = new ServiceStats("demo.UserService");
+        stats.get("a:1").onStart();
+        stats.get("b:1").onStart();
+        stats.retain(List.of("b:1"));
+        assertEquals(0, stats.active("a:1"));
+        assertEquals(1, stats.active("b:1"));
+    }
+
+    private static RpcRequest request(String service) {
+        RpcRequest request = new RpcRequest();
+        request.setService(service);
+        request.setMethod("getUser");
+        request.setMethodSign("getUser@1_int");
+        return request;
+    }
+}
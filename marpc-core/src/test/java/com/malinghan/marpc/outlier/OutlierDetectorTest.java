@@ -0,0 +1,128 @@
+package com.malinghan.marpc.outlier;
+
+import com.malinghan.marpc.loadbalance.InstanceStats;
+import com.malinghan.marpc.loadbalance.ServiceStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 离群检测单元测试：连续失败、失败率、延迟离群的摘除，指数退避恢复与最大摘除比例，路由子集的过滤缓存。
+ */
+class OutlierDetectorTest {
+
+    private static final String SERVICE = "demo.UserService";
+    private static final List<String> INSTANCES = List.of("a:1", "b:1", "c:1", "d:1");
+
+    private OutlierDetector detector;
+    private ServiceStats stats;
+
+    @BeforeEach
+    void setUp() {
+        OutlierDetectorConfig config = new OutlierDetectorConfig();
+        config.setEnabled(true);
+        // 由测试手动驱动检测周期
+        config.setInterval(TimeUnit.HOURS.toMillis(1));
+        config.setBaseEjectionTime(1000);
+        config.setMaxEjectionTime(3000);
+        config.setMaxEjectionPercent(25);
+        detector = new OutlierDetector(config);
+        stats = new ServiceStats(SERVICE);
+        detector.onChange(SERVICE, INSTANCES, stats);
+    }
+
+    @AfterEach
+    void tearDown() {
+        detector.shutdown();
+    }
+
+    @Test
+    void noOutlier_returnsSourceList() {
+        for (String instance : INSTANCES) calls(instance, 30, 0, 1_000_000);
+        detector.sweep(System.nanoTime());
+        assertSame(INSTANCES, detector.route(SERVICE, INSTANCES));
+    }
+
+    @Test
+    void consecutiveFailures_ejectWithExponentialBackoff() {
+        calls("b:1", 5, 5, 1_000_000);
+        long now = System.nanoTime();
+        detector.sweep(now);
+        assertEquals(List.of("a:1", "c:1", "d:1"), detector.route(SERVICE, INSTANCES));
+
+        // 1s 后恢复
+        detector.sweep(now + TimeUnit.MILLISECONDS.toNanos(1000));
+        assertSame(INSTANCES, detector.route(SERVICE, INSTANCES));
+
+        // 再次失败：摘除 2s
+        calls("b:1", 5, 5, 1_000_000);
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+        detector.sweep(now);
+        detector.sweep(now + TimeUnit.MILLISECONDS.toNanos(1500));
+        assertFalse(detector.route(SERVICE, INSTANCES).contains("b:1"));
+        detector.sweep(now + TimeUnit.MILLISECONDS.toNanos(2000));
+        assertTrue(detector.route(SERVICE, INSTANCES).contains("b:1"));
+    }
+
+    @Test
+    void failureRate_respectsMaxEjectionPercent() {
+        calls("a:1", 30, 20, 1_000_000);
+        calls("b:1", 30, 20, 1_000_000);
+        calls("c:1", 30, 0, 1_000_000);
+        calls("d:1", 30, 0, 1_000_000);
+        detector.sweep(System.nanoTime());
+        // 4 个实例最多摘除 25%，即 1 个
+        List<String> routed = detector.route(SERVICE, INSTANCES);
+        assertEquals(3, routed.size());
+        assertTrue(routed.contains("c:1") && routed.contains("d:1"));
+    }
+
+    @Test
+    void slowInstance_ejectedByP99() {
+        calls("a:1", 30, 0, 1_000_000);
+        calls("b:1", 30, 0, 1_000_000);
+        calls("c:1", 30, 0, 1_000_000);
+        calls("d:1", 30, 0, 50_000_000);
+        detector.sweep(System.nanoTime());
+        assertEquals(List.of("a:1", "b:1", "c:1"), detector.route(SERVICE, INSTANCES));
+    }
+
+    /** 交替传入路由器筛选出的不同子集：各子集的结果都被缓存，不含摘除实例的子集原样返回 */
+    @Test
+    void routedSubsets_filteredOncePerSubset() {
+        calls("b:1", 5, 5, 1_000_000);
+        detector.sweep(System.nanoTime());
+        List<String> withEjected = List.of("a:1", "b:1");
+        List<String> healthy = List.of("c:1", "d:1");
+
+        List<String> filtered = detector.route(SERVICE, withEjected);
+        assertEquals(List.of("a:1"), filtered);
+        assertSame(healthy, detector.route(SERVICE, healthy));
+        assertSame(filtered, detector.route(SERVICE, withEjected));
+    }
+
+    @Test
+    void listener_notifiedOnEjectAndRecover() {
+        List<String> events = new ArrayList<>();
+        detector.addListener((service, instance, ejected) -> events.add(instance + "=" + ejected));
+        calls("c:1", 5, 5, 1_000_000);
+        long now = System.nanoTime();
+        detector.sweep(now);
+        detector.sweep(now + TimeUnit.SECONDS.toNanos(1));
+        assertEquals(List.of("c:1=true", "c:1=false"), events);
+    }
+
+    private void calls(String instance, int count, int failures, long latencyNanos) {
+        InstanceStats instanceStats = stats.get(instance);
+        for (int i = 0; i < count; i++) {
+            instanceStats.onStart();
+            instanceStats.onComplete(latencyNanos, i >= failures);
+        }
+    }
+}
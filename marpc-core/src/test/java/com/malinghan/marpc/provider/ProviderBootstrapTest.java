@@ -0,0 +1,139 @@
+package com.malinghan.marpc.provider;
+
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.exception.MarpcBizException;
+import com.malinghan.marpc.registry.RegistryCenter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ProviderBootstrap 单元测试：方法表与调用表的构建（不含静态方法）、按签名 / 方法名分派、返回值与异常处理。
+ */
+class ProviderBootstrapTest {
+
+    interface Calc {
+        int add(int a, int b);
+
+        String echo(String s);
+
+        void touch();
+
+        String fail(String reason);
+
+        /** 静态方法不是服务方法，不进入方法表 */
+        static int zero() {
+            return 0;
+        }
+    }
+
+    static class CalcImpl implements Calc {
+        int touched;
+
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Override
+        public String echo(String s) {
+            return "echo:" + s;
+        }
+
+        @Override
+        public void touch() {
+            touched++;
+        }
+
+        @Override
+        public String fail(String reason) {
+            throw new IllegalStateException(reason);
+        }
+    }
+
+    private static final String SERVICE = Calc.class.getCanonicalName();
+
+    private final CalcImpl impl = new CalcImpl();
+    private ProviderBootstrap bootstrap;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBeansWithAnnotation(any())).thenReturn(Map.of("calc", impl));
+        bootstrap = new ProviderBootstrap(context, mock(RegistryCenter.class), "127.0.0.1:8080");
+        bootstrap.afterPropertiesSet();
+    }
+
+    @Test
+    void methodTable_sortedBySignature() {
+        assertEquals(4, bootstrap.getMethods().size());
+        ProviderMethod first = bootstrap.getMethod(1);
+        assertEquals("add@2_int_int", first.getMethodSign());
+        assertEquals(SERVICE, first.getService());
+        assertNull(bootstrap.getMethod(5));
+    }
+
+    @Test
+    void methodTable_skipsStaticMethods() {
+        assertTrue(bootstrap.getMethods().stream().noneMatch(m -> m.getMethod().equals("zero")));
+        RpcResponse response = bootstrap.invoke(request("zero", "zero@0"));
+        assertFalse(response.isStatus());
+        assertTrue(response.getErrorMessage().startsWith("METHOD_NOT_FOUND"));
+    }
+
+    @Test
+    void invoke_bySignConvertsPrimitiveArgs() {
+        RpcResponse response = bootstrap.invoke(request("add", "add@2_int_int", 2, 3L));
+        assertTrue(response.isStatus());
+        assertEquals(5, response.getData());
+    }
+
+    @Test
+    void invoke_fallsBackToNameAndArgCount() {
+        RpcResponse response = bootstrap.invoke(request("echo", "echo@1_Object", "x"));
+        assertEquals("echo:x", response.getData());
+    }
+
+    @Test
+    void invoke_voidMethodReturnsNull() {
+        RpcResponse response = bootstrap.invoke(request("touch", "touch@0"));
+        assertTrue(response.isStatus());
+        assertNull(response.getData());
+        assertEquals(1, impl.touched);
+    }
+
+    @Test
+    void invoke_serviceExceptionBecomesErrorResponse() {
+        RpcResponse response = bootstrap.invoke(request("fail", "fail@1_java.lang.String", "boom"));
+        assertFalse(response.isStatus());
+        assertEquals("java.lang.IllegalStateException: boom", response.getErrorMessage());
+    }
+
+    @Test
+    void invoke_unknownMethodOrService() {
+        RpcResponse response = bootstrap.invoke(request("nope", "nope@0"));
+        assertFalse(response.isStatus());
+        assertTrue(response.getErrorMessage().startsWith("METHOD_NOT_FOUND"));
+
+        RpcRequest unknown = request("add", "add@2_int_int", 1, 2);
+        unknown.setService("com.example.Missing");
+        assertThrows(MarpcBizException.class, () -> bootstrap.invoke(unknown));
+    }
+
+    private RpcRequest request(String method, String sign, Object... args) {
+        RpcRequest request = new RpcRequest();
+        request.setService(SERVICE);
+        request.setMethod(method);
+        request.setMethodSign(sign);
+        request.setArgs(args);
+        return request;
+    }
+}
@@ -0,0 +1,76 @@
+package com.malinghan.marpc.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProviderExecutor 单元测试：验证拒绝计数、队列深度、按服务隔离。
+ */
+class ProviderExecutorTest {
+
+    @Test
+    void pool_saturated_rejectsAndCounts() throws Exception {
+        ProviderExecutorConfig config = new ProviderExecutorConfig();
+        config.setCoreThreads(1);
+        config.setMaxThreads(1);
+        config.setQueueCapacity(1);
+        ProviderExecutor executor = new ProviderExecutor(config);
+        CountDownLatch block = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Executor pool = executor.select("any");
+            pool.execute(() -> {
+                started.countDown();
+                awaitQuietly(block);
+            });
+            started.await();
+            pool.execute(() -> { });
+
+            assertEquals(1, executor.getQueueDepth());
+            assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> { }));
+            assertEquals(1, executor.getRejectedCount());
+        } finally {
+            block.countDown();
+            executor.destroy();
+        }
+    }
+
+    @Test
+    void isolated_onlyListedServicesGetOwnPool() {
+        ProviderExecutorConfig config = new ProviderExecutorConfig();
+        config.setMode(ProviderExecutorConfig.MODE_ISOLATED);
+        config.setIsolatedServices(Set.of("com.demo.OrderService"));
+        ProviderExecutor executor = new ProviderExecutor(config);
+        try {
+            assertTrue(executor.isServiceAware());
+            Executor order = executor.select("com.demo.OrderService");
+            assertSame(order, executor.select("com.demo.OrderService"));
+            assertSame(executor.select("com.demo.HelloService"), executor.select("com.demo.UserService"));
+            assertNotSame(order, executor.select("com.demo.HelloService"));
+        } finally {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    void direct_runsOnCallerThread() {
+        ProviderExecutor executor = new ProviderExecutor(ProviderExecutorConfig.direct());
+        Thread[] ran = new Thread[1];
+        executor.select(null).execute(() -> ran[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), ran[0]);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
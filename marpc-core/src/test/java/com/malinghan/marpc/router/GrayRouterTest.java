@@ -0,0 +1,48 @@
+package com.malinghan.marpc.router;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 灰度路由单元测试：路由表按实例变更与灰度标记预先划分，调用时不再分配列表。
+ */
+class GrayRouterTest {
+
+    private static final String SERVICE = "demo.UserService";
+    private static final List<String> INSTANCES = List.of("10.0.0.1:8080", "10.0.0.2:8080", "10.0.0.3:8080");
+
+    @Test
+    void noGray_returnsSourceList() {
+        GrayRouter router = new GrayRouter(50);
+        router.onChange(SERVICE, INSTANCES, Map.of());
+        assertSame(INSTANCES, router.route(SERVICE, INSTANCES));
+    }
+
+    @Test
+    void markGray_recompilesTable() {
+        GrayRouter router = new GrayRouter(0);
+        router.onChange(SERVICE, INSTANCES, Map.of());
+        router.markGray("10.0.0.3:8080");
+
+        List<String> normal = router.route(SERVICE, INSTANCES);
+        assertEquals(List.of("10.0.0.1:8080", "10.0.0.2:8080"), normal);
+        // 标记未变化时返回同一份预计算结果
+        assertSame(normal, router.route(SERVICE, INSTANCES));
+
+        router.unmarkGray("10.0.0.3:8080");
+        assertSame(INSTANCES, router.route(SERVICE, INSTANCES));
+    }
+
+    @Test
+    void fullRatio_routesToGray() {
+        GrayRouter router = new GrayRouter(100).markGray("10.0.0.2:8080");
+        router.onChange(SERVICE, INSTANCES, Map.of());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(List.of("10.0.0.2:8080"), router.route(SERVICE, INSTANCES));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.malinghan.marpc.router;
+
+import com.malinghan.marpc.registry.RegistryCenter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 就近路由单元测试：同主机优先、同可用区次之、健康占比不足时降级、健康状态按服务隔离，
+ * 列表变更与健康状态变化并发时结果一致。
+ */
+class LocalityRouterTest {
+
+    private static final String SERVICE = "demo.UserService";
+    private static final Map<String, Map<String, String>> METADATA = Map.of(
+            "10.0.0.1:8080", Map.of(RegistryCenter.META_ZONE, "az1"),
+            "10.0.0.2:8080", Map.of(RegistryCenter.META_ZONE, "az1"),
+            "10.0.0.3:8080", Map.of(RegistryCenter.META_ZONE, "az1"),
+            "10.0.1.1:8080", Map.of(RegistryCenter.META_ZONE, "az2"),
+            "10.0.1.2:8080", Map.of(RegistryCenter.META_ZONE, "az2"));
+    private static final List<String> INSTANCES = List.of(
+            "10.0.0.1:8080", "10.0.0.2:8080", "10.0.0.3:8080", "10.0.1.1:8080", "10.0.1.2:8080");
+
+    @Test
+    void prefersSameHost() {
+        LocalityRouter router = new LocalityRouter("10.0.0.2", "az1", 0.7);
+        router.onChange(SERVICE, INSTANCES, METADATA);
+        assertEquals(List.of("10.0.0.2:8080"), router.route(SERVICE, INSTANCES));
+    }
+
+    @Test
+    void prefersSameZone_precomputedPerChange() {
+        LocalityRouter router = new LocalityRouter("10.9.9.9", "az2", 0.7);
+        router.onChange(SERVICE, INSTANCES, METADATA);
+        List<String> first = router.route(SERVICE, INSTANCES);
+        assertEquals(List.of("10.0.1.1:8080", "10.0.1.2:8080"), first);
+        // 同一实例列表直接返回预计算结果
+        assertSame(first, router.route(SERVICE, INSTANCES));
+    }
+
+    @Test
+    void failsOverWhenLocalHealthyShareTooLow() {
+        LocalityRouter router = new LocalityRouter("10.9.9.9", "az1", 0.7);
+        router.onChange(SERVICE, INSTANCES, METADATA);
+
+        // az1 三个实例中一个不健康：2/3 < 0.7，降级到全部健康实例
+        router.setHealthy(SERVICE, "10.0.0.1:8080", false);
+        assertEquals(List.of("10.0.0.2:8080", "10.0.0.3:8080", "10.0.1.1:8080", "10.0.1.2:8080"),
+                router.route(SERVICE, INSTANCES));
+
+        router.setHealthy(SERVICE, "10.0.0.1:8080", true);
+        assertEquals(List.of("10.0.0.1:8080", "10.0.0.2:8080", "10.0.0.3:8080"), router.route(SERVICE, INSTANCES));
+    }
+
+    @Test
+    void healthIsTrackedPerService() {
+        String other = "demo.OrderService";
+        LocalityRouter router = new LocalityRouter("10.9.9.9", "az1", 0.7);
+        router.onChange(SERVICE, INSTANCES, METADATA);
+        router.onChange(other, INSTANCES, METADATA);
+        List<String> az1 = List.of("10.0.0.1:8080", "10.0.0.2:8080", "10.0.0.3:8080");
+
+        // 只在 SERVICE 上摘除，另一个服务照常就近
+        router.setHealthy(SERVICE, "10.0.0.1:8080", false);
+        router.setHealthy(other, "10.0.0.2:8080", false);
+        assertFalse(router.route(SERVICE, INSTANCES).contains("10.0.0.1:8080"));
+        assertTrue(router.route(SERVICE, INSTANCES).contains("10.0.0.2:8080"));
+        assertTrue(router.route(other, INSTANCES).contains("10.0.0.1:8080"));
+
+        // SERVICE 上恢复不影响 other 上仍被摘除的实例
+        router.setHealthy(SERVICE, "10.0.0.1:8080", true);
+        assertEquals(az1, router.route(SERVICE, INSTANCES));
+        assertFalse(router.route(other, INSTANCES).contains("10.0.0.2:8080"));
+    }
+
+    @Test
+    void healthBeforeFirstChangeIsKept() {
+        LocalityRouter router = new LocalityRouter("10.9.9.9", "az1", 0.7);
+        router.setHealthy(SERVICE, "10.0.0.1:8080", false);
+        router.onChange(SERVICE, INSTANCES, METADATA);
+        assertFalse(router.route(SERVICE, INSTANCES).contains("10.0.0.1:8080"));
+    }
+
+    /** 列表变更与健康状态变化并发：最终结果与最后的列表、健康状态一致，不会被旧的计算结果覆盖 */
+    @Test
+    void concurrentChangeAndHealthConverge() throws Exception {
+        LocalityRouter router = new LocalityRouter("10.9.9.9", "az1", 0.7);
+        List<String> last = new ArrayList<>(INSTANCES);
+        Thread changes = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) router.onChange(SERVICE, new ArrayList<>(INSTANCES), METADATA);
+            router.onChange(SERVICE, last, METADATA);
+        });
+        Thread health = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) router.setHealthy(SERVICE, "10.0.0.1:8080", i % 2 == 1);
+            router.setHealthy(SERVICE, "10.0.0.1:8080", false);
+        });
+        changes.start();
+        health.start();
+        changes.join();
+        health.join();
+
+        assertEquals(List.of("10.0.0.2:8080", "10.0.0.3:8080", "10.0.1.1:8080", "10.0.1.2:8080"),
+                router.route(SERVICE, last));
+    }
+
+    @Test
+    void noZoneMetadata_returnsAll() {
+        LocalityRouter router = new LocalityRouter("10.9.9.9", "az1", 0.7);
+        router.onChange(SERVICE, INSTANCES, Map.of());
+        assertEquals(INSTANCES, router.route(SERVICE, INSTANCES));
+    }
+}
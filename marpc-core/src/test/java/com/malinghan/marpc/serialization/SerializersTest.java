@@ -0,0 +1,129 @@
+package com.malinghan.marpc.serialization;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.core.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 序列化 SPI 单元测试：内置实现注册、名称查找、请求 / 响应往返、按泛型类型一次解析。
+ */
+class SerializersTest {
+
+    @Test
+    void builtIns_registeredByIdAndName() {
+        assertEquals(JsonSerializer.ID, Serializers.byName("json").id());
+        assertEquals(JsonbSerializer.ID, Serializers.byName("JSONB").id());
+        assertSame(Serializers.json(), Serializers.byName(""));
+        assertNull(Serializers.byId(0));
+        assertNull(Serializers.byId(127));
+        assertTrue(Serializers.ids().containsAll(List.of(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> Serializers.byName("protobuf"));
+    }
+
+    @Test
+    void json_roundTripRequest() {
+        assertRequestRoundTrip(Serializers.byName("json"));
+    }
+
+    @Test
+    void jsonb_roundTripRequest() {
+        assertRequestRoundTrip(Serializers.byName("jsonb"));
+    }
+
+    @Test
+    void jsonb_smallerThanJson() {
+        RpcResponse response = RpcResponse.ok(List.of(Map.of("id", 1, "item", "book", "price", 12.5)));
+        int json = Serializers.byName("json").serialize(response).length;
+        int jsonb = Serializers.byName("jsonb").serialize(response).length;
+        assertTrue(jsonb < json, "jsonb=" + jsonb + ", json=" + json);
+    }
+
+    @Test
+    void streamVariants_matchByteArrayVariants() {
+        for (Serializer serializer : List.of(Serializers.byName("json"), Serializers.byName("jsonb"))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            serializer.serialize(RpcResponse.ok("hello"), out);
+            RpcResponse decoded = serializer.deserialize(new ByteArrayInputStream(out.toByteArray()), RpcResponse.class);
+            assertEquals("hello", decoded.getData(), serializer.name());
+        }
+    }
+
+    @Test
+    void typedArgs_decodedInOnePass() {
+        Type[] types = {int.class, new TypeReference<List<Item>>() { }.getType(), String.class};
+        Object[] args = {7, List.of(new Item("book", 12.5)), null};
+        for (Serializer serializer : List.of(Serializers.byName("json"), Serializers.byName("jsonb"))) {
+            byte[] bytes = serializer.serialize(args);
+            Object[] decoded = serializer.deserializeArgs(bytes, 0, bytes.length, types);
+
+            assertEquals(7, decoded[0], serializer.name());
+            assertEquals(List.of(new Item("book", 12.5)), decoded[1], serializer.name());
+            assertNull(decoded[2], serializer.name());
+
+            // 流式解析（堆外 payload）结果一致
+            Object[] streamed = serializer.deserializeArgs(new ByteArrayInputStream(bytes), types);
+            assertEquals(List.of(new Item("book", 12.5)), streamed[1], serializer.name());
+        }
+    }
+
+    @Test
+    void typedResponse_decodedInOnePass() {
+        Type dataType = new TypeReference<Map<String, Item>>() { }.getType();
+        RpcResponse response = RpcResponse.ok(Map.of("a", new Item("pen", 1.5)));
+        for (Serializer serializer : List.of(Serializers.byName("json"), Serializers.byName("jsonb"))) {
+            byte[] bytes = serializer.serialize(response);
+            RpcResponse decoded = serializer.deserializeResponse(bytes, 0, bytes.length, dataType);
+
+            assertTrue(decoded.isStatus(), serializer.name());
+            assertEquals(new Item("pen", 1.5), ((Map<?, ?>) decoded.getData()).get("a"), serializer.name());
+            RpcResponse streamed = serializer.deserializeResponse(new ByteArrayInputStream(bytes), dataType);
+            assertEquals(new Item("pen", 1.5), ((Map<?, ?>) streamed.getData()).get("a"), serializer.name());
+
+            byte[] error = serializer.serialize(RpcResponse.error("boom"));
+            assertEquals("boom", serializer.deserializeResponse(error, 0, error.length, dataType).getErrorMessage());
+        }
+    }
+
+    @Test
+    void coerce_keepsTypedValuesAndConvertsTrees() {
+        Item item = new Item("cup", 3.0);
+        assertSame(item, Types.coerce(item, Item.class));
+        assertEquals(5L, Types.coerce(5, long.class));
+        Object converted = Types.coerce(JSON.parseArray("[{\"name\":\"cup\",\"price\":3.0}]"),
+                new TypeReference<List<Item>>() { }.getType());
+        assertEquals(List.of(item), converted);
+    }
+
+    record Item(String name, double price) {
+    }
+
+    private void assertRequestRoundTrip(Serializer serializer) {
+        RpcRequest request = new RpcRequest();
+        request.setService("com.malinghan.marpc.demo.OrderService");
+        request.setMethod("createOrder");
+        request.setMethodSign("createOrder@3_int_java.lang.String_double");
+        request.setArgs(new Object[]{7, "book", 12.5});
+        request.setContext(Map.of("grayId", "g1"));
+
+        byte[] bytes = serializer.serialize(request);
+        byte[] padded = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, padded, 2, bytes.length);
+        RpcRequest decoded = serializer.deserialize(padded, 2, bytes.length, RpcRequest.class);
+
+        assertEquals(request.getService(), decoded.getService());
+        assertEquals(request.getMethodSign(), decoded.getMethodSign());
+        assertEquals(3, decoded.getArgs().length);
+        assertEquals("book", decoded.getArgs()[1]);
+        assertEquals(Map.of("grayId", "g1"), decoded.getContext());
+    }
+}
@@ -0,0 +1,89 @@
+package com.malinghan.marpc.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FlushBatchingHandler 单元测试：验证同轮合并、上限触发、关闭合并。
+ */
+class FlushBatchingHandlerTest {
+
+    @Test
+    void zeroWindow_coalescesFlushesOfSameLoopRun() {
+        FlushBatchStats stats = new FlushBatchStats();
+        EmbeddedChannel ch = new EmbeddedChannel(new FlushBatchingHandler(0, 1024, 64, stats));
+
+        for (int i = 0; i < 3; i++) {
+            ch.write(frame(10));
+            ch.flush();
+        }
+        assertNull(ch.readOutbound());
+
+        ch.runPendingTasks();
+        assertEquals(3, ch.outboundMessages().size());
+        assertEquals(1, stats.getFlushCount());
+        assertEquals(3, stats.getFrameCount());
+        assertEquals(30, stats.getByteCount());
+        assertEquals(1, stats.getFrameHistogram()[FlushBatchStats.bucket(3)]);
+        ch.finishAndReleaseAll();
+    }
+
+    @Test
+    void maxFrames_flushesImmediately() {
+        FlushBatchStats stats = new FlushBatchStats();
+        EmbeddedChannel ch = new EmbeddedChannel(new FlushBatchingHandler(0, 1024, 2, stats));
+
+        ch.write(frame(10));
+        ch.flush();
+        ch.write(frame(10));
+        ch.flush();
+
+        assertEquals(2, ch.outboundMessages().size());
+        assertEquals(1, stats.getFlushCount());
+        ch.finishAndReleaseAll();
+    }
+
+    @Test
+    void maxBytes_flushesImmediately() {
+        FlushBatchStats stats = new FlushBatchStats();
+        EmbeddedChannel ch = new EmbeddedChannel(new FlushBatchingHandler(0, 16, 64, stats));
+
+        ch.write(frame(32));
+        ch.flush();
+
+        assertEquals(1, ch.outboundMessages().size());
+        ch.finishAndReleaseAll();
+    }
+
+    @Test
+    void negativeWindow_disablesBatching() {
+        FlushBatchStats stats = new FlushBatchStats();
+        EmbeddedChannel ch = new EmbeddedChannel(new FlushBatchingHandler(-1, 1024, 64, stats));
+
+        ch.write(frame(10));
+        ch.flush();
+        ch.write(frame(10));
+        ch.flush();
+
+        assertEquals(2, ch.outboundMessages().size());
+        assertEquals(2, stats.getFlushCount());
+        ch.finishAndReleaseAll();
+    }
+
+    @Test
+    void bucket_powersOfTwo() {
+        assertEquals(0, FlushBatchStats.bucket(1));
+        assertEquals(1, FlushBatchStats.bucket(2));
+        assertEquals(2, FlushBatchStats.bucket(4));
+        assertEquals(3, FlushBatchStats.bucket(5));
+        assertEquals(FlushBatchStats.BUCKETS - 1, FlushBatchStats.bucket(1000));
+    }
+
+    private static ByteBuf frame(int size) {
+        return Unpooled.wrappedBuffer(new byte[size]);
+    }
+}
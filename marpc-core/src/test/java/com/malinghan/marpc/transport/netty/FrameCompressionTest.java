@@ -0,0 +1,121 @@
+package com.malinghan.marpc.transport.netty;
+
+import com.malinghan.marpc.core.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.DecompressionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 帧压缩单元测试：阈值、压缩标志、两种算法的编解码往返与解压上限。
+ */
+class FrameCompressionTest {
+
+    @Test
+    void snappy_roundTripLargeResponse() {
+        roundTrip(new SnappyCompressor());
+    }
+
+    @Test
+    void deflate_roundTripLargeResponse() {
+        roundTrip(new DeflateCompressor());
+    }
+
+    @Test
+    void belowThreshold_sentUncompressedButAdvertisesCodec() {
+        FrameCompression compression = new FrameCompression(new SnappyCompressor(), 2048);
+        MarpcFrame inbound = encodeAndDecode(compression, RpcResponse.ok("small"), SnappyCompressor.ID);
+
+        assertFalse(inbound.isCompressed());
+        assertEquals(SnappyCompressor.ID, inbound.getCodec());
+        assertEquals("small", PayloadCodec.read(inbound, RpcResponse.class, compression).getData());
+        inbound.release();
+        assertEquals(0, compression.getStats().getCompressedFrames());
+    }
+
+    @Test
+    void incompressiblePayload_fallsBackToRaw() {
+        FrameCompression compression = new FrameCompression(new SnappyCompressor(), 64);
+        byte[] random = new byte[4096];
+        new Random(7).nextBytes(random);
+        MarpcFrame inbound = encodeAndDecode(compression, RpcResponse.ok(random), SnappyCompressor.ID);
+
+        assertFalse(inbound.isCompressed());
+        assertTrue(PayloadCodec.read(inbound, RpcResponse.class, compression).isStatus());
+        inbound.release();
+        assertEquals(1, compression.getStats().getSkippedFrames());
+    }
+
+    @Test
+    void server_acceptsOnlyKnownCodecWhenEnabled() {
+        FrameCompression enabled = new FrameCompression(new DeflateCompressor(), 2048);
+        assertEquals(SnappyCompressor.ID, enabled.accept(SnappyCompressor.ID));
+        assertEquals(MarpcProtocol.CODEC_NONE, enabled.accept((byte) 7));
+        assertEquals(MarpcProtocol.CODEC_NONE, FrameCompression.DISABLED.accept(SnappyCompressor.ID));
+    }
+
+    @Test
+    void snappy_rejectsOversizedPayload() {
+        rejectsOversized(new SnappyCompressor());
+    }
+
+    @Test
+    void deflate_rejectsOversizedPayload() {
+        rejectsOversized(new DeflateCompressor());
+    }
+
+    /** 1MB 重复字符压缩后只有几 KB，接收端上限 64KB，应拒绝而不是膨胀出整块缓冲区 */
+    private void rejectsOversized(Compressor compressor) {
+        FrameCompression sender = new FrameCompression(compressor, 64);
+        FrameCompression receiver = new FrameCompression(compressor, 64, 64 * 1024);
+        MarpcFrame inbound = encodeAndDecode(sender, RpcResponse.ok("a".repeat(1024 * 1024)), compressor.id());
+        try {
+            assertTrue(inbound.isCompressed());
+            assertTrue(inbound.getPayload().readableBytes() < 64 * 1024);
+            assertThrows(DecompressionException.class,
+                    () -> PayloadCodec.read(inbound, RpcResponse.class, receiver));
+            // 上限足够时正常解压
+            assertTrue(PayloadCodec.read(inbound, RpcResponse.class, sender).isStatus());
+        } finally {
+            inbound.release();
+        }
+    }
+
+    private void roundTrip(Compressor compressor) {
+        FrameCompression compression = new FrameCompression(compressor, 2048);
+        List<String> orders = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            orders.add("order-" + i + "-status-PAID-amount-" + (i * 100));
+        }
+        MarpcFrame inbound = encodeAndDecode(compression, RpcResponse.ok(orders), compressor.id());
+
+        assertTrue(inbound.isCompressed());
+        assertEquals(compressor.id(), inbound.getCodec());
+        assertEquals(MarpcProtocol.TYPE_RESPONSE, inbound.getType());
+        RpcResponse response = PayloadCodec.read(inbound, RpcResponse.class, compression);
+        inbound.release();
+
+        assertEquals(orders, response.getData());
+        CompressionStats stats = compression.getStats();
+        assertEquals(1, stats.getCompressedFrames());
+        assertEquals(1, stats.getDecompressedFrames());
+        assertTrue(stats.getCompressionRatio() < 0.5, stats.toString());
+    }
+
+    private MarpcFrame encodeAndDecode(FrameCompression compression, RpcResponse response, byte codec) {
+        ByteBuf encoded = MarpcFrameEncoder.encode(ByteBufAllocator.DEFAULT,
+                MarpcFrame.outbound(MarpcProtocol.TYPE_RESPONSE, 1, response).compression(codec, true), compression);
+        EmbeddedChannel ch = new EmbeddedChannel(new MarpcFrameDecoder());
+        assertTrue(ch.writeInbound(encoded));
+        MarpcFrame inbound = ch.readInbound();
+        ch.finishAndReleaseAll();
+        return inbound;
+    }
+}
@@ -0,0 +1,90 @@
+package com.malinghan.marpc.transport.netty;
+
+import com.malinghan.marpc.core.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在途请求表单元测试：序号分配、开放寻址删除、扩容、回绕与整体失败。
+ */
+class InFlightRequestsTest {
+
+    @Test
+    void registerAndRemove() {
+        InFlightRequests inFlight = new InFlightRequests();
+        CompletableFuture<RpcResponse> f1 = new CompletableFuture<>();
+        CompletableFuture<RpcResponse> f2 = new CompletableFuture<>();
+        int id1 = inFlight.register(f1);
+        int id2 = inFlight.register(f2);
+
+        assertNotEquals(id1, id2);
+        assertEquals(2, inFlight.size());
+        assertSame(f2, inFlight.remove(id2));
+        assertNull(inFlight.remove(id2));
+        assertSame(f1, inFlight.remove(id1));
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    void randomOperations_matchHashMap() {
+        InFlightRequests inFlight = new InFlightRequests(4, 0);
+        Map<Integer, CompletableFuture<RpcResponse>> expected = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int round = 0; round < 20_000; round++) {
+            if (ids.isEmpty() || random.nextInt(3) > 0) {
+                CompletableFuture<RpcResponse> f = new CompletableFuture<>();
+                int id = inFlight.register(f);
+                assertNull(expected.put(id, f));
+                ids.add(id);
+            } else {
+                int id = ids.remove(random.nextInt(ids.size()));
+                assertSame(expected.remove(id), inFlight.remove(id));
+            }
+            assertEquals(expected.size(), inFlight.size());
+        }
+        for (Map.Entry<Integer, CompletableFuture<RpcResponse>> e : expected.entrySet()) {
+            assertSame(e.getValue(), inFlight.remove(e.getKey()));
+        }
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    void register_wrapsAroundAndSkipsZero() {
+        InFlightRequests inFlight = new InFlightRequests(4, Integer.MAX_VALUE - 1);
+        assertEquals(Integer.MAX_VALUE, inFlight.register(new CompletableFuture<>()));
+        assertEquals(Integer.MIN_VALUE, inFlight.register(new CompletableFuture<>()));
+
+        InFlightRequests nearZero = new InFlightRequests(4, -2);
+        assertEquals(-1, nearZero.register(new CompletableFuture<>()));
+        assertEquals(1, nearZero.register(new CompletableFuture<>()));
+    }
+
+    @Test
+    void failAll_completesEveryPendingFuture() {
+        InFlightRequests inFlight = new InFlightRequests();
+        List<CompletableFuture<RpcResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            CompletableFuture<RpcResponse> f = new CompletableFuture<>();
+            futures.add(f);
+            inFlight.register(f);
+        }
+
+        inFlight.failAll(new IllegalStateException("closed"));
+
+        assertEquals(0, inFlight.size());
+        futures.forEach(f -> assertTrue(f.isCompletedExceptionally()));
+        // 失败后表仍可继续使用
+        CompletableFuture<RpcResponse> f = new CompletableFuture<>();
+        assertSame(f, inFlight.remove(inFlight.register(f)));
+    }
+}
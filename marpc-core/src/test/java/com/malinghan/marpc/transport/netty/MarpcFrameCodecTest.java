@@ -0,0 +1,234 @@
+package com.malinghan.marpc.transport.netty;
+
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.exception.MarpcNetworkException;
+import com.malinghan.marpc.serialization.JsonbSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 帧编解码单元测试：验证长度回填、切片解码、半包处理、v1 / v2 帧头混用。
+ */
+class MarpcFrameCodecTest {
+
+    @Test
+    void encode_backPatchesPayloadLength() {
+        ByteBuf buf = MarpcFrameEncoder.encode(ByteBufAllocator.DEFAULT,
+                MarpcFrame.outbound(MarpcProtocol.TYPE_RESPONSE, 7, RpcResponse.ok("hello")));
+        try {
+            int payloadLength = buf.getInt(MarpcProtocol.HEADER_LENGTH - 4);
+            assertEquals(buf.readableBytes() - MarpcProtocol.HEADER_LENGTH, payloadLength);
+            assertEquals(7, buf.getInt(4));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void roundTrip_request() {
+        RpcRequest request = new RpcRequest();
+        request.setService("com.malinghan.marpc.demo.HelloService");
+        request.setMethod("hello");
+        request.setMethodSign("hello@1_java.lang.String");
+        request.setArgs(new Object[]{"world"});
+
+        EmbeddedChannel ch = new EmbeddedChannel(new MarpcFrameDecoder());
+        ch.writeInbound(MarpcFrameEncoder.encode(ch.alloc(),
+                MarpcFrame.outbound(MarpcProtocol.TYPE_REQUEST, 1, request)));
+
+        MarpcFrame frame = ch.readInbound();
+        try {
+            assertEquals(MarpcProtocol.TYPE_REQUEST, frame.getType());
+            assertEquals(1, frame.getSequenceId());
+            RpcRequest decoded = PayloadCodec.read(frame.getPayload(), RpcRequest.class);
+            assertEquals(request.getService(), decoded.getService());
+            assertEquals(request.getMethodSign(), decoded.getMethodSign());
+            assertEquals(List.of("world"), List.of(decoded.getArgs()));
+        } finally {
+            frame.release();
+        }
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    void decode_waitsForCompleteFrame() {
+        ByteBuf buf = MarpcFrameEncoder.encode(ByteBufAllocator.DEFAULT,
+                MarpcFrame.outbound(MarpcProtocol.TYPE_RESPONSE, 3, RpcResponse.ok("partial")));
+        EmbeddedChannel ch = new EmbeddedChannel(new MarpcFrameDecoder());
+
+        ch.writeInbound(buf.readRetainedSlice(MarpcProtocol.HEADER_LENGTH + 2));
+        assertNull(ch.readInbound());
+
+        ch.writeInbound(buf);
+        MarpcFrame frame = ch.readInbound();
+        try {
+            assertEquals("partial", PayloadCodec.read(frame.getPayload(), RpcResponse.class).getData());
+        } finally {
+            frame.release();
+        }
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    void roundTrip_v2WithAttachments() {
+        RpcRequest request = new RpcRequest();
+        request.setService("com.malinghan.marpc.demo.HelloService");
+        request.setMethodSign("hello@1_java.lang.String");
+        request.setArgs(new Object[]{"world"});
+        request.setContext(null);
+        Map<String, String> attachments = Map.of("grayId", "gray-1", "traceId", "追踪-42");
+
+        EmbeddedChannel ch = new EmbeddedChannel(new MarpcFrameDecoder());
+        ByteBuf encoded = MarpcFrameEncoder.encode(ch.alloc(), MarpcFrame.outbound(MarpcProtocol.TYPE_REQUEST, 9, request)
+                .version(MarpcProtocol.VERSION_2)
+                .attachments(attachments));
+        assertEquals(MarpcProtocol.VERSION_2, encoded.getByte(2));
+        assertEquals(MarpcProtocol.SERIALIZER_JSON, encoded.getByte(5));
+        ch.writeInbound(encoded);
+
+        MarpcFrame frame = ch.readInbound();
+        try {
+            assertEquals(MarpcProtocol.VERSION_2, frame.getVersion());
+            assertEquals(MarpcProtocol.TYPE_REQUEST, frame.getType());
+            assertEquals(9, frame.getSequenceId());
+            assertEquals(attachments, frame.getAttachments());
+            RpcRequest decoded = PayloadCodec.read(frame.getPayload(), RpcRequest.class);
+            assertEquals(request.getMethodSign(), decoded.getMethodSign());
+        } finally {
+            frame.release();
+        }
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    void decode_mixedVersionsOnOneChannel() {
+        EmbeddedChannel ch = new EmbeddedChannel(new MarpcFrameDecoder());
+        ByteBuf v1 = MarpcFrameEncoder.encode(ch.alloc(),
+                MarpcFrame.outbound(MarpcProtocol.TYPE_RESPONSE, 1, RpcResponse.ok("v1")));
+        ByteBuf v2 = MarpcFrameEncoder.encode(ch.alloc(),
+                MarpcFrame.outbound(MarpcProtocol.TYPE_RESPONSE, 2, RpcResponse.ok("v2")).version(MarpcProtocol.VERSION_2));
+        ch.writeInbound(ch.alloc().buffer().writeBytes(v1).writeBytes(v2));
+        v1.release();
+        v2.release();
+
+        MarpcFrame first = ch.readInbound();
+        MarpcFrame second = ch.readInbound();
+        try {
+            assertEquals(MarpcProtocol.VERSION_1, first.getVersion());
+            assertEquals("v1", PayloadCodec.read(first.getPayload(), RpcResponse.class).getData());
+            assertEquals(MarpcProtocol.VERSION_2, second.getVersion());
+            assertNull(second.getAttachments());
+            assertEquals("v2", PayloadCodec.read(second.getPayload(), RpcResponse.class).getData());
+        } finally {
+            first.release();
+            second.release();
+        }
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    void decode_unknownVersionClosesChannel() {
+        EmbeddedChannel ch = new EmbeddedChannel(new MarpcFrameDecoder());
+        ByteBuf buf = ch.alloc().buffer();
+        buf.writeByte(MarpcProtocol.MAGIC_1).writeByte(MarpcProtocol.MAGIC_2).writeByte(0x7F).writeZero(13);
+        ch.writeInbound(buf);
+
+        assertNull(ch.readInbound());
+        assertFalse(ch.isOpen());
+    }
+
+    @Test
+    void roundTrip_v2WithJsonbSerializer() {
+        EmbeddedChannel ch = new EmbeddedChannel(new MarpcFrameDecoder());
+        ByteBuf encoded = MarpcFrameEncoder.encode(ch.alloc(), MarpcFrame.outbound(MarpcProtocol.TYPE_RESPONSE, 5,
+                RpcResponse.ok("binary")).version(MarpcProtocol.VERSION_2).serializer(JsonbSerializer.ID));
+        assertEquals(JsonbSerializer.ID, encoded.getByte(5));
+        ch.writeInbound(encoded);
+
+        MarpcFrame frame = ch.readInbound();
+        try {
+            assertEquals(JsonbSerializer.ID, frame.getSerializer());
+            RpcResponse decoded = PayloadCodec.read(frame, RpcResponse.class, FrameCompression.DISABLED);
+            assertEquals("binary", decoded.getData());
+        } finally {
+            frame.release();
+        }
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    void roundTrip_v2WithMethodId() {
+        EmbeddedChannel ch = new EmbeddedChannel(new MarpcFrameDecoder());
+        ByteBuf encoded = MarpcFrameEncoder.encode(ch.alloc(),
+                MarpcFrame.outbound(MarpcProtocol.TYPE_REQUEST, 3, new Object[]{"world", 2})
+                        .version(MarpcProtocol.VERSION_2)
+                        .methodId(42)
+                        .attachments(Map.of("traceId", "t-1")));
+        assertEquals(MarpcProtocol.FLAG_METHOD_ID, encoded.getByte(4) & MarpcProtocol.FLAG_METHOD_ID);
+        assertEquals(42, encoded.getInt(MarpcProtocol.HEADER_LENGTH_V2));
+        ch.writeInbound(encoded);
+
+        MarpcFrame frame = ch.readInbound();
+        try {
+            assertEquals(42, frame.getMethodId());
+            assertEquals(Map.of("traceId", "t-1"), frame.getAttachments());
+            Object[] args = PayloadCodec.readArgs(frame, new Type[]{String.class, long.class}, FrameCompression.DISABLED);
+            assertArrayEquals(new Object[]{"world", 2L}, args);
+        } finally {
+            frame.release();
+        }
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    void peerState_resolvesMethodIdsFromHandshake() {
+        PeerState peer = new PeerState();
+        assertEquals(0, peer.methodId("com.malinghan.marpc.demo.HelloService", "hello@1_java.lang.String"));
+
+        peer.methods(List.of(
+                Handshake.MethodRef.of(1, "com.malinghan.marpc.demo.HelloService", "hello@1_java.lang.String"),
+                Handshake.MethodRef.of(2, "com.malinghan.marpc.demo.UserService", "findById@1_int")));
+
+        assertEquals(1, peer.methodId("com.malinghan.marpc.demo.HelloService", "hello@1_java.lang.String"));
+        assertEquals(2, peer.methodId("com.malinghan.marpc.demo.UserService", "findById@1_int"));
+        assertEquals(0, peer.methodId("com.malinghan.marpc.demo.UserService", "missing@0"));
+    }
+
+    @Test
+    void frames_recycledAfterEncodeAndRelease() {
+        MarpcFrame outbound = MarpcFrame.outbound(MarpcProtocol.TYPE_RESPONSE, 1, RpcResponse.ok("pooled"))
+                .version(MarpcProtocol.VERSION_2).attachments(Map.of("k", "v"));
+        ByteBuf encoded = MarpcFrameEncoder.encode(ByteBufAllocator.DEFAULT, outbound);
+        encoded.release();
+
+        // 同一线程再次取帧得到归还的对象，且字段已重置
+        MarpcFrame reused = MarpcFrame.outbound(MarpcProtocol.TYPE_REQUEST, 2, "body");
+        assertSame(outbound, reused);
+        assertEquals(MarpcProtocol.VERSION_1, reused.getVersion());
+        assertNull(reused.getAttachments());
+        assertFalse(reused.isReleased());
+        reused.release();
+        reused.release();
+    }
+
+    @Test
+    void responseFuture_wrapsFailureAsNetworkError() {
+        ResponseFuture future = new ResponseFuture(String.class, "127.0.0.1:9090");
+        future.completeExceptionally(new TimeoutException("late"));
+
+        Throwable cause = assertThrows(CompletionException.class, future::join).getCause();
+        assertInstanceOf(MarpcNetworkException.class, cause);
+        assertInstanceOf(TimeoutException.class, cause.getCause());
+    }
+}
@@ -0,0 +1,161 @@
+package com.malinghan.marpc.transport.netty;
+
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.exception.MarpcNetworkException;
+import io.netty.util.concurrent.BlockingOperationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 客户端单元测试：对端只建连不响应，验证时间轮超时会摘除等待表项；建连失败后在 EventLoop 上重试不阻塞；
+ * 实例下线后释放连接池。
+ */
+class NettyRpcClientTest {
+
+    private ServerSocket silentServer;
+    private NettyRpcClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        silentServer = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (!silentServer.isClosed()) {
+                    Socket ignored = silentServer.accept();
+                }
+            } catch (Exception ignored) {
+                // 测试结束关闭 ServerSocket
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        NettyConfig config = new NettyConfig();
+        config.setPort(silentServer.getLocalPort());
+        config.setNativeTransport(false);
+        client = new NettyRpcClient(100, config);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.shutdown();
+        silentServer.close();
+    }
+
+    @Test
+    void sendAsync_timeoutEvictsPendingRequest() {
+        CompletableFuture<RpcResponse> future = client.sendAsync("127.0.0.1:8080", request());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(MarpcNetworkException.class, e.getCause());
+        assertInstanceOf(TimeoutException.class, e.getCause().getCause());
+        assertEquals(0, client.getPendingCount());
+        assertEquals(1, client.getTimeoutCount());
+        assertEquals(1.0, client.getTimeoutRate());
+    }
+
+    @Test
+    void sendAsync_manyTimeoutsLeaveNoPendingEntries() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[50];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = client.sendAsync("127.0.0.1:8080", request());
+        }
+
+        assertThrows(Exception.class, () -> CompletableFuture.allOf(futures).get(2, TimeUnit.SECONDS));
+        for (CompletableFuture<?> f : futures) {
+            assertTrue(f.isCompletedExceptionally());
+        }
+        assertEquals(0, client.getPendingCount());
+        assertEquals(50, client.getTimeoutCount());
+    }
+
+    @Test
+    void cancel_releasesPendingRequestAndTimeout() throws Exception {
+        // 先完成一次调用，确保连接已建立，后续请求直接登记在途表
+        assertThrows(ExecutionException.class, () -> client.sendAsync("127.0.0.1:8080", request()).get(2, TimeUnit.SECONDS));
+
+        CompletableFuture<RpcResponse> future = client.sendAsync("127.0.0.1:8080", request());
+        assertEquals(1, client.getPendingCount());
+        assertTrue(future.cancel(false));
+        assertEquals(0, client.getPendingCount());
+
+        // 超时任务已取消，不再计入超时
+        Thread.sleep(300);
+        assertEquals(1, client.getTimeoutCount());
+    }
+
+    /** 连接失败的回调在 EventLoop 上执行，在其中重试不能同步等待建连 */
+    @Test
+    void sendAsync_retryFromEventLoopConnectsAsynchronously() throws Exception {
+        int refusedPort;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            refusedPort = closed.getLocalPort();
+        }
+        NettyConfig config = new NettyConfig();
+        config.setPort(refusedPort);
+        config.setNativeTransport(false);
+        NettyRpcClient refused = new NettyRpcClient(500, config);
+        try {
+            CompletableFuture<RpcResponse> retried = refused.sendAsync("127.0.0.1:8080", request())
+                    .handle((response, error) -> refused.sendAsync("127.0.0.1:8080", request()))
+                    .thenCompose(f -> f);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> retried.get(2, TimeUnit.SECONDS));
+            assertInstanceOf(MarpcNetworkException.class, e.getCause());
+            // 建连失败的异常原样传递，不再被包装一层
+            assertTrue(e.getCause().getMessage().contains("连接失败"), e.getCause().getMessage());
+            for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+                assertFalse(t instanceof BlockingOperationException, t.toString());
+            }
+        } finally {
+            refused.shutdown();
+        }
+    }
+
+    /** 实例从所有服务的注册列表中消失后关闭连接池，之后按旧列表选中它的调用直接失败而不重新建连 */
+    @Test
+    void onChange_evictsPoolsOfUnregisteredInstances() throws Exception {
+        client.onChange("a", List.of("127.0.0.1:8080"));
+        client.onChange("b", List.of("127.0.0.1:8080"));
+        assertTimesOut(client.sendAsync("127.0.0.1:8080", request()));
+
+        // 仍被服务 b 引用，连接池保留
+        client.onChange("a", List.of());
+        assertTimesOut(client.sendAsync("127.0.0.1:8080", request()));
+
+        client.onChange("b", List.of());
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.sendAsync("127.0.0.1:8080", request()).get(2, TimeUnit.SECONDS));
+        assertInstanceOf(MarpcNetworkException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("实例已下线"), e.getCause().getMessage());
+
+        client.onChange("b", List.of("127.0.0.1:8080"));
+        assertTimesOut(client.sendAsync("127.0.0.1:8080", request()));
+    }
+
+    private static void assertTimesOut(CompletableFuture<RpcResponse> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause().getCause());
+    }
+
+    private RpcRequest request() {
+        RpcRequest request = new RpcRequest();
+        request.setService("com.malinghan.marpc.demo.HelloService");
+        request.setMethod("hello");
+        request.setMethodSign("hello@1_java.lang.String");
+        request.setArgs(new Object[]{"world"});
+        return request;
+    }
+}
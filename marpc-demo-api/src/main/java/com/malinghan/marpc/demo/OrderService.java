@@ -1,9 +1,12 @@
 package com.malinghan.marpc.demo;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface OrderService {
     Order getOrder(int id);
     List<Order> listByUser(int userId);
     Order createOrder(int userId, String item, double price);
+    CompletableFuture<Order> getOrderAsync(int id);
+    CompletableFuture<List<Order>> listByUserAsync(int userId);
 }
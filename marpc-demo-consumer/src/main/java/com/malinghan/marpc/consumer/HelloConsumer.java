@@ -23,6 +23,7 @@ public class HelloConsumer {
     private final Scene9GrayRouter scene9;
     private final Scene10RpcContext scene10;
     private final Scene11NettyTransport scene11;
+    private final Scene12AsyncInvocation scene12;
 
     public HelloConsumer(Scene1BasicAndOverload scene1,
                          Scene2ComplexTypes scene2,
@@ -34,7 +35,8 @@ public class HelloConsumer {
                          Scene8CircuitBreaker scene8,
                          Scene9GrayRouter scene9,
                          Scene10RpcContext scene10,
-                         Scene11NettyTransport scene11) {
+                         Scene11NettyTransport scene11,
+                         Scene12AsyncInvocation scene12) {
         this.scene1 = scene1;
         this.scene2 = scene2;
         this.scene3 = scene3;
@@ -46,6 +48,7 @@ public class HelloConsumer {
         this.scene9 = scene9;
         this.scene10 = scene10;
         this.scene11 = scene11;
+        this.scene12 = scene12;
     }
 
     @Bean
@@ -64,6 +67,7 @@ public class HelloConsumer {
             scene9.run();
             scene10.run();
             scene11.run();
+            scene12.run();
 
             log.info("========== marpc v6.0 smoke test end ==========\n");
         };
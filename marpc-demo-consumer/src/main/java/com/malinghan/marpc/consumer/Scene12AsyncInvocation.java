@@ -0,0 +1,56 @@
+package com.malinghan.marpc.consumer;
+
+import com.malinghan.marpc.annotation.MarpcConsumer;
+import com.malinghan.marpc.demo.Order;
+import com.malinghan.marpc.demo.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 场景12：异步调用
+ * - 接口方法返回 CompletableFuture 时，代理立即返回 Future，不阻塞调用线程
+ * - 单线程同时发起多个调用，全部在途后统一等待结果
+ */
+@Slf4j
+@Component
+public class Scene12AsyncInvocation {
+
+    @MarpcConsumer
+    private OrderService orderService;
+
+    public void run() {
+        log.info("=== Scene12: 异步调用 ===");
+
+        try {
+            Order order = orderService.getOrderAsync(1).get();
+            check("getOrderAsync(1)", order != null && order.getId() == 1, "order=" + order);
+
+            List<Order> orders = orderService.listByUserAsync(1).get();
+            check("listByUserAsync(1) size=2", orders.size() == 2, "orders=" + orders);
+
+            // 单线程发起 100 个调用，全部在途后再汇总
+            int calls = 100;
+            List<CompletableFuture<Order>> futures = new ArrayList<>(calls);
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < calls; i++) {
+                futures.add(orderService.getOrderAsync(1 + i % 3));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            long ok = futures.stream().filter(f -> f.join() != null).count();
+            check("单线程 " + calls + " 个并发异步调用", ok == calls,
+                    "成功=" + ok + ", 耗时=" + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            log.error("  [FAIL] {}", e.getMessage());
+        }
+
+        log.info("=== Scene12 完成 ===\n");
+    }
+
+    private void check(String desc, boolean ok, String detail) {
+        log.info("  [{}] {} | {}", ok ? "PASS" : "FAIL", desc, detail);
+    }
+}
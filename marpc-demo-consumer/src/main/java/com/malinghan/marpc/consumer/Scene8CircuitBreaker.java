@@ -2,17 +2,18 @@ package com.malinghan.marpc.consumer;
 
 import com.malinghan.marpc.annotation.MarpcConsumer;
 import com.malinghan.marpc.circuitbreaker.CircuitBreaker;
+import com.malinghan.marpc.circuitbreaker.CircuitBreakerRegistry;
 import com.malinghan.marpc.circuitbreaker.CircuitBreakerState;
 import com.malinghan.marpc.demo.HelloService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 /**
- * 场景8：熔断器
- * - 模拟连续失败触发熔断（CLOSED → OPEN）
+ * 场景8：熔断器（按服务 + 方法独立熔断）
+ * - 窗口内失败率超过阈值触发熔断（CLOSED → OPEN）
  * - 验证熔断后快速失败
  * - 等待半开状态（OPEN → HALF_OPEN）
- * - 探测成功后恢复（HALF_OPEN → CLOSED）
+ * - 有限个探测请求全部成功后恢复（HALF_OPEN → CLOSED）
  */
 @Slf4j
 @Component
@@ -21,16 +22,19 @@ public class Scene8CircuitBreaker {
     @MarpcConsumer
     private HelloService helloService;
 
-    private final CircuitBreaker circuitBreaker;
+    private final CircuitBreakerRegistry circuitBreakers;
 
-    public Scene8CircuitBreaker(CircuitBreaker circuitBreaker) {
-        this.circuitBreaker = circuitBreaker;
+    public Scene8CircuitBreaker(CircuitBreakerRegistry circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
     }
 
     public void run() {
         log.info("=== Scene8: 熔断器 ===");
         log.info("  提示：需要启用熔断器配置（marpc.circuitbreaker.enabled=true）");
-        log.info("  配置：faultLimit=5, halfOpenInitialDelay=10000ms");
+        log.info("  配置：minimumCalls=20, failureRateThreshold=50%, halfOpenInitialDelay=10000ms, halfOpenProbes=3");
+
+        CircuitBreaker circuitBreaker = circuitBreakers.get(HelloService.class.getCanonicalName(),
+                "hello@1_java.lang.String");
 
         log.info("  当前熔断器状态: {}, 失败计数: {}",
                 circuitBreaker.getState(), circuitBreaker.getFailureCount());
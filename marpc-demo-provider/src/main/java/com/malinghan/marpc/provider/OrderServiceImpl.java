@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -43,4 +44,14 @@ public class OrderServiceImpl implements OrderService {
         orders.put(id, order);
         return order;
     }
+
+    @Override
+    public CompletableFuture<Order> getOrderAsync(int id) {
+        return CompletableFuture.supplyAsync(() -> getOrder(id));
+    }
+
+    @Override
+    public CompletableFuture<List<Order>> listByUserAsync(int userId) {
+        return CompletableFuture.supplyAsync(() -> listByUser(userId));
+    }
 }
@@ -0,0 +1,101 @@
+package com.malinghan.marpc.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 为服务接口生成无反射的调用代码：
+ * <ul>
+ *   <li>{@code @MarpcConsumer} 字段的接口类型生成 {@code <接口>_MarpcStub}，由 ConsumerBootstrap 代替 JDK 动态代理注入；</li>
+ *   <li>{@code @MarpcProvider} 类直接实现的服务接口生成 {@code <接口>_MarpcSkeleton}，由 ProviderBootstrap 按方法下标调用。</li>
+ * </ul>
+ * 生成类与接口同包，嵌套接口的 {@code $} 替换为 {@code _}。接口可以来自依赖 jar（如 marpc-demo-api），
+ * 因此在 Consumer / Provider 模块编译时启用本处理器即可，接口模块无需依赖 marpc-core。
+ *
+ * <p>注解按类名识别，本模块不依赖 marpc-core。
+ */
+@SupportedAnnotationTypes({MarpcProcessor.CONSUMER_ANNOTATION, MarpcProcessor.PROVIDER_ANNOTATION})
+public class MarpcProcessor extends AbstractProcessor {
+
+    static final String CONSUMER_ANNOTATION = "com.malinghan.marpc.annotation.MarpcConsumer";
+    static final String PROVIDER_ANNOTATION = "com.malinghan.marpc.annotation.MarpcProvider";
+    /** 与 ConsumerBootstrap.STUB_SUFFIX 一致 */
+    static final String STUB_SUFFIX = "_MarpcStub";
+    /** 与 ProviderSkeleton.SUFFIX 一致 */
+    static final String SKELETON_SUFFIX = "_MarpcSkeleton";
+
+    private static final List<String> SYSTEM_PACKAGES = List.of("java.", "javax.", "org.springframework.");
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            String name = annotation.getQualifiedName().toString();
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (CONSUMER_ANNOTATION.equals(name) && element.getKind() == ElementKind.FIELD) {
+                    TypeElement service = serviceInterface(element.asType());
+                    if (service != null) generate(service, element, STUB_SUFFIX);
+                } else if (PROVIDER_ANNOTATION.equals(name) && element instanceof TypeElement provider) {
+                    for (TypeMirror iface : provider.getInterfaces()) {
+                        TypeElement service = serviceInterface(iface);
+                        if (service != null) generate(service, element, SKELETON_SUFFIX);
+                    }
+                }
+            }
+        }
+        // 不独占注解，其他处理器仍可处理
+        return false;
+    }
+
+    private TypeElement serviceInterface(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) return null;
+        Element element = ((DeclaredType) type).asElement();
+        if (element.getKind() != ElementKind.INTERFACE) return null;
+        TypeElement iface = (TypeElement) element;
+        String name = iface.getQualifiedName().toString();
+        if (SYSTEM_PACKAGES.stream().anyMatch(name::startsWith)) return null;
+        if (!iface.getTypeParameters().isEmpty()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "[marpc] 泛型服务接口不生成代码，运行时使用动态调用: " + name);
+            return null;
+        }
+        return iface;
+    }
+
+    private void generate(TypeElement service, Element origin, String suffix) {
+        ServiceSources sources = new ServiceSources(processingEnv, service);
+        String className = sources.generatedName(suffix);
+        if (!generated.add(className)) return;
+        String source = STUB_SUFFIX.equals(suffix) ? sources.stub(className) : sources.skeleton(className);
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(className, service, origin);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "[marpc] 生成 " + className + " 失败: " + e.getMessage(), origin);
+        }
+    }
+}
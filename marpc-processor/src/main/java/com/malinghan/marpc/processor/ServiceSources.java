@@ -0,0 +1,204 @@
+package com.malinghan.marpc.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 一个服务接口的 Stub / Skeleton 源码生成。
+ *
+ * <p>方法签名按参数擦除后的类型生成，规则与运行时 {@code methodName@paramCount_type1_type2} 一致；
+ * 方法声明使用接口视角下的完整泛型类型。
+ */
+final class ServiceSources {
+
+    private static final String GENERATED = "@javax.annotation.processing.Generated(\"" + MarpcProcessor.class.getName() + "\")";
+
+    private final Types types;
+    private final TypeElement service;
+    private final String packageName;
+    private final String serviceName;
+    private final List<MethodModel> methods = new ArrayList<>();
+
+    ServiceSources(ProcessingEnvironment env, TypeElement service) {
+        this.types = env.getTypeUtils();
+        Elements elements = env.getElementUtils();
+        this.service = service;
+        PackageElement pkg = elements.getPackageOf(service);
+        this.packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        this.serviceName = service.getQualifiedName().toString();
+        DeclaredType serviceType = (DeclaredType) service.asType();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(service))) {
+            // 只处理接口的抽象方法：跳过 Object 的方法、default 方法与静态方法
+            if (method.getEnclosingElement().getKind() != ElementKind.INTERFACE) continue;
+            if (!method.getModifiers().contains(Modifier.ABSTRACT)) continue;
+            methods.add(new MethodModel(method, (ExecutableType) types.asMemberOf(serviceType, method)));
+        }
+    }
+
+    /** 生成类的全限定名：与接口同包，嵌套接口的外层类名以 _ 连接，再加后缀 */
+    String generatedName(String suffix) {
+        return qualify(simpleName(suffix));
+    }
+
+    String stub(String className) {
+        StringBuilder sb = header();
+        sb.append("import com.malinghan.marpc.consumer.MarpcInvocationHandler;\n")
+          .append("import com.malinghan.marpc.consumer.MethodDescriptor;\n\n")
+          .append("/**\n * {@link ").append(serviceName).append("} 的客户端 Stub，由 marpc-processor 生成，请勿修改。\n */\n")
+          .append(GENERATED).append('\n')
+          .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+          .append("public final class ").append(simple(className)).append(" implements ").append(serviceName).append(" {\n\n");
+        for (int i = 0; i < methods.size(); i++) {
+            MethodModel m = methods.get(i);
+            sb.append("    private static final MethodDescriptor M").append(i)
+              .append(" = MethodDescriptor.of(").append(serviceName).append(".class, \"").append(m.name).append('"');
+            for (String erasure : m.parameterErasures) {
+                sb.append(", ").append(erasure).append(".class");
+            }
+            sb.append(");\n");
+        }
+        sb.append("\n    private final MarpcInvocationHandler handler;\n\n")
+          .append("    public ").append(simple(className)).append("(MarpcInvocationHandler handler) {\n")
+          .append("        this.handler = handler;\n")
+          .append("    }\n");
+        for (int i = 0; i < methods.size(); i++) {
+            MethodModel m = methods.get(i);
+            sb.append("\n    @Override\n    public ").append(m.typeParameters).append(m.returnType).append(' ').append(m.name).append('(');
+            for (int p = 0; p < m.parameterTypes.size(); p++) {
+                if (p > 0) sb.append(", ");
+                sb.append(m.parameterTypes.get(p)).append(" arg").append(p);
+            }
+            sb.append(')').append(m.throwsClause).append(" {\n        ");
+            String call = "handler.invoke(M" + i + ", " + argsArray(m) + ")";
+            if (m.isVoid) {
+                sb.append(call).append(";\n");
+            } else {
+                sb.append("return (").append(m.returnType).append(") ").append(call).append(";\n");
+            }
+            sb.append("    }\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    String skeleton(String className) {
+        StringBuilder sb = header();
+        sb.append("import com.malinghan.marpc.provider.ProviderSkeleton;\n\n")
+          .append("/**\n * {@link ").append(serviceName).append("} 的服务端 Skeleton，由 marpc-processor 生成，请勿修改。\n */\n")
+          .append(GENERATED).append('\n')
+          .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+          .append("public final class ").append(simple(className)).append(" implements ProviderSkeleton {\n\n")
+          .append("    private static final String[] SIGNS = {\n");
+        for (MethodModel m : methods) {
+            sb.append("            \"").append(m.sign).append("\",\n");
+        }
+        sb.append("    };\n\n")
+          .append("    @Override\n    public String[] methodSigns() {\n        return SIGNS.clone();\n    }\n\n")
+          .append("    @Override\n    public Object invoke(Object bean, int index, Object[] args) throws Throwable {\n")
+          .append("        ").append(serviceName).append(" service = (").append(serviceName).append(") bean;\n")
+          .append("        switch (index) {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            MethodModel m = methods.get(i);
+            StringBuilder call = new StringBuilder("service.").append(m.name).append('(');
+            for (int p = 0; p < m.parameterErasures.size(); p++) {
+                if (p > 0) call.append(", ");
+                call.append('(').append(m.parameterErasures.get(p)).append(") args[").append(p).append(']');
+            }
+            call.append(')');
+            sb.append("            case ").append(i).append(":\n");
+            if (m.isVoid) {
+                sb.append("                ").append(call).append(";\n                return null;\n");
+            } else {
+                sb.append("                return ").append(call).append(";\n");
+            }
+        }
+        sb.append("            default:\n")
+          .append("                throw new IllegalArgumentException(\"unknown method index: \" + index);\n")
+          .append("        }\n    }\n}\n");
+        return sb.toString();
+    }
+
+    private StringBuilder header() {
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        return sb;
+    }
+
+    private String argsArray(MethodModel m) {
+        if (m.parameterTypes.isEmpty()) return "null";
+        StringBuilder sb = new StringBuilder("new Object[]{");
+        for (int p = 0; p < m.parameterTypes.size(); p++) {
+            if (p > 0) sb.append(", ");
+            sb.append("arg").append(p);
+        }
+        return sb.append('}').toString();
+    }
+
+    private String simpleName(String suffix) {
+        String binary = service.getQualifiedName().toString();
+        // 嵌套接口：外层类名与接口名以 _ 连接
+        String nested = packageName.isEmpty() ? binary : binary.substring(packageName.length() + 1);
+        return nested.replace('.', '_') + suffix;
+    }
+
+    private String qualify(String simple) {
+        return packageName.isEmpty() ? simple : packageName + "." + simple;
+    }
+
+    private static String simple(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private final class MethodModel {
+        final String name;
+        final String sign;
+        final String typeParameters;
+        final String returnType;
+        final boolean isVoid;
+        final List<String> parameterTypes = new ArrayList<>();
+        final List<String> parameterErasures = new ArrayList<>();
+        final String throwsClause;
+
+        MethodModel(ExecutableElement method, ExecutableType asMember) {
+            this.name = method.getSimpleName().toString();
+            this.returnType = asMember.getReturnType().toString();
+            this.isVoid = asMember.getReturnType().getKind() == TypeKind.VOID;
+            for (TypeMirror param : asMember.getParameterTypes()) {
+                parameterTypes.add(param.toString());
+            }
+            // 签名与 Class 字面量使用声明处参数类型的擦除，与运行时 Method.getParameterTypes() 一致
+            method.getParameters().forEach(p -> parameterErasures.add(types.erasure(p.asType()).toString()));
+            this.sign = parameterErasures.isEmpty() ? name + "@0"
+                    : name + "@" + parameterErasures.size() + "_" + String.join("_", parameterErasures);
+            this.typeParameters = method.getTypeParameters().isEmpty() ? ""
+                    : method.getTypeParameters().stream().map(MethodModel::typeParameter)
+                            .collect(Collectors.joining(", ", "<", "> "));
+            this.throwsClause = asMember.getThrownTypes().isEmpty() ? ""
+                    : asMember.getThrownTypes().stream().map(TypeMirror::toString)
+                            .collect(Collectors.joining(", ", " throws ", ""));
+        }
+
+        private static String typeParameter(TypeParameterElement tp) {
+            List<String> bounds = tp.getBounds().stream().map(TypeMirror::toString)
+                    .filter(b -> !b.equals("java.lang.Object")).toList();
+            return bounds.isEmpty() ? tp.getSimpleName().toString()
+                    : tp.getSimpleName() + " extends " + String.join(" & ", bounds);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.malinghan.marpc.processor;
+
+import com.malinghan.marpc.circuitbreaker.CircuitBreaker;
+import com.malinghan.marpc.circuitbreaker.CircuitBreakerConfig;
+import com.malinghan.marpc.consumer.MarpcInvocationHandler;
+import com.malinghan.marpc.core.RpcRequest;
+import com.malinghan.marpc.core.RpcResponse;
+import com.malinghan.marpc.provider.ProviderSkeleton;
+import com.malinghan.marpc.retry.RetryPolicy;
+import com.malinghan.marpc.transport.RpcTransport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 注解处理器单元测试：编译示例服务，验证生成的 Stub / Skeleton 能通过编译，且签名与运行时规则一致。
+ */
+class MarpcProcessorTest {
+
+    private static final String API = """
+            package sample;
+
+            import java.util.List;
+                        import java.util.concurrent.CompletableFuture;
+
+            public interface Catalog {
+                String name(int id);
+                List<Map<String, Integer>> items(List<Long> ids, String... tags);
+                void touch();
+                CompletableFuture<String> async(String key);
+                default String local() { return "local"; }
+            }
+            """;
+
+    private static final String PROVIDER = """
+            package sample;
+
+            import com.malinghan.marpc.annotation.MarpcProvider;
+            import java.util.List;
+                        import java.util.concurrent.CompletableFuture;
+
+            @MarpcProvider
+            public class CatalogImpl implements Catalog, java.io.Serializable {
+                public int touched;
+                public String name(int id) { return "item-" + id; }
+                public List<Map<String, Integer>> items(List<Long> ids, String... tags) { return List.of(Map.of("n", ids.size())); }
+                public void touch() { touched++; }
+                public CompletableFuture<String> async(String key) { return CompletableFuture.completedFuture(key); }
+            }
+            """;
+
+    private static final String CONSUMER = """
+            package sample;
+
+            import com.malinghan.marpc.annotation.MarpcConsumer;
+
+            public class CatalogClient {
+                @MarpcConsumer
+                Catalog catalog;
+            }
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void generatesCompilableStubAndSkeleton() throws Exception {
+        compile();
+
+        assertTrue(Files.exists(dir.resolve("gen/sample/Catalog_MarpcStub.java")));
+        assertTrue(Files.exists(dir.resolve("gen/sample/Catalog_MarpcSkeleton.java")));
+        assertFalse(Files.exists(dir.resolve("gen/java/io/Serializable_MarpcSkeleton.java")));
+    }
+
+    @Test
+    void skeleton_dispatchesByIndex() throws Throwable {
+        try (URLClassLoader loader = compile()) {
+            ProviderSkeleton skeleton = (ProviderSkeleton) loader.loadClass("sample.Catalog_MarpcSkeleton")
+                    .getDeclaredConstructor().newInstance();
+            List<String> signs = List.of(skeleton.methodSigns());
+            assertEquals(4, signs.size());
+            assertTrue(signs.contains("items@2_java.util.List_java.lang.String[]"));
+
+            Object bean = loader.loadClass("sample.CatalogImpl").getDeclaredConstructor().newInstance();
+            assertEquals("item-7", skeleton.invoke(bean, signs.indexOf("name@1_int"), new Object[]{7}));
+            assertNull(skeleton.invoke(bean, signs.indexOf("touch@0"), null));
+            assertEquals(1, bean.getClass().getField("touched").getInt(bean));
+        }
+    }
+
+    @Test
+    void stub_sendsRuntimeSignature() throws Exception {
+        try (URLClassLoader loader = compile()) {
+            Class<?> api = loader.loadClass("sample.Catalog");
+            List<RpcRequest> sent = new ArrayList<>();
+            RpcTransport transport = (instance, request) -> {
+                sent.add(request);
+                return RpcResponse.ok("item-1");
+            };
+            MarpcInvocationHandler handler = new MarpcInvocationHandler(api, () -> "127.0.0.1:8080", List.of(),
+                    RetryPolicy.noRetry(), new CircuitBreaker(CircuitBreakerConfig.disabled()), transport);
+            Object stub = loader.loadClass("sample.Catalog_MarpcStub")
+                    .getConstructor(MarpcInvocationHandler.class).newInstance(handler);
+
+            assertEquals("item-1", api.getMethod("name", int.class).invoke(stub, 1));
+            assertEquals("sample.Catalog", sent.get(0).getService());
+            assertEquals("name@1_int", sent.get(0).getMethodSign());
+            assertEquals("local", api.getMethod("local").invoke(stub));
+        }
+    }
+
+    private URLClassLoader compile() throws IOException {
+        Path src = Files.createDirectories(dir.resolve("src/sample"));
+        Files.writeString(src.resolve("Catalog.java"), API);
+        Files.writeString(src.resolve("CatalogImpl.java"), PROVIDER);
+        Files.writeString(src.resolve("CatalogClient.java"), CONSUMER);
+        Path gen = Files.createDirectories(dir.resolve("gen"));
+        Path out = Files.createDirectories(dir.resolve("out"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = List.of("-classpath", System.getProperty("java.class.path"),
+                    "-s", gen.toString(), "-d", out.toString());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null,
+                    files.getJavaFileObjects(src.resolve("Catalog.java").toFile(),
+                            src.resolve("CatalogImpl.java").toFile(), src.resolve("CatalogClient.java").toFile()));
+            task.setProcessors(List.of(new MarpcProcessor()));
+            boolean ok = task.call();
+            assertTrue(ok, () -> diagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .map(Object::toString).toList().toString());
+        }
+        return new URLClassLoader(new URL[]{out.toUri().toURL()}, getClass().getClassLoader());
+    }
+}